@@ -0,0 +1,130 @@
+package com.remus.dwanjcex.benchmark;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.engine.EngineOrder;
+import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.ladder.PriceLadder;
+import com.remus.dwanjcex.engine.ladder.TickArrayPriceLadder;
+import com.remus.dwanjcex.engine.ladder.TreeMapPriceLadder;
+import com.remus.dwanjcex.engine.stp.ExpireTakerSTPStrategy;
+import com.remus.dwanjcex.engine.stp.STPStrategyFactory;
+import com.remus.dwanjcex.engine.strategy.LimitOrderMatchStrategy;
+import com.remus.dwanjcex.engine.strategy.MarketOrderMatchStrategy;
+import com.remus.dwanjcex.engine.strategy.MatchStrategyFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试的公共构造：只装配撮合相关的 Bean，不启动 Web/数据库/Redis/Kafka。
+ */
+final class BenchmarkSupport {
+
+    static final String SYMBOL = "BTCUSDT";
+    static final int PRICE_SCALE = 2;
+    static final int QUANTITY_SCALE = 8;
+    // 1 个基础货币单位：成交金额 = 价格，买入数量 = 金额 / 价格，均无取整误差，订单簿可以精确地回到稳态
+    static final long ONE_LOT = 100_000_000L;
+    // 中间价 30000.00
+    static final long MID_PRICE = 3_000_000L;
+    static final int RANDOM_TABLE_SIZE = 1 << 16;
+    // 模拟撮合阶段的批次大小：每批结束时取出增量和挂单变更，与 MatchingHandler 在 endOfBatch 时的行为一致
+    static final int BATCH_SIZE = 64;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * 撮合策略所需的最小 Spring 上下文，STP 策略经由 STPStrategyFactory 按名称获取，与线上一致。
+     */
+    static AnnotationConfigApplicationContext engineContext() {
+        return new AnnotationConfigApplicationContext(
+                ExpireTakerSTPStrategy.class,
+                STPStrategyFactory.class,
+                LimitOrderMatchStrategy.class,
+                MarketOrderMatchStrategy.class,
+                MatchStrategyFactory.class);
+    }
+
+    static OrderBook newBook(String ladder) {
+        PriceLadder bids;
+        PriceLadder asks;
+        if ("tickArray".equals(ladder)) {
+            bids = new TickArrayPriceLadder(true, 1L, 65536);
+            asks = new TickArrayPriceLadder(false, 1L, 65536);
+        } else {
+            bids = new TreeMapPriceLadder(true);
+            asks = new TreeMapPriceLadder(false);
+        }
+        return new OrderBook(SYMBOL, PRICE_SCALE, QUANTITY_SCALE, bids, asks);
+    }
+
+    static EngineOrder limit(long id, long userId, OrderTypes.Side side, long price, long quantity) {
+        return EngineOrder.builder()
+                .id(id)
+                .userId(userId)
+                .symbol(SYMBOL)
+                .side(side)
+                .type(OrderTypes.OrderType.LIMIT)
+                .price(price)
+                .quantity(quantity)
+                .build();
+    }
+
+    static EngineOrder marketBuy(long id, long userId, long quoteAmount) {
+        return EngineOrder.builder()
+                .id(id)
+                .userId(userId)
+                .symbol(SYMBOL)
+                .side(OrderTypes.Side.BUY)
+                .type(OrderTypes.OrderType.MARKET)
+                .quoteAmount(quoteAmount)
+                .build();
+    }
+
+    static EngineOrder marketSell(long id, long userId, long quantity) {
+        return EngineOrder.builder()
+                .id(id)
+                .userId(userId)
+                .symbol(SYMBOL)
+                .side(OrderTypes.Side.SELL)
+                .type(OrderTypes.OrderType.MARKET)
+                .quantity(quantity)
+                .build();
+    }
+
+    /**
+     * 每 BATCH_SIZE 次操作取出一次订单簿的变更记录 (否则变更集合会无限增长)，返回更新后的计数。
+     */
+    static int endOfBatch(OrderBook orderBook, int opsInBatch) {
+        if (++opsInBatch < BATCH_SIZE) {
+            return opsInBatch;
+        }
+        orderBook.drainDelta();
+        orderBook.drainOrderChanges(order -> { }, orderId -> { });
+        return 0;
+    }
+
+    /**
+     * 卖盘第 level 档 (从0开始) 的价格；买盘对称分布在中间价下方。
+     */
+    static long askPrice(int level) {
+        return MID_PRICE + 1 + level;
+    }
+
+    static long bidPrice(int level) {
+        return MID_PRICE - level;
+    }
+
+    /**
+     * 预生成的随机下标表，避免在测量路径上调用随机数生成器。
+     */
+    static int[] randomTable(long seed, int bound) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] table = new int[RANDOM_TABLE_SIZE];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextInt(bound);
+        }
+        return table;
+    }
+}
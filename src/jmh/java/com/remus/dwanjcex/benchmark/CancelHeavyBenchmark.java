@@ -0,0 +1,113 @@
+package com.remus.dwanjcex.benchmark;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.engine.EngineOrder;
+import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.strategy.LimitOrderMatchStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 做市商主导的撤单密集流量：每 cancelsPerTrade 次撤单改价夹杂一笔吃单。
+ * 改单撤掉随机一笔做市挂单，并经限价撮合策略在同侧随机档位重新挂入 (不会穿价)；
+ * 吃单吃掉对手方最优的一笔挂单，其槽位在下次被选中改单时补回。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CancelHeavyBenchmark {
+
+    private static final long MARKET_MAKER_USER_ID = 7L;
+    private static final long TAKER_USER_ID = 8L;
+    private static final int LEVELS = 200;
+    private static final int ORDERS_PER_LEVEL = 5;
+
+    @Param({"treeMap", "tickArray"})
+    public String ladder;
+
+    @Param({"10", "50"})
+    public int cancelsPerTrade;
+
+    private AnnotationConfigApplicationContext context;
+    private LimitOrderMatchStrategy strategy;
+    private OrderBook orderBook;
+    private final DisruptorEvent event = new DisruptorEvent();
+    // 做市商的挂单槽位：偶数槽位为买单，奇数槽位为卖单
+    private long[] slotOrderIds;
+    private int[] slotPicks;
+    private int[] levelPicks;
+    private long nextId;
+    private int cursor;
+    private int opsInBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.engineContext();
+        strategy = context.getBean(LimitOrderMatchStrategy.class);
+        orderBook = BenchmarkSupport.newBook(ladder);
+        slotOrderIds = new long[LEVELS * ORDERS_PER_LEVEL * 2];
+        levelPicks = BenchmarkSupport.randomTable(4L, LEVELS);
+        slotPicks = BenchmarkSupport.randomTable(5L, slotOrderIds.length);
+        for (int slot = 0; slot < slotOrderIds.length; slot++) {
+            int level = slot / 2 / ORDERS_PER_LEVEL;
+            slotOrderIds[slot] = quote(slot, level);
+        }
+        BenchmarkSupport.endOfBatch(orderBook, BenchmarkSupport.BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long quote(int slot, int level) {
+        event.clear();
+        long id = ++nextId;
+        boolean buy = (slot & 1) == 0;
+        long price = buy ? BenchmarkSupport.bidPrice(level) : BenchmarkSupport.askPrice(level);
+        OrderTypes.Side side = buy ? OrderTypes.Side.BUY : OrderTypes.Side.SELL;
+        strategy.match(BenchmarkSupport.limit(id, MARKET_MAKER_USER_ID, side, price, BenchmarkSupport.ONE_LOT), orderBook, event);
+        return id;
+    }
+
+    @Benchmark
+    public int marketMakerFlow() {
+        int pick = cursor++ & (BenchmarkSupport.RANDOM_TABLE_SIZE - 1);
+        int trades = 0;
+        if (pick % (cancelsPerTrade + 1) == 0) {
+            event.clear();
+            boolean buy = (pick & 1) == 0;
+            OrderTypes.Side side = buy ? OrderTypes.Side.BUY : OrderTypes.Side.SELL;
+            long price = buy ? BenchmarkSupport.askPrice(LEVELS) : BenchmarkSupport.bidPrice(LEVELS);
+            strategy.match(BenchmarkSupport.limit(++nextId, TAKER_USER_ID, side, price, BenchmarkSupport.ONE_LOT), orderBook, event);
+            trades = event.getTradeCount();
+        } else {
+            int slot = slotPicks[pick];
+            EngineOrder resting = orderBook.getOrderMap().get(slotOrderIds[slot]);
+            if (resting != null) {
+                orderBook.remove(resting.getId());
+            }
+            slotOrderIds[slot] = quote(slot, levelPicks[pick]);
+        }
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return trades;
+    }
+}
@@ -0,0 +1,108 @@
+package com.remus.dwanjcex.benchmark;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.strategy.LimitOrderMatchStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限价单撮合：买卖双方交替以穿价限价单吃掉对手方最优档位的一笔挂单，
+ * 随后在成交价重新挂入一笔同样大小的挂单，使订单簿保持稳态 (补单计入测量)。
+ * passiveThenCancel 测量不成交、直接入簿的限价单及其撤单。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LimitOrderBenchmark {
+
+    private static final long TAKER_USER_ID = 1L;
+    private static final long MAKER_USER_ID_BASE = 1000L;
+
+    @Param({"treeMap", "tickArray"})
+    public String ladder;
+
+    @Param({"50", "1000"})
+    public int levels;
+
+    @Param({"10"})
+    public int ordersPerLevel;
+
+    private AnnotationConfigApplicationContext context;
+    private LimitOrderMatchStrategy strategy;
+    private OrderBook orderBook;
+    private final DisruptorEvent event = new DisruptorEvent();
+    private int[] levelPicks;
+    private long nextId;
+    private int cursor;
+    private int opsInBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.engineContext();
+        strategy = context.getBean(LimitOrderMatchStrategy.class);
+        orderBook = BenchmarkSupport.newBook(ladder);
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                addMaker(OrderTypes.Side.BUY, BenchmarkSupport.bidPrice(level));
+                addMaker(OrderTypes.Side.SELL, BenchmarkSupport.askPrice(level));
+            }
+        }
+        levelPicks = BenchmarkSupport.randomTable(3L, levels);
+        BenchmarkSupport.endOfBatch(orderBook, BenchmarkSupport.BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void addMaker(OrderTypes.Side side, long price) {
+        long id = ++nextId;
+        orderBook.add(BenchmarkSupport.limit(id, MAKER_USER_ID_BASE + id % 64, side, price, BenchmarkSupport.ONE_LOT));
+    }
+
+    @Benchmark
+    public int crossingLimit() {
+        event.clear();
+        boolean buy = (cursor++ & 1) == 0;
+        OrderTypes.Side side = buy ? OrderTypes.Side.BUY : OrderTypes.Side.SELL;
+        // 限价比最优价深 levels 档，只会吃掉最优档位的一笔挂单
+        long price = buy ? BenchmarkSupport.askPrice(levels) : BenchmarkSupport.bidPrice(levels);
+        strategy.match(BenchmarkSupport.limit(++nextId, TAKER_USER_ID, side, price, BenchmarkSupport.ONE_LOT), orderBook, event);
+
+        int trades = event.getTradeCount();
+        addMaker(buy ? OrderTypes.Side.SELL : OrderTypes.Side.BUY, event.getTrade(0).getPrice());
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return trades;
+    }
+
+    @Benchmark
+    public boolean passiveThenCancel() {
+        event.clear();
+        long id = ++nextId;
+        long price = BenchmarkSupport.bidPrice(levelPicks[cursor++ & (BenchmarkSupport.RANDOM_TABLE_SIZE - 1)]);
+        strategy.match(BenchmarkSupport.limit(id, TAKER_USER_ID, OrderTypes.Side.BUY, price, BenchmarkSupport.ONE_LOT), orderBook, event);
+        boolean removed = orderBook.remove(id);
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return removed;
+    }
+}
@@ -0,0 +1,109 @@
+package com.remus.dwanjcex.benchmark;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.strategy.MarketOrderMatchStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 市价单扫单：一笔市价单恰好吃光对手方前 sweepLevels 个档位，
+ * 随后在原价格把这些档位补回，使每次调用面对同样的订单簿 (补单计入测量)。
+ * 挂单数量为 1 个单位，成交金额与价格相同，买单的报价金额可以精确地覆盖目标档位。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarketSweepBenchmark {
+
+    private static final long TAKER_USER_ID = 1L;
+    private static final long MAKER_USER_ID_BASE = 1000L;
+    private static final int LEVELS = 1000;
+
+    @Param({"treeMap", "tickArray"})
+    public String ladder;
+
+    @Param({"1", "10", "50"})
+    public int sweepLevels;
+
+    @Param({"1", "10"})
+    public int ordersPerLevel;
+
+    private AnnotationConfigApplicationContext context;
+    private MarketOrderMatchStrategy strategy;
+    private OrderBook orderBook;
+    private final DisruptorEvent event = new DisruptorEvent();
+    private long sweepQuoteAmount;
+    private long nextId;
+    private int opsInBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.engineContext();
+        strategy = context.getBean(MarketOrderMatchStrategy.class);
+        orderBook = BenchmarkSupport.newBook(ladder);
+        for (int level = 0; level < LEVELS; level++) {
+            refill(OrderTypes.Side.BUY, BenchmarkSupport.bidPrice(level));
+            refill(OrderTypes.Side.SELL, BenchmarkSupport.askPrice(level));
+        }
+        for (int level = 0; level < sweepLevels; level++) {
+            sweepQuoteAmount += orderBook.quoteOf(BenchmarkSupport.askPrice(level), BenchmarkSupport.ONE_LOT) * ordersPerLevel;
+        }
+        BenchmarkSupport.endOfBatch(orderBook, BenchmarkSupport.BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void refill(OrderTypes.Side side, long price) {
+        for (int i = 0; i < ordersPerLevel; i++) {
+            long id = ++nextId;
+            orderBook.add(BenchmarkSupport.limit(id, MAKER_USER_ID_BASE + id % 64, side, price, BenchmarkSupport.ONE_LOT));
+        }
+    }
+
+    @Benchmark
+    public int marketBuySweep() {
+        event.clear();
+        strategy.match(BenchmarkSupport.marketBuy(++nextId, TAKER_USER_ID, sweepQuoteAmount), orderBook, event);
+        int trades = event.getTradeCount();
+        for (int level = 0; level < sweepLevels; level++) {
+            refill(OrderTypes.Side.SELL, BenchmarkSupport.askPrice(level));
+        }
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return trades;
+    }
+
+    @Benchmark
+    public int marketSellSweep() {
+        event.clear();
+        long quantity = BenchmarkSupport.ONE_LOT * ordersPerLevel * sweepLevels;
+        strategy.match(BenchmarkSupport.marketSell(++nextId, TAKER_USER_ID, quantity), orderBook, event);
+        int trades = event.getTradeCount();
+        for (int level = 0; level < sweepLevels; level++) {
+            refill(OrderTypes.Side.BUY, BenchmarkSupport.bidPrice(level));
+        }
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return trades;
+    }
+}
@@ -0,0 +1,114 @@
+package com.remus.dwanjcex.benchmark;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.engine.EngineOrder;
+import com.remus.dwanjcex.engine.OrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 深度订单簿上的基础操作：挂单、从队列中间撤单、取最优价、取前N档深度。
+ * 每次操作后订单簿回到原有规模，测量的是稳态下的开销。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookBenchmark {
+
+    @Param({"treeMap", "tickArray"})
+    public String ladder;
+
+    // 每侧的价格档位数
+    @Param({"100", "2000"})
+    public int levels;
+
+    @Param({"10", "100"})
+    public int ordersPerLevel;
+
+    private OrderBook orderBook;
+    // 每个槽位当前挂着的订单ID，撤单后原槽位由新订单接替
+    private long[] restingIds;
+    private int[] slotPicks;
+    private int[] levelPicks;
+    private long nextId;
+    private int cursor;
+    private int opsInBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orderBook = BenchmarkSupport.newBook(ladder);
+        restingIds = new long[levels * ordersPerLevel * 2];
+        int slot = 0;
+        for (int level = 0; level < levels; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                restingIds[slot++] = addResting(OrderTypes.Side.BUY, BenchmarkSupport.bidPrice(level));
+                restingIds[slot++] = addResting(OrderTypes.Side.SELL, BenchmarkSupport.askPrice(level));
+            }
+        }
+        slotPicks = BenchmarkSupport.randomTable(1L, restingIds.length);
+        levelPicks = BenchmarkSupport.randomTable(2L, levels);
+        BenchmarkSupport.endOfBatch(orderBook, BenchmarkSupport.BATCH_SIZE);
+    }
+
+    private long addResting(OrderTypes.Side side, long price) {
+        long id = ++nextId;
+        orderBook.add(BenchmarkSupport.limit(id, id % 64, side, price, BenchmarkSupport.ONE_LOT));
+        return id;
+    }
+
+    private int next() {
+        return cursor++ & (BenchmarkSupport.RANDOM_TABLE_SIZE - 1);
+    }
+
+    /**
+     * 在随机档位挂入一笔订单后立即撤掉 (撤单命中队尾)。
+     */
+    @Benchmark
+    public boolean addThenCancel() {
+        int level = levelPicks[next()];
+        long id = addResting(OrderTypes.Side.BUY, BenchmarkSupport.bidPrice(level));
+        boolean removed = orderBook.remove(id);
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return removed;
+    }
+
+    /**
+     * 撤掉随机一笔挂单 (通常位于队列中间) 并在同一价格重新挂入，模拟做市商改单。
+     */
+    @Benchmark
+    public long cancelReplace() {
+        int slot = slotPicks[next()];
+        EngineOrder order = orderBook.getOrderMap().get(restingIds[slot]);
+        orderBook.remove(order.getId());
+        restingIds[slot] = addResting(order.getSide(), order.getPrice());
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return restingIds[slot];
+    }
+
+    @Benchmark
+    public void bestBidAsk(Blackhole bh) {
+        bh.consume(orderBook.getBids().best());
+        bh.consume(orderBook.getAsks().best());
+    }
+
+    @Benchmark
+    public Object depthTop20() {
+        return orderBook.getDepth(20);
+    }
+}
@@ -0,0 +1,102 @@
+package com.remus.dwanjcex.benchmark;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.strategy.LimitOrderMatchStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自成交密集流量：对手方最优档位全部属于同一用户，按 selfTradePercent 的比例由该用户自己吃单，
+ * 触发经 STPStrategyFactory 获取的自成交保护策略；其余吃单来自其他用户，正常成交后在成交价补回挂单。
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelfTradeBenchmark {
+
+    private static final long OWNER_USER_ID = 1L;
+    private static final long OTHER_USER_ID = 2L;
+    private static final int LEVELS = 100;
+    private static final int ORDERS_PER_LEVEL = 5;
+
+    @Param({"treeMap", "tickArray"})
+    public String ladder;
+
+    @Param({"10", "50", "90"})
+    public int selfTradePercent;
+
+    private AnnotationConfigApplicationContext context;
+    private LimitOrderMatchStrategy strategy;
+    private OrderBook orderBook;
+    private final DisruptorEvent event = new DisruptorEvent();
+    private boolean[] selfTradePicks;
+    private long nextId;
+    private int cursor;
+    private int opsInBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.engineContext();
+        strategy = context.getBean(LimitOrderMatchStrategy.class);
+        orderBook = BenchmarkSupport.newBook(ladder);
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < ORDERS_PER_LEVEL; i++) {
+                addOwnerOrder(OrderTypes.Side.BUY, BenchmarkSupport.bidPrice(level));
+                addOwnerOrder(OrderTypes.Side.SELL, BenchmarkSupport.askPrice(level));
+            }
+        }
+        SplittableRandom random = new SplittableRandom(6L);
+        selfTradePicks = new boolean[BenchmarkSupport.RANDOM_TABLE_SIZE];
+        for (int i = 0; i < selfTradePicks.length; i++) {
+            selfTradePicks[i] = random.nextInt(100) < selfTradePercent;
+        }
+        BenchmarkSupport.endOfBatch(orderBook, BenchmarkSupport.BATCH_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void addOwnerOrder(OrderTypes.Side side, long price) {
+        orderBook.add(BenchmarkSupport.limit(++nextId, OWNER_USER_ID, side, price, BenchmarkSupport.ONE_LOT));
+    }
+
+    @Benchmark
+    public boolean takerFlow() {
+        event.clear();
+        int pick = cursor++;
+        boolean buy = (pick & 1) == 0;
+        boolean selfTrade = selfTradePicks[pick & (BenchmarkSupport.RANDOM_TABLE_SIZE - 1)];
+        OrderTypes.Side side = buy ? OrderTypes.Side.BUY : OrderTypes.Side.SELL;
+        long price = buy ? BenchmarkSupport.askPrice(LEVELS) : BenchmarkSupport.bidPrice(LEVELS);
+        long userId = selfTrade ? OWNER_USER_ID : OTHER_USER_ID;
+        strategy.match(BenchmarkSupport.limit(++nextId, userId, side, price, BenchmarkSupport.ONE_LOT), orderBook, event);
+
+        if (!event.isSelfTradeCancel()) {
+            addOwnerOrder(buy ? OrderTypes.Side.SELL : OrderTypes.Side.BUY, event.getTrade(0).getPrice());
+        }
+        opsInBatch = BenchmarkSupport.endOfBatch(orderBook, opsInBatch);
+        return event.isSelfTradeCancel();
+    }
+}
@@ -1,9 +1,18 @@
 package com.remus.dwanjcex.config;
 
+import com.remus.dwanjcex.disruptor.service.EngineShardRouter;
+import com.remus.dwanjcex.kafka.EngineCommandPartitioner;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
@@ -13,17 +22,47 @@ import java.util.Map;
 
 @Configuration
 public class KafkaConfig {
+    @Value("${cex.kafka.command-topic:engine-commands}")
+    private String commandTopic;
+
+    /**
+     * 撮合指令生产者：值为已编码的字节 (二进制编码或UTF-8 JSON，见 cex.kafka.command-format)。
+     */
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, byte[]> producerFactory(EngineShardRouter shardRouter) {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "127.0.0.1:9092");
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        // 撮合指令按交易对所在的流水线分区
+        props.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, EngineCommandPartitioner.class);
+        props.put(EngineCommandPartitioner.SHARD_ROUTER_CONFIG, shardRouter);
+        props.put(EngineCommandPartitioner.COMMAND_TOPIC_CONFIG, commandTopic);
         return new DefaultKafkaProducerFactory<>(props);
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, byte[]> kafkaTemplate(ProducerFactory<String, byte[]> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * 撮合指令主题 (下单与撤单)，启动时不存在则自动创建。分区数不少于撮合流水线数时各流水线互不共享分区。
+     */
+    @Bean
+    public NewTopic commandTopic(@Value("${cex.kafka.command-topic-partitions:8}") int partitions) {
+        return TopicBuilder.name(commandTopic).partitions(partitions).build();
+    }
+
+    /**
+     * 批量监听容器：监听方法一次拿到一次 poll 返回的全部记录，其余配置与默认容器一致。
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer, ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        return factory;
     }
 }
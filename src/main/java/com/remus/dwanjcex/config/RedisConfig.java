@@ -49,6 +49,7 @@ public class RedisConfig {
         
         // 将适配器注册为监听器
         container.addMessageListener(listenerAdapter, new PatternTopic("channel:orderbook:*"));
+        container.addMessageListener(listenerAdapter, new PatternTopic("channel:depth:*"));
         container.addMessageListener(listenerAdapter, new PatternTopic("channel:ticker:*"));
         
         return container;
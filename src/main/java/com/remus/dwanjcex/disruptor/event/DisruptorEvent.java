@@ -2,7 +2,12 @@ package com.remus.dwanjcex.disruptor.event;
 
 import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
 import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,8 +18,18 @@ import java.util.List;
 @Data
 public class DisruptorEvent {
 
+    /**
+     * 每个事件预分配的成交槽位数，覆盖绝大多数订单的成交笔数；超出的成交写入溢出槽位。
+     */
+    public static final int TRADE_SLOT_CAPACITY = 32;
+
     private EventType type;
 
+    /**
+     * 日志阶段分配的序号，未启用日志时为0。
+     */
+    private long journalSeq;
+
     // PLACE_ORDER 事件相关字段
     private Long orderId;
     private OrderDto placeOrder;
@@ -22,41 +37,93 @@ public class DisruptorEvent {
     // CANCEL_ORDER 事件相关字段
     private CancelOrderDto cancelOrder;
 
-    // 撮合结果
-    private List<TradeEvent> tradeEvents;
+    // 撮合结果：成交，以及撮合后状态发生变化的订单 (吃单、成交的挂单、被撤销的挂单)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final EventSlots<TradeEvent> tradeSlots = new EventSlots<>(TRADE_SLOT_CAPACITY, TradeEvent::new);
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final EventSlots<OrderSnapshot> orderSlots = new EventSlots<>(TRADE_SLOT_CAPACITY + 1, OrderSnapshot::new);
 
     /**
      * 自成交取消标志 (Cancel-Newest)。
      * 如果在撮合时发现新订单会与自己的订单成交，则将此标志设为true。
-     * PersistenceHandler会根据此标志来取消新订单并解冻资金。
+     * 持久化阶段会根据此标志来取消新订单并解冻资金。
      */
     private boolean selfTradeCancel = false;
 
     /**
      * 在撮合过程中因自成交策略 (Cancel-Oldest) 而被取消的挂单ID列表。
+     * 策略须同时通过 {@link #nextOrderSlot()} 记录这些挂单被取消前的快照，持久化阶段据此解冻和更新订单。
      */
     private List<Long> cancelledOrderIds;
 
+    /**
+     * 撮合阶段产出的订单簿变更结果，由行情发布阶段负责序列化并写入Redis。
+     */
+    private List<OrderBookUpdate> bookUpdates;
+
     public void clear() {
         this.type = null;
+        this.journalSeq = 0;
         this.orderId = null;
         this.placeOrder = null;
         this.cancelOrder = null;
         this.selfTradeCancel = false;
-        if (this.tradeEvents != null) {
-            this.tradeEvents.clear();
-        }
+        this.tradeSlots.clear();
+        this.orderSlots.clear();
         if (this.cancelledOrderIds != null) {
             this.cancelledOrderIds.clear();
         }
+        if (this.bookUpdates != null) {
+            this.bookUpdates.clear();
+        }
     }
 
-    public void addTradeEvent(TradeEvent tradeEvent) {
-        if (this.tradeEvents == null) {
-            this.tradeEvents = new ArrayList<>();
-        }
-        this.tradeEvents.add(tradeEvent);
+    /**
+     * 取出下一个空闲的成交槽位供撮合线程原地填充。
+     */
+    public TradeEvent nextTradeSlot() {
+        return tradeSlots.next();
     }
 
+    /**
+     * 读取第 index 笔成交 (0 <= index < tradeCount)。
+     */
+    public TradeEvent getTrade(int index) {
+        return tradeSlots.get(index);
+    }
+
+    public int getTradeCount() {
+        return tradeSlots.count();
+    }
+
+    /**
+     * 取出下一个空闲的订单快照槽位供撮合线程原地填充。
+     */
+    public OrderSnapshot nextOrderSlot() {
+        return orderSlots.next();
+    }
 
+    /**
+     * 读取第 index 个订单快照 (0 <= index < orderSnapshotCount)。同一订单在一个事件中至多出现一次。
+     */
+    public OrderSnapshot getOrderSnapshot(int index) {
+        return orderSlots.get(index);
+    }
+
+    public int getOrderSnapshotCount() {
+        return orderSlots.count();
+    }
+
+    public void addBookUpdate(OrderBookUpdate bookUpdate) {
+        if (this.bookUpdates == null) {
+            this.bookUpdates = new ArrayList<>();
+        }
+        this.bookUpdates.add(bookUpdate);
+    }
 }
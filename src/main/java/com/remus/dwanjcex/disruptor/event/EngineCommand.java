@@ -0,0 +1,63 @@
+package com.remus.dwanjcex.disruptor.event;
+
+import com.remus.dwanjcex.engine.FixedPoint;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+
+/**
+ * 送入撮合流水线的一条指令 (下单或撤单)，用于批量发布。
+ * 实现负责把自身写入环形缓冲区中已申请的事件，可以是已解码的DTO，也可以是尚未解码的二进制消息。
+ */
+public interface EngineCommand {
+
+    /**
+     * 指令所属的交易对，用于选择撮合流水线。
+     */
+    String getSymbol();
+
+    /**
+     * 把指令写入 (已清空的) 环形缓冲区事件。
+     */
+    void copyTo(DisruptorEvent event);
+
+    /**
+     * 下单指令的价格、报价金额能否以 priceScale 位、数量能否以 quantityScale 位定点数无损表示；撤单指令总是返回 true。
+     * 超出精度的指令无法进入订单簿，须在发布前拒绝。
+     */
+    boolean fitsScale(int priceScale, int quantityScale);
+
+    static EngineCommand place(Long orderId, OrderDto orderDto) {
+        return new DtoCommand(EventType.PLACE_ORDER, orderId, orderDto, null);
+    }
+
+    static EngineCommand cancel(CancelOrderDto cancelOrderDto) {
+        return new DtoCommand(EventType.CANCEL_ORDER, null, null, cancelOrderDto);
+    }
+
+    /**
+     * 由DTO构成的指令。
+     */
+    record DtoCommand(EventType type, Long orderId, OrderDto placeOrder, CancelOrderDto cancelOrder) implements EngineCommand {
+
+        @Override
+        public String getSymbol() {
+            return type == EventType.PLACE_ORDER ? placeOrder.getSymbol() : cancelOrder.getSymbol();
+        }
+
+        @Override
+        public void copyTo(DisruptorEvent event) {
+            event.setType(type);
+            event.setOrderId(orderId);
+            event.setPlaceOrder(placeOrder);
+            event.setCancelOrder(cancelOrder);
+        }
+
+        @Override
+        public boolean fitsScale(int priceScale, int quantityScale) {
+            return type != EventType.PLACE_ORDER
+                    || (FixedPoint.fits(placeOrder.getPrice(), priceScale)
+                    && FixedPoint.fits(placeOrder.getQuoteAmount(), priceScale)
+                    && FixedPoint.fits(placeOrder.getAmount(), quantityScale));
+        }
+    }
+}
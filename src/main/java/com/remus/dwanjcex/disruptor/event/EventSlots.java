@@ -0,0 +1,62 @@
+package com.remus.dwanjcex.disruptor.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 随 {@link DisruptorEvent} 复用的一组预分配槽位：前 count 个有效，撮合线程原地填充，下游处理器只读。
+ * 预分配槽位用完后使用溢出槽位 (仅在首次用到时分配)。
+ */
+final class EventSlots<T> {
+
+    // 溢出槽位随事件复用而保留；清理时若超过该数量则释放，避免一次超大扫单长期占用内存
+    private static final int MAX_RETAINED_OVERFLOW_SLOTS = 1024;
+
+    private final Object[] slots;
+    private final Supplier<T> factory;
+    private List<T> overflow;
+    private int count;
+
+    EventSlots(int capacity, Supplier<T> factory) {
+        this.slots = new Object[capacity];
+        this.factory = factory;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = factory.get();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T next() {
+        int index = count++;
+        if (index < slots.length) {
+            return (T) slots[index];
+        }
+        if (overflow == null) {
+            overflow = new ArrayList<>();
+        }
+        int overflowIndex = index - slots.length;
+        if (overflowIndex < overflow.size()) {
+            return overflow.get(overflowIndex);
+        }
+        T slot = factory.get();
+        overflow.add(slot);
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return index < slots.length ? (T) slots[index] : overflow.get(index - slots.length);
+    }
+
+    int count() {
+        return count;
+    }
+
+    void clear() {
+        count = 0;
+        if (overflow != null && overflow.size() > MAX_RETAINED_OVERFLOW_SLOTS) {
+            overflow = null;
+        }
+    }
+}
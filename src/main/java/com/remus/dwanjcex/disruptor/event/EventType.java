@@ -16,5 +16,18 @@ public enum EventType {
     /**
      * 取消订单请求事件
      */
-    CANCEL_ORDER
+    CANCEL_ORDER,
+
+    /**
+     * 定时心跳事件：不携带指令，由管理器在流水线有待写出数据时发布，
+     * 驱动空闲流水线上的持久化处理器按时写出。不写入日志，撮合阶段忽略。
+     */
+    HEARTBEAT,
+
+    /**
+     * 系统强制移除订单事件：从内存订单簿中移除订单，不解冻资金、不更新订单状态
+     * (由发起方负责)。与下单、撤单一样写入日志，回放时同样移除。
+     * 订单ID和交易对放在 cancelOrder 字段中。
+     */
+    REMOVE_ORDER
 }
@@ -0,0 +1,59 @@
+package com.remus.dwanjcex.disruptor.event;
+
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import com.remus.dwanjcex.wallet.entity.dto.OrderBookDeltaDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderBookLevel;
+import com.remus.dwanjcex.wallet.entity.dto.OrderBookSnapshotDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 撮合线程产出的一次订单簿变更结果，随事件传递给行情发布阶段 (MarketDataHandler)。
+ * <p>
+ * 所有字段在撮合线程上生成后不再修改，行情线程只读，因此无需额外同步。
+ */
+@Getter
+@AllArgsConstructor
+public class OrderBookUpdate {
+
+    private final String symbol;
+
+    /**
+     * 价格与数量的定点数精度，用于把订单副本还原为引擎内部表示
+     */
+    private final int priceScale;
+    private final int quantityScale;
+
+    /**
+     * 自上一次变更以来的增量，订单簿没有变化时为 null
+     */
+    private final OrderBookDeltaDto delta;
+
+    /**
+     * 前 N 档深度 (不可变)
+     */
+    private final Map<String, List<OrderBookLevel>> depth;
+
+    /**
+     * 带序号的深度快照
+     */
+    private final OrderBookSnapshotDto sequencedSnapshot;
+
+    /**
+     * 自上一次变更以来新增或剩余数量变化的挂单副本，用于增量维护活跃订单哈希
+     */
+    private final List<OrderEntity> upsertedOrders;
+
+    /**
+     * 自上一次变更以来离开订单簿 (完全成交或撤销) 的挂单ID
+     */
+    private final List<Long> removedOrderIds;
+
+    /**
+     * 本次变更已包含的最后一条日志序号，0表示未启用日志
+     */
+    private final long journalSeq;
+}
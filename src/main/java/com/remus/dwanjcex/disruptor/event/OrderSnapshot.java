@@ -0,0 +1,73 @@
+package com.remus.dwanjcex.disruptor.event;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.engine.EngineOrder;
+import com.remus.dwanjcex.engine.FixedPoint;
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import lombok.Data;
+
+/**
+ * 撮合后订单状态的快照 (成交量、成交金额等)，由撮合阶段写入，持久化阶段据此更新订单而无需回查数据库。
+ * 数值为撮合引擎内部的定点数。实例是 {@link DisruptorEvent} 中预分配的槽位，随事件一起复用，
+ * 下游处理器只能在处理该事件期间读取，不能持有引用。
+ */
+@Data
+public class OrderSnapshot {
+    private long orderId;
+    private long userId;
+    private String symbol;
+    private OrderTypes.Side side;
+    private OrderTypes.OrderType type;
+    private long price;
+    private long quantity;
+    private long filled;
+    private long quoteAmount;
+    private long quoteFilled;
+    private int priceScale;
+    private int quantityScale;
+
+    /**
+     * 原地填充本槽位。
+     */
+    public void set(EngineOrder order, int priceScale, int quantityScale) {
+        this.orderId = order.getId();
+        this.userId = order.getUserId();
+        this.symbol = order.getSymbol();
+        this.side = order.getSide();
+        this.type = order.getType();
+        this.price = order.getPrice();
+        this.quantity = order.getQuantity();
+        this.filled = order.getFilled();
+        this.quoteAmount = order.getQuoteAmount();
+        this.quoteFilled = order.getQuoteFilled();
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+    }
+
+    public boolean isFullyFilled() {
+        if (type == OrderTypes.OrderType.MARKET && side == OrderTypes.Side.BUY) {
+            return quoteAmount > 0 && quoteFilled >= quoteAmount;
+        }
+        return quantity > 0 && filled >= quantity;
+    }
+
+    /**
+     * 转换为订单实体，并按成交进度恢复订单状态。
+     */
+    public OrderEntity toEntity() {
+        OrderEntity entity = OrderEntity.builder()
+                .id(orderId)
+                .userId(userId)
+                .marketSymbol(symbol)
+                .side(side)
+                .type(type)
+                .price(FixedPoint.toDecimal(price, priceScale))
+                .quantity(FixedPoint.toDecimal(quantity, quantityScale))
+                .filled(FixedPoint.toDecimal(filled, quantityScale))
+                .quoteAmount(FixedPoint.toDecimal(quoteAmount, priceScale))
+                .quoteFilled(FixedPoint.toDecimal(quoteFilled, priceScale))
+                .build();
+        entity.restoreState();
+        return entity;
+    }
+}
@@ -1,18 +1,54 @@
 package com.remus.dwanjcex.disruptor.event;
 
-import lombok.Builder;
 import lombok.Data;
 
 import java.math.BigDecimal;
 
+/**
+ * 撮合产生的成交结果。
+ * 价格、数量和成交金额均为撮合引擎内部的定点数，持久化时再按精度转换为BigDecimal。
+ * 实例是 {@link DisruptorEvent} 中预分配的槽位，随事件一起复用：撮合线程原地填充，
+ * 下游处理器只能在处理该事件期间读取，不能持有引用。
+ */
 @Data
-@Builder
 public class TradeEvent {
     private String symbol;
-    private BigDecimal price;
-    private BigDecimal quantity;
-    private Long takerOrderId;
-    private Long makerOrderId;
-    private Long takerUserId;
-    private Long makerUserId;
+    private long price;
+    private long quantity;
+    private long quoteQuantity; // 成交金额 = 价格 * 数量，按价格精度向下取整
+    private int priceScale;
+    private int quantityScale;
+    private long takerOrderId;
+    private long makerOrderId;
+    private long takerUserId;
+    private long makerUserId;
+
+    /**
+     * 原地填充本槽位。
+     */
+    public void set(String symbol, long price, long quantity, long quoteQuantity, int priceScale, int quantityScale,
+                    long takerOrderId, long makerOrderId, long takerUserId, long makerUserId) {
+        this.symbol = symbol;
+        this.price = price;
+        this.quantity = quantity;
+        this.quoteQuantity = quoteQuantity;
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+        this.takerOrderId = takerOrderId;
+        this.makerOrderId = makerOrderId;
+        this.takerUserId = takerUserId;
+        this.makerUserId = makerUserId;
+    }
+
+    public BigDecimal priceAsDecimal() {
+        return BigDecimal.valueOf(price, priceScale);
+    }
+
+    public BigDecimal quantityAsDecimal() {
+        return BigDecimal.valueOf(quantity, quantityScale);
+    }
+
+    public BigDecimal quoteQuantityAsDecimal() {
+        return BigDecimal.valueOf(quoteQuantity, priceScale);
+    }
 }
@@ -0,0 +1,123 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持久化处理器的自适应批量控制：根据写出耗时和环形缓冲区积压调整批量大小，并把每次决策记录为指标。
+ * <p>
+ * 积压超过当前批量说明写出跟不上，批量翻倍以摊薄每次写出的固定开销；
+ * 没有积压时按 1/4 收缩 (但不低于本次实际写出的条目数)，让低成交量时的数据尽快落库；
+ * 有少量积压但单次写出超过目标耗时时小幅增长。批量始终在 [min, max] 之内，
+ * 另有最大延迟兜底：缓冲区中最早的数据等待超过该时间必定写出。
+ * <p>
+ * 只由所属处理器的线程调用，批量大小和积压用 volatile 供指标读取。
+ */
+public class AdaptiveBatchController {
+
+    /**
+     * 触发写出的原因。
+     */
+    public enum FlushTrigger {
+        /** 待写出条目达到当前批量 */
+        SIZE,
+        /** 最早的待写出条目等待超过最大延迟 */
+        DELAY
+    }
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final long targetFlushNanos;
+
+    private volatile int batchSize;
+    private volatile long backlog;
+
+    private final Map<FlushTrigger, Timer> flushTimers = new EnumMap<>(FlushTrigger.class);
+    private final DistributionSummary flushRows;
+    private final Counter grows;
+    private final Counter shrinks;
+
+    public AdaptiveBatchController(int minBatchSize, int maxBatchSize, long maxDelayMs, long targetFlushMs,
+                                   MeterRegistry registry, Tags tags) {
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.targetFlushNanos = TimeUnit.MILLISECONDS.toNanos(targetFlushMs);
+        // 从最小批量起步，有积压时翻倍增长很快就能到位
+        this.batchSize = minBatchSize;
+
+        Gauge.builder("cex.persistence.batch.size", this, c -> c.batchSize)
+                .description("持久化处理器当前的目标批量").tags(tags).register(registry);
+        Gauge.builder("cex.persistence.backlog", this, c -> c.backlog)
+                .description("最近一次观察到的环形缓冲区积压 (尚未被该处理器消费的事件数)").tags(tags).register(registry);
+        for (FlushTrigger trigger : FlushTrigger.values()) {
+            flushTimers.put(trigger, Timer.builder("cex.persistence.flush")
+                    .description("批量写出耗时").tags(tags).tag("trigger", trigger.name().toLowerCase())
+                    .register(registry));
+        }
+        this.flushRows = DistributionSummary.builder("cex.persistence.flush.rows")
+                .description("每次写出的条目数").tags(tags).register(registry);
+        this.grows = Counter.builder("cex.persistence.batch.adjustments")
+                .description("批量调整次数").tags(tags).tag("direction", "grow").register(registry);
+        this.shrinks = Counter.builder("cex.persistence.batch.adjustments")
+                .description("批量调整次数").tags(tags).tag("direction", "shrink").register(registry);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void observeBacklog(long backlog) {
+        this.backlog = backlog;
+    }
+
+    /**
+     * 当前缓冲区是否应当写出，不需要时返回 null。
+     *
+     * @param pending       待写出条目数
+     * @param oldestAgeMs   最早的待写出条目已等待的时间
+     */
+    public FlushTrigger triggerFor(int pending, long oldestAgeMs) {
+        if (pending >= batchSize) return FlushTrigger.SIZE;
+        if (oldestAgeMs >= maxDelayMs) return FlushTrigger.DELAY;
+        return null;
+    }
+
+    /**
+     * 记录一次写出并据此调整批量。
+     *
+     * @param backlog 写出时环形缓冲区中尚未被该处理器消费的事件数
+     */
+    public void onFlush(FlushTrigger trigger, int rows, long latencyNanos, long backlog) {
+        flushTimers.get(trigger).record(latencyNanos, TimeUnit.NANOSECONDS);
+        flushRows.record(rows);
+        this.backlog = backlog;
+
+        int current = batchSize;
+        int next = current;
+        if (backlog > current) {
+            next = current * 2;
+        } else if (backlog == 0) {
+            // 逐步收缩，且不低于本次实际写出的条目数：按批量写出 (rows >= current) 时说明到达量与批量相当，不收缩
+            next = Math.max(current - Math.max(1, current / 4), rows);
+        } else if (latencyNanos > targetFlushNanos) {
+            next = current + Math.max(1, current / 4);
+        }
+        next = Math.max(minBatchSize, Math.min(maxBatchSize, next));
+        if (next > current) {
+            grows.increment();
+        } else if (next < current) {
+            shrinks.increment();
+        }
+        batchSize = next;
+    }
+}
@@ -0,0 +1,277 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.EventHandler;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.spill.SpillQueue;
+import com.remus.dwanjcex.disruptor.spill.SpillStore;
+import com.remus.dwanjcex.wallet.mapper.PersistenceCheckpointMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * 持久化阶段各处理器的公共基类：逐个事件把要写出的数据收集到缓冲区，
+ * 由 {@link AdaptiveBatchController} 决定何时一次性写出 (达到自适应批量，或最早的数据等待超过最大延迟)。
+ * 流水线空闲时由管理器发布的心跳事件驱动延迟检查，数据不会因为没有新事件而滞留。
+ * <p>
+ * 各处理器在撮合之后并行消费同一事件，互不依赖，吞吐取决于最慢的一个而不是全部之和；
+ * 处理器越过某个事件时其数据未必已经写出，已写出的位置见 {@link #getFlushedSequence()} (供 {@link PersistenceGateHandler} 使用)。
+ * <p>
+ * 写库失败的批次转入溢写队列 ({@link SpillQueue})，由后台线程重试，处理器继续消费后续事件；
+ * 批次进入溢写文件即视为已写出。处理事件本身失败时处理器先写出缓冲区，该事件由流水线的异常处理器记录后跳过；
+ * 批次既无法落库也无法溢写时抛出 {@link StageHaltException} 停止本处理器。
+ * <p>
+ * 记录检查点的处理器在写出批次的同一事务中把检查点推进到批次最后一个事件的日志序号 ({@link #advanceCheckpoint})。
+ * 崩溃时还留在缓冲区中的数据没有检查点，启动时由重建流程把检查点之后的日志重新撮合并交给 {@link #replay} 补写。
+ *
+ * @param <B> 一次写出的批次类型，须能按字段序列化为JSON (见 {@link SpillStore})
+ */
+@Slf4j
+public abstract class BatchingPersistenceHandler<B> implements EventHandler<DisruptorEvent> {
+
+    private static final long IDLE_CHECKPOINT_INTERVAL_MS = 1000;
+    private static final int REPLAY_BATCH_SIZE = 1000;
+
+    private final PersistenceCheckpointMapper checkpointMapper;
+    private String pipeline;
+    private AdaptiveBatchController batchController;
+    private Cursored cursor;
+    private SpillQueue<B> spillQueue;
+
+    // 缓冲区中最早一条数据的收集时间，缓冲区为空时为 0
+    private long firstPendingTime = 0;
+
+    // 该序号及之前所有事件的数据都已写出 (或已确定无需写出)
+    private volatile long flushedSequence = -1;
+    private volatile boolean pending;
+
+    // 已处理的最大日志序号，缓冲区中的数据都来自该序号及之前的事件
+    private long journalSeq;
+    // 已写出 (或进入溢写文件) 的数据所覆盖的日志序号，及最近一次推进检查点的时间
+    private long checkpointedJournalSeq;
+    private long lastCheckpointTime;
+
+    protected BatchingPersistenceHandler() {
+        this(null);
+    }
+
+    /**
+     * @param checkpointMapper 不为 null 时记录持久化检查点，崩溃后可从检查点之后补写
+     */
+    protected BatchingPersistenceHandler(PersistenceCheckpointMapper checkpointMapper) {
+        this.checkpointMapper = checkpointMapper;
+    }
+
+    /**
+     * 设置所在流水线的名称，检查点以流水线和处理器为键。须在 {@link #configureSpill} 之前调用。
+     */
+    public void setPipeline(String pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public boolean isCheckpointed() {
+        return checkpointMapper != null;
+    }
+
+    /**
+     * 设置批量控制器和所在流水线的环形缓冲区 (用于观察积压)。须在 Disruptor 启动前调用。
+     */
+    public void configureBatching(AdaptiveBatchController batchController, Cursored cursor) {
+        this.batchController = batchController;
+        this.cursor = cursor;
+    }
+
+    /**
+     * 打开该处理器在所在流水线上的溢写队列 (不支持溢写的处理器忽略)，打开失败时抛出异常。须在 Disruptor 启动前调用。
+     */
+    public void configureSpill(SpillStore spillStore, String pipeline) {
+        Class<B> batchType = batchType();
+        if (batchType != null) {
+            this.spillQueue = spillStore.open(pipeline, getClass().getSimpleName(), batchType, this::write);
+        }
+    }
+
+    @Override
+    public void onEvent(DisruptorEvent event, long sequence, boolean endOfBatch) {
+        trackJournalSeq(event);
+        try {
+            handle(event);
+        } catch (RuntimeException e) {
+            // 缓冲区中此前事件的数据 (及处理器撤销失败事件时产生的补偿数据) 仍然有效，先写出，
+            // 再由流水线的异常处理器记录并跳过该事件
+            log.error("{} 处理事件失败，写出已收集的数据: event={}", getClass().getSimpleName(), event, e);
+            if (pendingCount() > 0) {
+                flush(takeBatch());
+            }
+            throw e;
+        }
+
+        int pendingCount = pendingCount();
+        if (pendingCount == 0) {
+            markFlushed(sequence);
+            checkpointIfIdle();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (firstPendingTime == 0) {
+            firstPendingTime = now;
+        }
+        long backlog = cursor.getCursor() - sequence;
+        batchController.observeBacklog(backlog);
+        AdaptiveBatchController.FlushTrigger trigger = batchController.triggerFor(pendingCount, now - firstPendingTime);
+        if (trigger != null) {
+            long start = System.nanoTime();
+            flush(takeBatch());
+            batchController.onFlush(trigger, pendingCount, System.nanoTime() - start, backlog);
+            markFlushed(sequence);
+        } else {
+            pending = true;
+        }
+    }
+
+    /**
+     * 写出一个批次：溢写队列中已有积压时排到队尾以保持顺序，否则直接写库，失败时转入溢写队列。
+     */
+    private void flush(B batch) {
+        String name = getClass().getSimpleName();
+        // 批次写库或进入溢写文件 (重启时先于补写重投) 后，其数据都不再需要补写
+        checkpointedJournalSeq = journalSeq;
+        lastCheckpointTime = System.currentTimeMillis();
+        try {
+            if (spillQueue != null && spillQueue.appendIfBacklogged(batch)) {
+                return;
+            }
+            try {
+                write(batch);
+                return;
+            } catch (Exception e) {
+                if (spillQueue == null) {
+                    log.error("{} 写出失败，丢弃该批次: {}", name, batch, e);
+                    return;
+                }
+                log.warn("{} 写出失败，批次转入溢写队列稍后重试: {}", name, e.toString());
+            }
+            spillQueue.append(batch);
+        } catch (IOException e) {
+            // 批次既没有落库也没有进入溢写文件，不能丢弃：停止本处理器
+            log.error("{} 写入溢写队列失败，处理器停止: {}", name, batch, e);
+            throw new StageHaltException(name + " 写入溢写队列失败", e);
+        }
+    }
+
+    /**
+     * 缓冲区为空而日志序号前进了 (其间的事件没有要写出的数据) 时，定期单独推进检查点，重启时补写不必从很早的位置开始。
+     */
+    private void checkpointIfIdle() {
+        if (checkpointMapper == null || journalSeq <= checkpointedJournalSeq) return;
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpointTime < IDLE_CHECKPOINT_INTERVAL_MS) return;
+        lastCheckpointTime = now;
+        try {
+            checkpointMapper.advance(pipeline, getClass().getSimpleName(), journalSeq);
+            checkpointedJournalSeq = journalSeq;
+        } catch (RuntimeException e) {
+            log.warn("{} 推进持久化检查点失败，稍后重试: {}", getClass().getSimpleName(), e.toString());
+        }
+    }
+
+    private void trackJournalSeq(DisruptorEvent event) {
+        // 心跳等不经过日志的事件序号为0
+        if (event.getJournalSeq() > journalSeq) {
+            journalSeq = event.getJournalSeq();
+        }
+    }
+
+    private void markFlushed(long sequence) {
+        firstPendingTime = 0;
+        pending = false;
+        flushedSequence = sequence;
+    }
+
+    /**
+     * 已写出的最大序号，可由任意线程读取。
+     */
+    public long getFlushedSequence() {
+        return flushedSequence;
+    }
+
+    /**
+     * 缓冲区中是否有等待写出的数据，可由任意线程读取。
+     */
+    public boolean hasPending() {
+        return pending;
+    }
+
+    /**
+     * 启动补写：处理一条从日志回放、已在重建的订单簿上撮合过的事件，缓冲区积累到一定数量时直接写出。
+     * 与线上一样，处理失败的事件记录后跳过；写出失败时抛出异常 (补写不经过溢写队列)。
+     * 只能在没有接入流水线的处理器实例上调用，全部事件处理完后须调用 {@link #finishReplay()}。
+     */
+    public void replay(DisruptorEvent event) {
+        trackJournalSeq(event);
+        try {
+            handle(event);
+        } catch (RuntimeException e) {
+            log.error("{} 补写时处理事件失败，跳过: event={}", getClass().getSimpleName(), event, e);
+        }
+        if (pendingCount() >= REPLAY_BATCH_SIZE) {
+            write(takeBatch());
+        }
+    }
+
+    /**
+     * 写出补写剩余的数据，并把检查点推进到最后一条回放的日志。
+     */
+    public void finishReplay() {
+        if (pendingCount() > 0) {
+            write(takeBatch());
+        } else {
+            advanceCheckpoint(journalSeq);
+        }
+    }
+
+    /**
+     * 缓冲区中数据所属的最大日志序号，由 {@link #takeBatch()} 记入批次，未启用日志时为0。
+     */
+    protected long journalSeq() {
+        return journalSeq;
+    }
+
+    /**
+     * 把本处理器的检查点推进到批次的日志序号，须在写出该批次数据的同一事务中调用。
+     * 不记录检查点或批次不带日志序号 (未启用日志，或升级前溢写的批次) 时不做任何事。
+     */
+    protected void advanceCheckpoint(long batchJournalSeq) {
+        if (checkpointMapper != null && batchJournalSeq > 0) {
+            checkpointMapper.advance(pipeline, getClass().getSimpleName(), batchJournalSeq);
+        }
+    }
+
+    /**
+     * 把一个事件中需要写出的数据收集到缓冲区。
+     */
+    protected abstract void handle(DisruptorEvent event);
+
+    /**
+     * 缓冲区中待写出的条目数。
+     */
+    protected abstract int pendingCount();
+
+    /**
+     * 取出缓冲区中的数据作为一个批次并清空缓冲区。
+     */
+    protected abstract B takeBatch();
+
+    /**
+     * 写出一个批次。可能在溢写重试线程上执行，不得访问处理器的缓冲区。
+     */
+    protected abstract void write(B batch);
+
+    /**
+     * 批次类型，用于从溢写文件还原批次；返回 null 表示不溢写，写出失败的批次直接丢弃。
+     */
+    protected Class<B> batchType() {
+        return null;
+    }
+}
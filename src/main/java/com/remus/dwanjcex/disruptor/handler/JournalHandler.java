@@ -0,0 +1,100 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.disruptor.journal.JournalWriter;
+import com.remus.dwanjcex.disruptor.service.HotPathWaitStrategy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 日志阶段，位于撮合之前。
+ * 把每条下单/撤单指令追加到本流水线的内存映射日志中，并把日志序号写入事件，
+ * 重启时可在最近的快照之上回放日志尾部，精确还原订单簿。
+ * <p>
+ * 写入失败时抛出异常，由流水线的异常处理器停止本阶段：未记入日志的指令不得进入撮合，
+ * 否则重启回放得到的订单簿与线上不一致。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class JournalHandler implements EventHandler<DisruptorEvent>, LifecycleAware {
+
+    @Getter
+    private final boolean enabled;
+    private final Path baseDirectory;
+    private final int segmentSize;
+    private final boolean fsync;
+
+    private JournalWriter writer;
+
+    public JournalHandler(@Value("${cex.journal.enabled:true}") boolean enabled,
+                          @Value("${cex.journal.dir:data/journal}") String baseDirectory,
+                          @Value("${cex.journal.segment-size-mb:64}") int segmentSizeMb,
+                          @Value("${cex.journal.fsync:false}") boolean fsync) {
+        this.enabled = enabled;
+        this.baseDirectory = Paths.get(baseDirectory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 打开指定流水线的日志目录，须在 Disruptor 启动前调用。
+     */
+    public void open(String pipeline) throws IOException {
+        this.writer = new JournalWriter(getDirectory(pipeline), segmentSize);
+    }
+
+    public Path getDirectory(String pipeline) {
+        return baseDirectory.resolve(pipeline);
+    }
+
+    /**
+     * 已写入的最后一条日志序号。
+     */
+    public long getLastSequence() {
+        return writer.getLastSequence();
+    }
+
+    @Override
+    public void onEvent(DisruptorEvent event, long sequence, boolean endOfBatch) throws IOException {
+        try {
+            // 心跳不是指令，不写入日志，也不参与回放；无类型的事件 (发布时填充失败的槽位) 同样跳过
+            if (event.getType() == null) {
+                log.warn("跳过无类型的事件，不写入日志: sequence={}", sequence);
+            } else if (event.getType() != EventType.HEARTBEAT) {
+                event.setJournalSeq(writer.append(event));
+            }
+            if (fsync && endOfBatch) {
+                writer.force();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("写入日志失败，流水线停止: dir={}, event={}", writer.getDirectory(), event, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void onStart() {
+        // busy-spin 流水线上只有日志和撮合线程忙等
+        HotPathWaitStrategy.markCurrentThread();
+    }
+
+    @Override
+    public void onShutdown() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("关闭日志失败: dir={}", writer.getDirectory(), e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lmax.disruptor.EventHandler;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.OrderBookUpdate;
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Scope;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 行情发布阶段，与各持久化处理器并行消费撮合结果。
+ * <p>
+ * 撮合线程只产出不可变的 OrderBookUpdate，所有 JSON 序列化和 Redis 读写都在这里完成，
+ * Redis 变慢或不可用只会让本阶段落后，不会阻塞撮合。
+ * <p>
+ * 活跃订单以哈希 orderbook:orders:{symbol} (field 为订单ID，value 为订单JSON) 增量维护，
+ * 同一批次内的 HSET/HDEL 与深度快照、增量推送合并到一次 Redis pipeline 中提交。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class MarketDataHandler implements EventHandler<DisruptorEvent> {
+
+    public static final String ACTIVE_ORDERS_KEY_PREFIX = "orderbook:orders:";
+    // 活跃订单哈希已包含的最后一条日志序号，重建时从其后开始回放日志
+    public static final String ACTIVE_ORDERS_SEQ_KEY_PREFIX = "orderbook:orders:seq:";
+    // 单个批次内累积的订单变更达到该数量时提前提交，避免批次过大
+    private static final int MAX_PENDING_ORDER_CHANGES = 1000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    // 只由本阶段的消费线程使用
+    private final PublishBatch batch = new PublishBatch();
+
+    public MarketDataHandler(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void onEvent(DisruptorEvent event, long sequence, boolean endOfBatch) {
+        List<OrderBookUpdate> updates = event.getBookUpdates();
+        if (updates != null) {
+            for (OrderBookUpdate update : updates) {
+                batch.stage(update);
+            }
+        }
+        if (!batch.isEmpty() && (endOfBatch || batch.orderChanges >= MAX_PENDING_ORDER_CHANGES)) {
+            batch.execute();
+        }
+    }
+
+    /**
+     * 立即发布一次订单簿变更 (用于启动时预热)，不经过消费线程的批次缓冲，可由任意线程调用。
+     */
+    public void publish(OrderBookUpdate update) {
+        PublishBatch single = new PublishBatch();
+        single.stage(update);
+        single.execute();
+    }
+
+    /**
+     * 一个批次内待提交的 Redis 写入。
+     * 深度快照按交易对只保留最新一份；增量按顺序全部推送；订单变更按订单ID去重，后到的覆盖先到的。
+     */
+    private final class PublishBatch {
+
+        private final Map<String, OrderBookUpdate> latestUpdates = new LinkedHashMap<>();
+        private final List<OrderBookUpdate> deltaUpdates = new ArrayList<>();
+        private final Map<String, Map<String, String>> orderUpserts = new HashMap<>();
+        private final Map<String, Set<String>> orderRemovals = new HashMap<>();
+        private int orderChanges = 0;
+
+        void stage(OrderBookUpdate update) {
+            String symbol = update.getSymbol();
+            latestUpdates.put(symbol, update);
+            if (update.getDelta() != null) {
+                deltaUpdates.add(update);
+            }
+
+            Map<String, String> upserts = orderUpserts.computeIfAbsent(symbol, k -> new HashMap<>());
+            Set<String> removals = orderRemovals.computeIfAbsent(symbol, k -> new LinkedHashSet<>());
+            for (OrderEntity order : update.getUpsertedOrders()) {
+                String field = String.valueOf(order.getId());
+                try {
+                    upserts.put(field, objectMapper.writeValueAsString(order));
+                    removals.remove(field);
+                    orderChanges++;
+                } catch (JsonProcessingException e) {
+                    log.error("序列化活跃订单失败: symbol={}, orderId={}", symbol, order.getId(), e);
+                }
+            }
+            for (Long orderId : update.getRemovedOrderIds()) {
+                String field = String.valueOf(orderId);
+                upserts.remove(field);
+                removals.add(field);
+                orderChanges++;
+            }
+        }
+
+        boolean isEmpty() {
+            return latestUpdates.isEmpty() && orderChanges == 0;
+        }
+
+        /**
+         * 以一次 pipeline 提交整个批次。失败时丢弃行情推送 (客户端会因增量序号不连续而重新获取快照)，
+         * 但保留订单变更，留待下一次提交重试，避免哈希中残留已离开订单簿的订单。
+         */
+        void execute() {
+            try {
+                Map<String, String[]> snapshotsJson = new LinkedHashMap<>();
+                for (OrderBookUpdate update : latestUpdates.values()) {
+                    snapshotsJson.put(update.getSymbol(), new String[]{
+                            objectMapper.writeValueAsString(update.getDepth()),
+                            objectMapper.writeValueAsString(update.getSequencedSnapshot())});
+                }
+                List<String[]> deltasJson = new ArrayList<>(deltaUpdates.size());
+                for (OrderBookUpdate update : deltaUpdates) {
+                    deltasJson.add(new String[]{update.getSymbol(), objectMapper.writeValueAsString(update.getDelta())});
+                }
+
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    writeBatch((StringRedisConnection) connection, snapshotsJson, deltasJson);
+                    return null;
+                });
+                orderUpserts.clear();
+                orderRemovals.clear();
+                orderChanges = 0;
+            } catch (Exception e) {
+                log.error("发布订单簿变更到Redis失败，订单变更将在下一批次重试: symbols={}", latestUpdates.keySet(), e);
+            } finally {
+                latestUpdates.clear();
+                deltaUpdates.clear();
+            }
+        }
+
+        private void writeBatch(StringRedisConnection connection, Map<String, String[]> snapshotsJson, List<String[]> deltasJson) {
+            // 带序号的快照先于增量写入，客户端以快照序号为起点应用后续增量
+            snapshotsJson.forEach((symbol, json) -> {
+                connection.set("orderbook:display:snapshot:" + symbol, json[0]);
+                connection.publish("channel:orderbook:" + symbol, json[0]);
+                connection.set("orderbook:depth:snapshot:" + symbol, json[1]);
+            });
+            for (String[] delta : deltasJson) {
+                connection.publish("channel:depth:" + delta[0], delta[1]);
+            }
+            // 订单变更与日志序号在同一个事务中提交，保证哈希内容与序号严格对应
+            connection.multi();
+            orderUpserts.forEach((symbol, upserts) -> {
+                if (!upserts.isEmpty()) {
+                    connection.hMSet(ACTIVE_ORDERS_KEY_PREFIX + symbol, upserts);
+                }
+            });
+            orderRemovals.forEach((symbol, removals) -> {
+                if (!removals.isEmpty()) {
+                    connection.hDel(ACTIVE_ORDERS_KEY_PREFIX + symbol, removals.toArray(new String[0]));
+                }
+            });
+            latestUpdates.forEach((symbol, update) -> {
+                if (update.getJournalSeq() > 0) {
+                    connection.set(ACTIVE_ORDERS_SEQ_KEY_PREFIX + symbol, String.valueOf(update.getJournalSeq()));
+                }
+            });
+            connection.exec();
+        }
+    }
+}
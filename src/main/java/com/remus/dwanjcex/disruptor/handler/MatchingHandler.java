@@ -1,103 +1,112 @@
 package com.remus.dwanjcex.disruptor.handler;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
 import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.OrderBookUpdate;
+import com.remus.dwanjcex.disruptor.service.CpuAffinity;
+import com.remus.dwanjcex.disruptor.service.HotPathWaitStrategy;
+import com.remus.dwanjcex.engine.EngineOrder;
 import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.OrderBookFactory;
 import com.remus.dwanjcex.engine.strategy.MatchStrategy;
 import com.remus.dwanjcex.engine.strategy.MatchStrategyFactory;
 import com.remus.dwanjcex.wallet.entity.OrderEntity;
 import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderBookDeltaDto;
 import com.remus.dwanjcex.wallet.entity.dto.OrderBookLevel;
 import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Scope;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
 @Scope("prototype")
-public class MatchingHandler implements EventHandler<DisruptorEvent> {
+public class MatchingHandler implements EventHandler<DisruptorEvent>, LifecycleAware {
 
     @Getter
     private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
-    private final StringRedisTemplate redisTemplate;
-    private final ObjectMapper objectMapper;
     private final MatchStrategyFactory strategyFactory;
+    private final OrderBookFactory orderBookFactory;
+
+    // 自上次产出变更结果以来订单簿发生变化的交易对
+    private final Set<String> changedSymbols = new LinkedHashSet<>();
+
+    // 撮合线程启动时要绑定的CPU，为 null 时不绑定。须在 Disruptor 启动前设置
+    @Setter
+    private String cpuAffinity;
 
     private long lastSnapshotTime = 0;
     private static final long SNAPSHOT_INTERVAL_MS = 100;
 
-    public MatchingHandler(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, MatchStrategyFactory strategyFactory) {
-        this.redisTemplate = redisTemplate;
-        this.objectMapper = objectMapper;
+    public MatchingHandler(MatchStrategyFactory strategyFactory, OrderBookFactory orderBookFactory) {
         this.strategyFactory = strategyFactory;
+        this.orderBookFactory = orderBookFactory;
     }
 
     @Override
     public void onEvent(DisruptorEvent event, long sequence, boolean endOfBatch) {
         String symbolToUpdate = null;
-        switch (event.getType()) {
-            case PLACE_ORDER:
-                symbolToUpdate = handlePlaceOrder(event);
-                break;
-            case CANCEL_ORDER:
-                symbolToUpdate = handleCancelOrder(event);
-                break;
+        // 无类型的事件 (发布时填充失败的槽位) 不做撮合，但仍按批次结束产出已累积的变更
+        if (event.getType() != null) {
+            switch (event.getType()) {
+                case PLACE_ORDER:
+                    symbolToUpdate = handlePlaceOrder(event);
+                    break;
+                case CANCEL_ORDER:
+                    symbolToUpdate = handleCancelOrder(event);
+                    break;
+                case REMOVE_ORDER:
+                    symbolToUpdate = handleRemoveOrder(event);
+                    break;
+            }
         }
-
         if (symbolToUpdate != null) {
-            OrderBook orderBook = books.get(symbolToUpdate);
-            if (orderBook != null) {
-                long now = System.currentTimeMillis();
-                if (endOfBatch || (now - lastSnapshotTime) >= SNAPSHOT_INTERVAL_MS) {
-                    updateSnapshotAndPublish(symbolToUpdate, orderBook);
-                    lastSnapshotTime = now;
+            changedSymbols.add(symbolToUpdate);
+        }
+
+        if (!changedSymbols.isEmpty()) {
+            long now = System.currentTimeMillis();
+            if (endOfBatch || (now - lastSnapshotTime) >= SNAPSHOT_INTERVAL_MS) {
+                for (String symbol : changedSymbols) {
+                    OrderBook orderBook = books.get(symbol);
+                    if (orderBook != null) {
+                        event.addBookUpdate(buildUpdate(symbol, orderBook));
+                    }
                 }
+                changedSymbols.clear();
+                lastSnapshotTime = now;
             }
         }
     }
 
-    public void removeOrder(String symbol, Long orderId) {
-        log.warn("收到强制移除指令，从内存订单簿中移除订单: {}", orderId);
-        OrderBook orderBook = books.get(symbol);
-        if (orderBook != null) {
-            boolean removed = orderBook.remove(orderId);
-            if (removed) {
-                log.info("成功从内存中移除僵尸订单: {}", orderId);
-                updateSnapshotAndPublish(symbol, orderBook);
-            } else {
-                log.warn("尝试移除僵尸订单 {} 失败，可能已被移除。", orderId);
-            }
+    @Override
+    public void onStart() {
+        // busy-spin 流水线上只有日志和撮合线程忙等
+        HotPathWaitStrategy.markCurrentThread();
+        if (cpuAffinity != null) {
+            CpuAffinity.pinCurrentThread(cpuAffinity);
         }
     }
 
+    @Override
+    public void onShutdown() {
+    }
+
     private String handlePlaceOrder(DisruptorEvent event) {
         OrderDto dto = event.getPlaceOrder();
-        OrderBook orderBook = books.computeIfAbsent(dto.getSymbol(), OrderBook::new);
-        
-        OrderEntity order = OrderEntity.builder()
-                .id(event.getOrderId())
-                .userId(dto.getUserId())
-                .marketSymbol(dto.getSymbol())
-                .type(dto.getType())
-                .price(dto.getPrice())
-                .quantity(dto.getAmount())
-                .quoteAmount(dto.getQuoteAmount())
-                .side(dto.getSide())
-                .build();
-
-        MatchStrategy strategy = strategyFactory.getStrategy(order.getType());
-        strategy.match(order, orderBook, event);
-
+        OrderBook orderBook = books.computeIfAbsent(dto.getSymbol(), orderBookFactory::create);
+        applyPlaceOrder(orderBook, event);
         return dto.getSymbol();
     }
 
@@ -105,51 +114,120 @@ public class MatchingHandler implements EventHandler<DisruptorEvent> {
         CancelOrderDto dto = event.getCancelOrder();
         OrderBook orderBook = books.get(dto.getSymbol());
         if (orderBook == null) return null;
-        if (orderBook.remove(dto.getOrderId())) {
+        if (applyCancelOrder(orderBook, event)) {
             return dto.getSymbol();
         }
         return null;
     }
 
-    private void updateSnapshotAndPublish(String symbol, OrderBook orderBook) {
-        Map<String, List<OrderBookLevel>> displaySnapshot = orderBook.getOrderBookSnapshot();
-        try {
-            List<OrderEntity> activeOrders = new ArrayList<>(orderBook.getOrderMap().values());
-            String activeOrdersJson = objectMapper.writeValueAsString(activeOrders);
-            redisTemplate.opsForValue().set("orderbook:snapshot:" + symbol, activeOrdersJson);
+    private String handleRemoveOrder(DisruptorEvent event) {
+        CancelOrderDto dto = event.getCancelOrder();
+        OrderBook orderBook = books.get(dto.getSymbol());
+        if (orderBook == null) return null;
+        if (applyRemoveOrder(orderBook, event)) {
+            log.info("成功从内存中移除僵尸订单: {}", dto.getOrderId());
+            return dto.getSymbol();
+        }
+        log.warn("尝试移除僵尸订单 {} 失败，可能已被移除。", dto.getOrderId());
+        return null;
+    }
 
-            String displaySnapshotJson = objectMapper.writeValueAsString(displaySnapshot);
-            String displayKey = "orderbook:display:snapshot:" + symbol;
-            log.info("写入Redis Key: {}", displayKey);
-            redisTemplate.opsForValue().set(displayKey, displaySnapshotJson);
+    /**
+     * 在给定的订单簿上重放一条日志指令：只执行撮合，不产生持久化或行情副作用。
+     * 用于启动时在尚未安装的订单簿上回放日志尾部，撮合逻辑与线上处理完全一致。
+     */
+    public void replay(OrderBook orderBook, DisruptorEvent event) {
+        switch (event.getType()) {
+            case PLACE_ORDER:
+                applyPlaceOrder(orderBook, event);
+                break;
+            case CANCEL_ORDER:
+                applyCancelOrder(orderBook, event);
+                break;
+            case REMOVE_ORDER:
+                applyRemoveOrder(orderBook, event);
+                break;
+        }
+    }
+
+    private void applyPlaceOrder(OrderBook orderBook, DisruptorEvent event) {
+        OrderDto dto = event.getPlaceOrder();
+
+        // API边界：BigDecimal -> 引擎内部定点数
+        EngineOrder order = EngineOrder.builder()
+                .id(event.getOrderId())
+                .userId(dto.getUserId())
+                .symbol(dto.getSymbol())
+                .type(dto.getType())
+                .price(orderBook.toPriceLong(dto.getPrice()))
+                .quantity(orderBook.toQuantityLong(dto.getAmount()))
+                .quoteAmount(orderBook.toPriceLong(dto.getQuoteAmount()))
+                .side(dto.getSide())
+                .build();
 
-            redisTemplate.convertAndSend("channel:orderbook:" + symbol, displaySnapshotJson);
+        MatchStrategy strategy = strategyFactory.getStrategy(order.getType());
+        strategy.match(order, orderBook, event);
+        // 吃单撮合后的状态，持久化阶段据此更新订单
+        event.nextOrderSlot().set(order, orderBook.getPriceScale(), orderBook.getQuantityScale());
+        markApplied(orderBook, event);
+    }
 
-        } catch (JsonProcessingException e) {
-            log.error("序列化或发布订单簿快照失败: symbol={}", symbol, e);
+    private boolean applyCancelOrder(OrderBook orderBook, DisruptorEvent event) {
+        Long orderId = event.getCancelOrder().getOrderId();
+        // 被撤销挂单在撤销前的状态；不在订单簿中的订单 (已成交或已撤销) 没有快照
+        EngineOrder order = orderBook.getOrderMap().get(orderId);
+        if (order != null) {
+            event.nextOrderSlot().set(order, orderBook.getPriceScale(), orderBook.getQuantityScale());
         }
+        boolean removed = orderBook.remove(orderId);
+        markApplied(orderBook, event);
+        return removed;
+    }
+
+    /**
+     * 强制移除：只从订单簿中删除，不产生订单快照，持久化阶段不会把它当作撤单处理。
+     */
+    private boolean applyRemoveOrder(OrderBook orderBook, DisruptorEvent event) {
+        boolean removed = orderBook.remove(event.getCancelOrder().getOrderId());
+        markApplied(orderBook, event);
+        return removed;
     }
-    
-    public void rebuildCache(String symbol, OrderBook orderBook) {
-        log.info("正在为 {} 重建快照缓存...", symbol);
-        try {
-            Map<String, List<OrderBookLevel>> snapshot = orderBook.getOrderBookSnapshot();
-            String displaySnapshotJson = objectMapper.writeValueAsString(snapshot);
-            
-            // 1. 写入缓存
-            String displayKey = "orderbook:display:snapshot:" + symbol;
-            redisTemplate.opsForValue().set(displayKey, displaySnapshotJson);
-            
-            // 2. 【关键修复】发布通知，告知所有在线用户
-            redisTemplate.convertAndSend("channel:orderbook:" + symbol, displaySnapshotJson);
-            log.info("已发布 {} 的重建快照到频道。", symbol);
-
-        } catch (JsonProcessingException e) {
-            log.error("预热订单簿显示快照到Redis失败: symbol={}", symbol, e);
+
+    private void markApplied(OrderBook orderBook, DisruptorEvent event) {
+        if (event.getJournalSeq() > 0) {
+            orderBook.setLastJournalSeq(event.getJournalSeq());
         }
     }
 
+    /**
+     * 在撮合线程上生成订单簿变更结果：只做内存拷贝，不做序列化和任何网络I/O。
+     */
+    private OrderBookUpdate buildUpdate(String symbol, OrderBook orderBook) {
+        OrderBookDeltaDto delta = orderBook.drainDelta();
+        Map<String, List<OrderBookLevel>> depth = orderBook.publishSnapshot();
+        List<OrderEntity> upsertedOrders = new ArrayList<>();
+        List<Long> removedOrderIds = new ArrayList<>();
+        orderBook.drainOrderChanges(
+                order -> upsertedOrders.add(order.toEntity(orderBook.getPriceScale(), orderBook.getQuantityScale())),
+                removedOrderIds::add);
+        return new OrderBookUpdate(symbol, orderBook.getPriceScale(), orderBook.getQuantityScale(),
+                delta, depth, orderBook.toSequencedSnapshot(depth),
+                upsertedOrders, removedOrderIds, orderBook.getLastJournalSeq());
+    }
+
+    /**
+     * 安装从快照重建的订单簿，并返回其初始的变更结果供行情阶段发布。须在该交易对开始处理事件前调用。
+     */
+    public OrderBookUpdate installRebuiltBook(String symbol, OrderBook orderBook) {
+        books.put(symbol, orderBook);
+        return buildUpdate(symbol, orderBook);
+    }
+
+    /**
+     * 读取最近一次发布的深度快照，可由任意线程调用。
+     */
     public Map<String, List<OrderBookLevel>> getOrderBookSnapshot(String symbol) {
-        return null;
+        OrderBook orderBook = books.get(symbol);
+        return orderBook == null ? null : orderBook.getPublishedSnapshot();
     }
 }
@@ -0,0 +1,107 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.OrderSnapshot;
+import com.remus.dwanjcex.disruptor.service.DisruptorManager;
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import com.remus.dwanjcex.wallet.mapper.OrderMapper;
+import com.remus.dwanjcex.wallet.mapper.PersistenceCheckpointMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单状态写入：按撮合阶段附带的订单快照计算成交进度和状态迁移，批量更新 orders 表，无需回查数据库。
+ * 更新按最终状态覆盖，与检查点在同一事务中提交。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class OrderStatePersistenceHandler extends BatchingPersistenceHandler<OrderStatePersistenceHandler.OrderBatch> {
+
+    private final OrderMapper orderMapper;
+    private final DisruptorManager disruptorManager;
+    private final TransactionTemplate transactionTemplate;
+
+    // 同一订单在一批中多次变化时只保留最新状态
+    private final Map<Long, OrderEntity> pendingOrderUpdates = new LinkedHashMap<>();
+
+    public OrderStatePersistenceHandler(OrderMapper orderMapper, DisruptorManager disruptorManager,
+                                        PersistenceCheckpointMapper checkpointMapper, PlatformTransactionManager transactionManager) {
+        super(checkpointMapper);
+        this.orderMapper = orderMapper;
+        this.disruptorManager = disruptorManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    protected void handle(DisruptorEvent event) {
+        if (event.getType() == null) return;
+        switch (event.getType()) {
+            case PLACE_ORDER:
+                // 快照槽位随事件复用，只能在本次处理中读取
+                for (int i = 0; i < event.getOrderSnapshotCount(); i++) {
+                    OrderSnapshot snapshot = event.getOrderSnapshot(i);
+                    // 未成交的新订单与入库时的状态一致，无需更新
+                    if (snapshot.getOrderId() == event.getOrderId() && event.getTradeCount() == 0) continue;
+                    pendingOrderUpdates.put(snapshot.getOrderId(), snapshot.toEntity());
+                }
+                break;
+            case CANCEL_ORDER:
+                if (event.getOrderSnapshotCount() == 0) {
+                    log.info("撤单时订单 {} 已不在订单簿中，忽略。", event.getCancelOrder().getOrderId());
+                }
+                break;
+        }
+        PersistenceEvents.forEachClosedOrder(event, (snapshot, reason) -> closeOrder(event, snapshot, reason));
+    }
+
+    private void closeOrder(DisruptorEvent event, OrderSnapshot snapshot, String reason) {
+        OrderEntity order = pendingOrderUpdates.get(snapshot.getOrderId());
+        if (order == null) {
+            order = snapshot.toEntity();
+        }
+        order.cancel();
+        pendingOrderUpdates.put(order.getId(), order);
+
+        if (event.isSelfTradeCancel() && order.getId().equals(event.getOrderId())) {
+            log.warn("通过DisruptorManager强制从内存中移除订单: {}", order.getId());
+            disruptorManager.publishRemoveOrder(order.getMarketSymbol(), order.getId());
+        }
+    }
+
+    @Override
+    protected int pendingCount() {
+        return pendingOrderUpdates.size();
+    }
+
+    @Override
+    protected OrderBatch takeBatch() {
+        OrderBatch batch = new OrderBatch(journalSeq(), new ArrayList<>(pendingOrderUpdates.values()));
+        pendingOrderUpdates.clear();
+        return batch;
+    }
+
+    @Override
+    protected void write(OrderBatch batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            advanceCheckpoint(batch.journalSeq());
+            orderMapper.updateBatch(batch.orders());
+            log.info("批量更新 {} 个订单状态。", batch.orders().size());
+        });
+    }
+
+    @Override
+    protected Class<OrderBatch> batchType() {
+        return OrderBatch.class;
+    }
+
+    public record OrderBatch(long journalSeq, List<OrderEntity> orders) {}
+}
@@ -0,0 +1,93 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.OrderSnapshot;
+import com.remus.dwanjcex.disruptor.event.TradeEvent;
+import com.remus.dwanjcex.wallet.entity.Market;
+import com.remus.dwanjcex.wallet.mapper.AppliedBatchMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+
+/**
+ * 持久化各处理器共用的撮合结果解读，保证它们对同一事件得出一致的结论。
+ */
+@Slf4j
+final class PersistenceEvents {
+
+    private PersistenceEvents() {
+    }
+
+    /**
+     * 事件中指定订单的快照，不存在时返回 null。
+     */
+    static OrderSnapshot snapshotOf(DisruptorEvent event, long orderId) {
+        for (int i = 0; i < event.getOrderSnapshotCount(); i++) {
+            OrderSnapshot snapshot = event.getOrderSnapshot(i);
+            if (snapshot.getOrderId() == orderId) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 依次给出本事件中被撤销 (需要解冻剩余资金并关闭) 的订单及原因：
+     * 用户撤单、自成交策略撤销的挂单、因自成交或深度不足而关闭的吃单。
+     */
+    static void forEachClosedOrder(DisruptorEvent event, BiConsumer<OrderSnapshot, String> consumer) {
+        switch (event.getType()) {
+            case CANCEL_ORDER:
+                // 订单已不在订单簿中 (已完全成交或已撤销) 时没有快照，也没有可解冻的剩余资金
+                if (event.getOrderSnapshotCount() > 0) {
+                    consumer.accept(event.getOrderSnapshot(0), "Cancelled by user");
+                }
+                break;
+            case PLACE_ORDER:
+                if (event.getCancelledOrderIds() != null) {
+                    for (Long cancelledOrderId : event.getCancelledOrderIds()) {
+                        OrderSnapshot snapshot = snapshotOf(event, cancelledOrderId);
+                        if (snapshot == null) {
+                            log.warn("自成交撤销的挂单 {} 缺少撮合快照，忽略。", cancelledOrderId);
+                        } else {
+                            consumer.accept(snapshot, "Cancelled by self-trade");
+                        }
+                    }
+                }
+                OrderSnapshot taker = snapshotOf(event, event.getOrderId());
+                if (taker == null) break;
+                if (event.isSelfTradeCancel()) {
+                    consumer.accept(taker, "Self-trade detected");
+                } else if (taker.getType() == OrderTypes.OrderType.MARKET && !taker.isFullyFilled()) {
+                    consumer.accept(taker, "Market order closed due to insufficient depth");
+                }
+                break;
+        }
+    }
+
+    /**
+     * 在当前事务中登记批次，返回 false 表示该批次已经写入过 (溢写队列在提交之后、记录重试位置之前中断时会重投)。
+     * 批次必须带有ID，否则无法保证重投时不重复写入，直接抛出异常使本次写入失败。
+     */
+    static boolean markApplied(AppliedBatchMapper appliedBatchMapper, String batchId) {
+        if (batchId == null) {
+            throw new IllegalStateException("持久化批次缺少批次ID，无法保证重投幂等");
+        }
+        return appliedBatchMapper.markApplied(batchId) > 0;
+    }
+
+    /**
+     * 一笔成交在持久化边界上的金额 (引擎定点数 -> BigDecimal) 及双方手续费。
+     */
+    record TradeAmounts(BigDecimal price, BigDecimal quantity, BigDecimal cost, BigDecimal takerFee, BigDecimal makerFee) {
+
+        static TradeAmounts of(TradeEvent trade, Market market) {
+            BigDecimal quantity = trade.quantityAsDecimal();
+            BigDecimal cost = trade.quoteQuantityAsDecimal();
+            return new TradeAmounts(trade.priceAsDecimal(), quantity, cost,
+                    cost.multiply(market.getTakerFeeRate()), quantity.multiply(market.getMakerFeeRate()));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.lmax.disruptor.EventHandler;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.websocket.event.OrderCancelNotificationEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 持久化之后的汇合阶段：在所有持久化处理器都越过某个事件后处理它，
+ * 并等到它们都已写出该事件 (见 {@link BatchingPersistenceHandler#getFlushedSequence()}) 才执行依赖写入结果的后续动作。
+ * 目前负责向用户推送订单被系统撤销的通知 (订单状态和解冻都已落库或进入溢写队列后再通知)。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class PersistenceGateHandler implements EventHandler<DisruptorEvent> {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private BatchingPersistenceHandler<?>[] upstream = new BatchingPersistenceHandler<?>[0];
+
+    // 按序号排列、等待上游写出的通知
+    private final Deque<PendingNotification> pendingNotifications = new ArrayDeque<>();
+    private volatile boolean waiting;
+
+    public PersistenceGateHandler(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 设置要等待的持久化处理器。须在 Disruptor 启动前调用。
+     */
+    public void setUpstream(BatchingPersistenceHandler<?>... upstream) {
+        this.upstream = upstream;
+    }
+
+    @Override
+    public void onEvent(DisruptorEvent event, long sequence, boolean endOfBatch) {
+        if (event.getType() == null) return;
+        try {
+            PersistenceEvents.forEachClosedOrder(event, (snapshot, reason) -> pendingNotifications.add(
+                    new PendingNotification(sequence, snapshot.getUserId(), snapshot.getOrderId(), reason)));
+
+            long durable = durableSequence();
+            while (!pendingNotifications.isEmpty() && pendingNotifications.peekFirst().sequence() <= durable) {
+                PendingNotification notification = pendingNotifications.pollFirst();
+                eventPublisher.publishEvent(new OrderCancelNotificationEvent(this,
+                        notification.userId(), notification.orderId(), notification.reason()));
+            }
+        } catch (Exception e) {
+            log.error("PersistenceGateHandler 处理事件失败: event={}", event, e);
+        }
+        waiting = !pendingNotifications.isEmpty();
+    }
+
+    /**
+     * 流水线是否有尚未写出的数据或尚未发出的通知，需要心跳事件推动。可由任意线程调用。
+     */
+    public boolean needsHeartbeat() {
+        if (waiting) return true;
+        for (BatchingPersistenceHandler<?> handler : upstream) {
+            if (handler.hasPending()) return true;
+        }
+        return false;
+    }
+
+    private long durableSequence() {
+        long durable = Long.MAX_VALUE;
+        for (BatchingPersistenceHandler<?> handler : upstream) {
+            durable = Math.min(durable, handler.getFlushedSequence());
+        }
+        return durable;
+    }
+
+    private record PendingNotification(long sequence, Long userId, Long orderId, String reason) {}
+}
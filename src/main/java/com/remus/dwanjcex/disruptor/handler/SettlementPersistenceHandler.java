@@ -0,0 +1,203 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.TradeEvent;
+import com.remus.dwanjcex.exception.BusinessException;
+import com.remus.dwanjcex.wallet.account.AccountEngine;
+import com.remus.dwanjcex.wallet.account.BalanceChange;
+import com.remus.dwanjcex.wallet.account.FeeAccumulator;
+import com.remus.dwanjcex.wallet.account.LedgerWriter;
+import com.remus.dwanjcex.wallet.entity.LedgerLog;
+import com.remus.dwanjcex.wallet.entity.Market;
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import com.remus.dwanjcex.wallet.mapper.AppliedBatchMapper;
+import com.remus.dwanjcex.wallet.mapper.PersistenceCheckpointMapper;
+import com.remus.dwanjcex.wallet.services.MarketService;
+import com.remus.dwanjcex.wallet.services.WalletService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 资金结算写入：在内存账户上结算成交、解冻被撤销订单的剩余资金并累加手续费，
+ * 再把余额差额、账户流水和手续费收入在同一个事务中批量写库。余额按差额更新、流水和手续费为插入，
+ * 因此每个批次带有唯一ID并在同一事务中登记，溢写队列重投已提交的批次时跳过，不会重复入账。
+ * <p>
+ * 一笔成交的结算要么全部生效，要么全部撤销；结算失败时异常抛出，由基类写出已收集的数据后跳过该事件。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class SettlementPersistenceHandler extends BatchingPersistenceHandler<SettlementPersistenceHandler.SettlementBatch> {
+
+    private final WalletService walletService;
+    private final AccountEngine accountEngine;
+    private final LedgerWriter ledgerWriter;
+    private final FeeAccumulator feeAccumulator;
+    private final MarketService marketService;
+    private final AppliedBatchMapper appliedBatchMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // 已在内存账户生效、尚未写入数据库的余额变更
+    private final List<BalanceChange> pendingBalanceChanges = new ArrayList<>();
+
+    public SettlementPersistenceHandler(WalletService walletService, AccountEngine accountEngine, LedgerWriter ledgerWriter,
+                                        FeeAccumulator feeAccumulator, MarketService marketService,
+                                        AppliedBatchMapper appliedBatchMapper, PersistenceCheckpointMapper checkpointMapper,
+                                        PlatformTransactionManager transactionManager) {
+        super(checkpointMapper);
+        this.walletService = walletService;
+        this.accountEngine = accountEngine;
+        this.ledgerWriter = ledgerWriter;
+        this.feeAccumulator = feeAccumulator;
+        this.marketService = marketService;
+        this.appliedBatchMapper = appliedBatchMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    protected void handle(DisruptorEvent event) {
+        if (event.getType() == null) return;
+        // 成交槽位随事件复用，只能在本次处理中读取
+        for (int i = 0; i < event.getTradeCount(); i++) {
+            settleTrade(event.getTrade(i));
+        }
+        PersistenceEvents.forEachClosedOrder(event, (snapshot, reason) -> unfreezeRemainingFunds(snapshot.toEntity(), reason));
+    }
+
+    private void settleTrade(TradeEvent trade) {
+        Market market = marketService.getMarket(trade.getSymbol());
+        if (market == null) return;
+
+        PersistenceEvents.TradeAmounts amounts = PersistenceEvents.TradeAmounts.of(trade, market);
+        String reason = "trade:" + trade.getTakerOrderId() + "/" + trade.getMakerOrderId();
+
+        // 结算只在内存账户上执行，余额变更随本批数据一起写库。一笔成交的各项变更要么全部生效，要么全部撤销
+        List<BalanceChange> legs = new ArrayList<>(4);
+        try {
+            addLeg(legs, accountEngine.reduceFrozen(trade.getTakerUserId(), market.getQuoteAsset(), amounts.cost(), reason));
+            addLeg(legs, accountEngine.reduceFrozen(trade.getMakerUserId(), market.getBaseAsset(), amounts.quantity(), reason));
+            addLeg(legs, accountEngine.settleCredit(trade.getTakerUserId(), market.getBaseAsset(), amounts.quantity().subtract(amounts.makerFee()), reason));
+            addLeg(legs, accountEngine.settleCredit(trade.getMakerUserId(), market.getQuoteAsset(), amounts.cost().subtract(amounts.takerFee()), reason));
+        } catch (RuntimeException e) {
+            revertLegs(legs, reason);
+            throw e;
+        }
+        legs.forEach(this::addBalanceChange);
+
+        // 手续费收入在内存中按时间桶累加，随本批数据一起写库
+        long now = System.currentTimeMillis();
+        feeAccumulator.accrue(market.getQuoteAsset(), "TAKER", amounts.takerFee(), trade.getTakerOrderId(), trade.getTakerUserId(), now);
+        feeAccumulator.accrue(market.getBaseAsset(), "MAKER", amounts.makerFee(), trade.getMakerOrderId(), trade.getMakerUserId(), now);
+    }
+
+    private static void addLeg(List<BalanceChange> legs, BalanceChange change) {
+        if (change != null) {
+            legs.add(change);
+        }
+    }
+
+    /**
+     * 按相反顺序撤销一笔成交中已生效的变更。原变更与补偿变更的流水一并写入 (余额差额相抵)，
+     * 其间同一账户上其他线程产生的流水仍能与之衔接。
+     */
+    private void revertLegs(List<BalanceChange> legs, String reason) {
+        for (int i = legs.size() - 1; i >= 0; i--) {
+            BalanceChange leg = legs.get(i);
+            addBalanceChange(leg);
+            addBalanceChange(accountEngine.revert(leg));
+        }
+        log.error("成交结算失败，已撤销其中已生效的 {} 项余额变更: {}", legs.size(), reason);
+    }
+
+    private void unfreezeRemainingFunds(OrderEntity order, String reason) {
+        Market market = marketService.getMarket(order.getMarketSymbol());
+        if (market == null) return;
+
+        if (order.getSide() == OrderTypes.Side.BUY) {
+            BigDecimal amountToUnfreeze;
+            if (order.getType() == OrderTypes.OrderType.LIMIT) {
+                BigDecimal remainingQty = order.getQuantity().subtract(order.getFilled());
+                amountToUnfreeze = order.getPrice().multiply(remainingQty).setScale(market.getPricePrecision(), RoundingMode.HALF_UP);
+            } else {
+                amountToUnfreeze = order.getQuoteAmount().subtract(order.getQuoteFilled());
+            }
+            if (amountToUnfreeze.compareTo(BigDecimal.ZERO) > 0) {
+                unfreeze(order.getUserId(), market.getQuoteAsset(), amountToUnfreeze, reason + ":" + order.getId());
+            }
+        } else {
+            BigDecimal remainingQty = order.getQuantity().subtract(order.getFilled());
+            if (remainingQty.compareTo(BigDecimal.ZERO) > 0) {
+                unfreeze(order.getUserId(), market.getBaseAsset(), remainingQty, reason + ":" + order.getId());
+            }
+        }
+    }
+
+    private void unfreeze(Long userId, String asset, BigDecimal amount, String ref) {
+        try {
+            addBalanceChange(accountEngine.unfreeze(userId, asset, amount, ref));
+        } catch (BusinessException e) {
+            log.warn("解冻失败，冻结余额不足: userId={}, asset={}, amount={}, ref={}", userId, asset, amount, ref);
+        }
+    }
+
+    private void addBalanceChange(BalanceChange change) {
+        if (change != null) {
+            pendingBalanceChanges.add(change);
+            ledgerWriter.add(change.ledger());
+        }
+    }
+
+    @Override
+    protected int pendingCount() {
+        return pendingBalanceChanges.size() + feeAccumulator.size();
+    }
+
+    @Override
+    protected SettlementBatch takeBatch() {
+        SettlementBatch batch = new SettlementBatch(UUID.randomUUID().toString(), journalSeq(), new ArrayList<>(pendingBalanceChanges), ledgerWriter.drain(), feeAccumulator.drain());
+        pendingBalanceChanges.clear();
+        return batch;
+    }
+
+    @Override
+    protected void write(SettlementBatch batch) {
+        // 内存账户上的变更已生效，写库失败时不回滚内存，批次由溢写队列重试直到落库
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!PersistenceEvents.markApplied(appliedBatchMapper, batch.batchId())) {
+                log.warn("结算批次 {} 已写入过，跳过。", batch.batchId());
+                return;
+            }
+            advanceCheckpoint(batch.journalSeq());
+            if (!batch.balanceChanges().isEmpty()) {
+                walletService.persistBalances(batch.balanceChanges());
+                log.info("批量写入 {} 条余额变更。", batch.balanceChanges().size());
+            }
+            if (!batch.ledgers().isEmpty()) {
+                ledgerWriter.write(batch.ledgers());
+                log.info("批量插入 {} 条账户流水。", batch.ledgers().size());
+            }
+            if (batch.feeRows().size() > 0) {
+                feeAccumulator.write(batch.feeRows());
+                log.info("批量插入 {} 条手续费收入记录。", batch.feeRows().size());
+            }
+        });
+    }
+
+    @Override
+    protected Class<SettlementBatch> batchType() {
+        return SettlementBatch.class;
+    }
+
+    public record SettlementBatch(String batchId, long journalSeq, List<BalanceChange> balanceChanges, List<LedgerLog> ledgers,
+                                  FeeAccumulator.FeeRows feeRows) {}
+}
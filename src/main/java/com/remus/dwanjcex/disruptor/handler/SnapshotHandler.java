@@ -0,0 +1,161 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.lmax.disruptor.EventHandler;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.OrderBookUpdate;
+import com.remus.dwanjcex.disruptor.journal.JournalReader;
+import com.remus.dwanjcex.disruptor.snapshot.OrderBookSnapshotFile;
+import com.remus.dwanjcex.engine.EngineOrder;
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 快照阶段，与持久化、行情发布并行消费撮合结果。
+ * <p>
+ * 根据撮合线程产出的订单变更维护一份活跃订单的影子副本 (保持订单在订单簿中的先后顺序)，
+ * 定期把它写成二进制快照文件。撮合线程不参与快照的生成，也不会因此停顿。
+ * <p>
+ * 快照写出后，删除本流水线中已被所有交易对保留的最早快照覆盖的日志段，日志不会无限增长。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class SnapshotHandler implements EventHandler<DisruptorEvent> {
+
+    @Getter
+    private final boolean enabled;
+    private final Path baseDirectory;
+    private final long intervalMs;
+    private final int retain;
+
+    // 所在流水线的日志目录，为 null 时不清理日志。须在 Disruptor 启动前设置
+    @Setter
+    private Path journalDirectory;
+
+    private final Map<String, Shadow> shadows = new HashMap<>();
+    // 启动重建时由其他线程提交的初始状态，在本阶段的线程上应用
+    private final Queue<OrderBookUpdate> seeds = new ConcurrentLinkedQueue<>();
+    private long lastSnapshotTime = System.currentTimeMillis();
+
+    public SnapshotHandler(@Value("${cex.snapshot.enabled:true}") boolean enabled,
+                           @Value("${cex.snapshot.dir:data/snapshot}") String baseDirectory,
+                           @Value("${cex.snapshot.interval-seconds:60}") long intervalSeconds,
+                           @Value("${cex.snapshot.retain:3}") int retain) {
+        this.enabled = enabled;
+        this.baseDirectory = Paths.get(baseDirectory);
+        this.intervalMs = intervalSeconds * 1000;
+        this.retain = retain;
+    }
+
+    public Path getDirectory(String symbol) {
+        return baseDirectory.resolve(symbol);
+    }
+
+    /**
+     * 提交重建后订单簿的初始状态，可由任意线程调用。
+     */
+    public void seed(OrderBookUpdate update) {
+        seeds.add(update);
+    }
+
+    @Override
+    public void onEvent(DisruptorEvent event, long sequence, boolean endOfBatch) {
+        OrderBookUpdate seed;
+        while ((seed = seeds.poll()) != null) {
+            apply(seed);
+        }
+        List<OrderBookUpdate> updates = event.getBookUpdates();
+        if (updates != null) {
+            for (OrderBookUpdate update : updates) {
+                apply(update);
+            }
+        }
+
+        // 持续有流量时可能很久都等不到批次末尾，因此每个事件都检查间隔
+        long now = System.currentTimeMillis();
+        if (now - lastSnapshotTime >= intervalMs) {
+            writeSnapshots();
+            pruneJournal();
+            lastSnapshotTime = now;
+        }
+    }
+
+    private void apply(OrderBookUpdate update) {
+        Shadow shadow = shadows.computeIfAbsent(update.getSymbol(), Shadow::new);
+        shadow.priceScale = update.getPriceScale();
+        shadow.quantityScale = update.getQuantityScale();
+        for (OrderEntity order : update.getUpsertedOrders()) {
+            // 已存在的订单原位更新，保持其在队列中的位置
+            shadow.orders.put(order.getId(), EngineOrder.fromEntity(order, update.getPriceScale(), update.getQuantityScale()));
+        }
+        for (Long orderId : update.getRemovedOrderIds()) {
+            shadow.orders.remove(orderId);
+        }
+        if (update.getJournalSeq() > shadow.journalSeq) {
+            shadow.journalSeq = update.getJournalSeq();
+            shadow.dirty = true;
+        }
+    }
+
+    private void writeSnapshots() {
+        for (Shadow shadow : shadows.values()) {
+            if (!shadow.dirty) continue;
+            try {
+                long start = System.currentTimeMillis();
+                Path file = OrderBookSnapshotFile.write(getDirectory(shadow.symbol), shadow.symbol, shadow.journalSeq,
+                        shadow.priceScale, shadow.quantityScale, shadow.orders.values(), retain);
+                shadow.dirty = false;
+                log.info("已写入订单簿快照: {}, {} 个活跃订单, 耗时 {} ms", file, shadow.orders.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("写入订单簿快照失败: symbol={}", shadow.symbol, e);
+            }
+        }
+    }
+
+    /**
+     * 删除所有交易对的最早保留快照都已包含的日志段。尚无快照的交易对需要从更早的位置回放，此时不清理。
+     */
+    private void pruneJournal() {
+        if (journalDirectory == null || shadows.isEmpty()) return;
+        try {
+            long upToSequence = Long.MAX_VALUE;
+            for (Shadow shadow : shadows.values()) {
+                upToSequence = Math.min(upToSequence, OrderBookSnapshotFile.oldestJournalSeq(getDirectory(shadow.symbol)));
+            }
+            if (upToSequence <= 0) return;
+            int deleted = JournalReader.deleteSegmentsUpTo(journalDirectory, upToSequence);
+            if (deleted > 0) {
+                log.info("已删除 {} 个已被快照覆盖的日志段: dir={}, journalSeq<={}", deleted, journalDirectory, upToSequence);
+            }
+        } catch (Exception e) {
+            log.error("清理日志失败: dir={}", journalDirectory, e);
+        }
+    }
+
+    private static final class Shadow {
+        private final String symbol;
+        private final LinkedHashMap<Long, EngineOrder> orders = new LinkedHashMap<>();
+        private long journalSeq;
+        private int priceScale;
+        private int quantityScale;
+        private boolean dirty;
+
+        private Shadow(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+/**
+ * 处理器认定继续处理后续事件会丢失数据时抛出 (例如批次既没有落库也没有进入溢写文件)，
+ * 流水线的异常处理器据此停止该阶段，而不是跳过出错的事件继续运行。
+ */
+public class StageHaltException extends IllegalStateException {
+
+    public StageHaltException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,77 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.TradeEvent;
+import com.remus.dwanjcex.wallet.entity.Market;
+import com.remus.dwanjcex.wallet.entity.Trade;
+import com.remus.dwanjcex.wallet.services.MarketService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Scope;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 成交行情发布：把成交推送到Redis的 ticker 频道并更新最新价，与数据库写入互不等待。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class TickerPublishHandler extends BatchingPersistenceHandler<List<Trade>> {
+
+    private final MarketService marketService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final List<Trade> pendingRedisPushes = new ArrayList<>();
+
+    public TickerPublishHandler(MarketService marketService, StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.marketService = marketService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void handle(DisruptorEvent event) {
+        // 成交槽位随事件复用，只能在本次处理中读取
+        for (int i = 0; i < event.getTradeCount(); i++) {
+            TradeEvent trade = event.getTrade(i);
+            Market market = marketService.getMarket(trade.getSymbol());
+            if (market == null) continue;
+            pendingRedisPushes.add(TradePersistenceHandler.toEntity(trade, PersistenceEvents.TradeAmounts.of(trade, market)));
+        }
+    }
+
+    @Override
+    protected int pendingCount() {
+        return pendingRedisPushes.size();
+    }
+
+    @Override
+    protected List<Trade> takeBatch() {
+        List<Trade> batch = new ArrayList<>(pendingRedisPushes);
+        pendingRedisPushes.clear();
+        return batch;
+    }
+
+    @Override
+    protected void write(List<Trade> batch) {
+        // 行情推送只关心最新状态，失败时不溢写重试
+        for (Trade trade : batch) {
+            publishToRedis(trade);
+        }
+    }
+
+    private void publishToRedis(Trade tradeEntity) {
+        try {
+            String payload = objectMapper.writeValueAsString(tradeEntity);
+            redisTemplate.convertAndSend("channel:ticker:" + tradeEntity.getMarketSymbol(), payload);
+            redisTemplate.opsForValue().set("last_price:" + tradeEntity.getMarketSymbol(), tradeEntity.getPrice().toPlainString());
+        } catch (Exception e) {
+            log.error("发布成交记录到Redis失败", e);
+        }
+    }
+}
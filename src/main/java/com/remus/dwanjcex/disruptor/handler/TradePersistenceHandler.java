@@ -0,0 +1,101 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.TradeEvent;
+import com.remus.dwanjcex.wallet.entity.Market;
+import com.remus.dwanjcex.wallet.entity.Trade;
+import com.remus.dwanjcex.wallet.mapper.AppliedBatchMapper;
+import com.remus.dwanjcex.wallet.mapper.PersistenceCheckpointMapper;
+import com.remus.dwanjcex.wallet.mapper.TradeMapper;
+import com.remus.dwanjcex.wallet.services.MarketService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 成交记录写入：把撮合产生的成交批量插入 trades 表。每个批次带有唯一ID，与成交在同一事务中登记，
+ * 溢写队列重投已提交的批次时跳过，不会重复插入成交。
+ */
+@Slf4j
+@Component
+@Scope("prototype")
+public class TradePersistenceHandler extends BatchingPersistenceHandler<TradePersistenceHandler.TradeBatch> {
+
+    private final TradeMapper tradeMapper;
+    private final AppliedBatchMapper appliedBatchMapper;
+    private final MarketService marketService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final List<Trade> pendingTrades = new ArrayList<>();
+
+    public TradePersistenceHandler(TradeMapper tradeMapper, AppliedBatchMapper appliedBatchMapper, MarketService marketService,
+                                   PersistenceCheckpointMapper checkpointMapper, PlatformTransactionManager transactionManager) {
+        super(checkpointMapper);
+        this.tradeMapper = tradeMapper;
+        this.appliedBatchMapper = appliedBatchMapper;
+        this.marketService = marketService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    protected void handle(DisruptorEvent event) {
+        // 成交槽位随事件复用，只能在本次处理中读取
+        for (int i = 0; i < event.getTradeCount(); i++) {
+            TradeEvent trade = event.getTrade(i);
+            Market market = marketService.getMarket(trade.getSymbol());
+            if (market == null) continue;
+            pendingTrades.add(toEntity(trade, PersistenceEvents.TradeAmounts.of(trade, market)));
+        }
+    }
+
+    static Trade toEntity(TradeEvent trade, PersistenceEvents.TradeAmounts amounts) {
+        return Trade.builder()
+                .marketSymbol(trade.getSymbol())
+                .price(amounts.price())
+                .quantity(amounts.quantity())
+                .takerOrderId(trade.getTakerOrderId())
+                .makerOrderId(trade.getMakerOrderId())
+                .takerUserId(trade.getTakerUserId())
+                .makerUserId(trade.getMakerUserId())
+                .fee(amounts.takerFee().add(amounts.makerFee()))
+                .build();
+    }
+
+    @Override
+    protected int pendingCount() {
+        return pendingTrades.size();
+    }
+
+    @Override
+    protected TradeBatch takeBatch() {
+        TradeBatch batch = new TradeBatch(UUID.randomUUID().toString(), journalSeq(), new ArrayList<>(pendingTrades));
+        pendingTrades.clear();
+        return batch;
+    }
+
+    @Override
+    protected void write(TradeBatch batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!PersistenceEvents.markApplied(appliedBatchMapper, batch.batchId())) {
+                log.warn("成交批次 {} 已写入过，跳过。", batch.batchId());
+                return;
+            }
+            advanceCheckpoint(batch.journalSeq());
+            tradeMapper.insertBatch(batch.trades());
+            log.info("批量插入 {} 条成交记录。", batch.trades().size());
+        });
+    }
+
+    @Override
+    protected Class<TradeBatch> batchType() {
+        return TradeBatch.class;
+    }
+
+    public record TradeBatch(String batchId, long journalSeq, List<Trade> trades) {}
+}
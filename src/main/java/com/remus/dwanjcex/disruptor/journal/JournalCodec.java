@@ -0,0 +1,190 @@
+package com.remus.dwanjcex.disruptor.journal;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * 日志记录的二进制编解码。
+ * <p>
+ * 记录格式：
+ * <pre>
+ * int  bodyLength  // 记录体长度，0 表示该段已无后续记录
+ * int  crc         // CRC32C，覆盖 sequence 和记录体
+ * long sequence    // 日志序号，在同一条流水线内连续递增
+ * ---- 记录体 ----
+ * byte eventType
+ * PLACE_ORDER : long orderId, long userId, str symbol, byte orderType, byte side, dec price, dec amount, dec quoteAmount
+ * CANCEL_ORDER: long orderId, long userId, str symbol, byte side
+ * REMOVE_ORDER: 同 CANCEL_ORDER
+ * </pre>
+ * str 为 short 长度 + UTF-8 字节；dec 为 byte 标志 (0表示null) + int scale + 无符号 byte 长度 + 非标度值字节；
+ * 枚举按 ordinal 写入，新增枚举值只能追加在末尾。
+ */
+final class JournalCodec {
+
+    static final int HEADER_LENGTH = 4 + 4 + 8;
+    private static final byte NULL_ENUM = -1;
+
+    private JournalCodec() {
+    }
+
+    /**
+     * 在 buffer 当前位置写入一条完整记录 (含记录头)，返回写入的字节数。
+     */
+    static int write(ByteBuffer buffer, long sequence, DisruptorEvent event) {
+        if (event.getType() == null) {
+            // 无类型的记录无法回放，由日志阶段在写入前跳过
+            throw new IllegalArgumentException("Cannot journal an event without type");
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER_LENGTH);
+        buffer.put((byte) event.getType().ordinal());
+        switch (event.getType()) {
+            case PLACE_ORDER: {
+                OrderDto dto = event.getPlaceOrder();
+                buffer.putLong(nullToZero(event.getOrderId()));
+                buffer.putLong(nullToZero(dto.getUserId()));
+                putString(buffer, dto.getSymbol());
+                putEnum(buffer, dto.getType());
+                putEnum(buffer, dto.getSide());
+                putDecimal(buffer, dto.getPrice());
+                putDecimal(buffer, dto.getAmount());
+                putDecimal(buffer, dto.getQuoteAmount());
+                break;
+            }
+            case CANCEL_ORDER:
+            case REMOVE_ORDER: {
+                CancelOrderDto dto = event.getCancelOrder();
+                buffer.putLong(nullToZero(dto.getOrderId()));
+                buffer.putLong(nullToZero(dto.getUserId()));
+                putString(buffer, dto.getSymbol());
+                putEnum(buffer, dto.getSide());
+                break;
+            }
+        }
+        int end = buffer.position();
+        int bodyLength = end - start - HEADER_LENGTH;
+
+        buffer.putLong(start + 8, sequence);
+        buffer.putInt(start + 4, checksum(buffer, start + 8, end));
+        // 长度最后写入：读方以非0长度判断记录存在
+        buffer.putInt(start, bodyLength);
+        return end - start;
+    }
+
+    /**
+     * 从 buffer 当前位置读取一条记录到 event 中并返回其序号；遇到段尾、截断或校验失败的记录时返回 -1 且不移动位置。
+     */
+    static long read(ByteBuffer buffer, DisruptorEvent event) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return -1;
+        }
+        int bodyLength = buffer.getInt(start);
+        if (bodyLength <= 0 || bodyLength > buffer.remaining() - HEADER_LENGTH) {
+            return -1;
+        }
+        int end = start + HEADER_LENGTH + bodyLength;
+        if (buffer.getInt(start + 4) != checksum(buffer, start + 8, end)) {
+            return -1;
+        }
+        long sequence = buffer.getLong(start + 8);
+
+        buffer.position(start + HEADER_LENGTH);
+        event.clear();
+        EventType type = EventType.values()[buffer.get()];
+        event.setType(type);
+        switch (type) {
+            case PLACE_ORDER: {
+                event.setOrderId(buffer.getLong());
+                event.setPlaceOrder(OrderDto.builder()
+                        .userId(buffer.getLong())
+                        .symbol(getString(buffer))
+                        .type(getEnum(buffer, OrderTypes.OrderType.values()))
+                        .side(getEnum(buffer, OrderTypes.Side.values()))
+                        .price(getDecimal(buffer))
+                        .amount(getDecimal(buffer))
+                        .quoteAmount(getDecimal(buffer))
+                        .build());
+                break;
+            }
+            case CANCEL_ORDER:
+            case REMOVE_ORDER: {
+                long orderId = buffer.getLong();
+                long userId = buffer.getLong();
+                String symbol = getString(buffer);
+                event.setCancelOrder(new CancelOrderDto(orderId, userId, symbol, getEnum(buffer, OrderTypes.Side.values())));
+                break;
+            }
+        }
+        event.setJournalSeq(sequence);
+        buffer.position(end);
+        return sequence;
+    }
+
+    // --- Helper Methods ---
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(to).position(from);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put(value == null ? NULL_ENUM : (byte) value.ordinal());
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        byte ordinal = buffer.get();
+        return ordinal == NULL_ENUM ? null : values[ordinal];
+    }
+
+    private static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        buffer.put((byte) 1);
+        buffer.putInt(value.scale());
+        buffer.put((byte) unscaled.length);
+        buffer.put(unscaled);
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.get() & 0xFF];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,95 @@
+package com.remus.dwanjcex.disruptor.journal;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 日志读取、回放与清理。
+ */
+@Slf4j
+public final class JournalReader {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private JournalReader() {
+    }
+
+    /**
+     * 按序号顺序回放 afterSequence 之后的所有完整记录，返回最后回放的序号 (没有记录时返回 afterSequence)。
+     * 传给 consumer 的事件对象会被复用，consumer 不应持有它。
+     */
+    public static long replay(Path directory, long afterSequence, Consumer<DisruptorEvent> consumer) throws IOException {
+        List<Path> segments = listSegments(directory);
+        DisruptorEvent event = new DisruptorEvent();
+        long lastSequence = afterSequence;
+        for (int i = 0; i < segments.size(); i++) {
+            // 下一段的起始序号不大于 afterSequence + 1 时，本段的记录都已包含在快照中
+            if (i + 1 < segments.size() && startSequenceOf(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                long sequence;
+                while ((sequence = JournalCodec.read(buffer, event)) > 0) {
+                    if (sequence <= afterSequence) {
+                        continue;
+                    }
+                    if (sequence != lastSequence + 1) {
+                        log.error("日志序号不连续，回放结果可能不完整: dir={}, expected={}, actual={}", directory, lastSequence + 1, sequence);
+                    }
+                    consumer.accept(event);
+                    lastSequence = sequence;
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    /**
+     * 删除所有记录都不大于 upToSequence 的段 (即下一段的起始序号不大于 upToSequence + 1)，返回删除的段数。
+     * 最后一段是写入中的段，始终保留。可与写入并发调用：写入器只访问最后一段。
+     */
+    public static int deleteSegmentsUpTo(Path directory, long upToSequence) throws IOException {
+        List<Path> segments = listSegments(directory);
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (startSequenceOf(segments.get(i + 1)) > upToSequence + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    static List<Path> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static String segmentName(long startSequence) {
+        return String.format("%020d%s", startSequence, SEGMENT_SUFFIX);
+    }
+
+    static long startSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.remus.dwanjcex.disruptor.journal;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 内存映射、按段滚动的日志写入器。只能由单一线程使用。
+ * <p>
+ * 每个段是一个固定大小的文件，文件名为该段第一条记录的序号。记录先写入堆内缓冲区，
+ * 再整体复制进映射区域，当前段剩余空间不足时滚动到新段。写入进入页缓存即对进程崩溃安全，
+ * 是否对掉电安全取决于调用方是否调用 {@link #force()}。
+ */
+@Slf4j
+public class JournalWriter implements Closeable {
+
+    private static final int MAX_RECORD_LENGTH = 4096;
+
+    @Getter
+    private final Path directory;
+    private final int segmentSize;
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD_LENGTH);
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    @Getter
+    private long lastSequence;
+
+    public JournalWriter(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < MAX_RECORD_LENGTH) {
+            throw new IllegalArgumentException("segmentSize must be at least " + MAX_RECORD_LENGTH + ": " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Path> segments = JournalReader.listSegments(directory);
+        if (segments.isEmpty()) {
+            lastSequence = 0;
+            openSegment(1);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            lastSequence = JournalReader.startSequenceOf(last) - 1;
+            mapSegment(last);
+            recoverTail();
+        }
+        log.info("日志已打开: dir={}, lastSequence={}", directory, lastSequence);
+    }
+
+    /**
+     * 追加一条记录，返回分配给它的序号。
+     */
+    public long append(DisruptorEvent event) throws IOException {
+        long sequence = lastSequence + 1;
+        scratch.clear();
+        int length = JournalCodec.write(scratch, sequence, event);
+        if (segment.remaining() < length) {
+            roll(sequence);
+        }
+        int position = segment.position();
+        // 先写记录体，最后写长度，读方看到非0长度时记录已完整
+        segment.position(position + 4);
+        segment.put(scratch.array(), 4, length - 4);
+        segment.putInt(position, scratch.getInt(0));
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * 把当前段已写入的内容刷到磁盘。
+     */
+    public void force() {
+        segment.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            segment.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private void roll(long nextSequence) throws IOException {
+        close();
+        openSegment(nextSequence);
+        log.info("日志滚动到新段: dir={}, startSequence={}", directory, nextSequence);
+    }
+
+    private void openSegment(long startSequence) throws IOException {
+        mapSegment(directory.resolve(JournalReader.segmentName(startSequence)));
+    }
+
+    private void mapSegment(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    /**
+     * 重新打开最后一个段时，跳过所有完整记录，并清零其后可能残留的半条记录。
+     */
+    private void recoverTail() {
+        DisruptorEvent scratchEvent = new DisruptorEvent();
+        long sequence;
+        while ((sequence = JournalCodec.read(segment, scratchEvent)) > 0) {
+            lastSequence = sequence;
+        }
+        // 半条记录不会超过单条记录的最大长度
+        int end = Math.min(segment.limit(), segment.position() + MAX_RECORD_LENGTH);
+        for (int i = segment.position(); i < end; i++) {
+            segment.put(i, (byte) 0);
+        }
+    }
+}
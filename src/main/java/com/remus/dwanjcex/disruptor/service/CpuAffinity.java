@@ -0,0 +1,55 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 把当前线程绑定到指定CPU。
+ * <p>
+ * JDK 没有设置线程亲和性的API，这里在 Linux 上通过 /proc/thread-self 取得当前线程的内核线程ID，
+ * 再调用 taskset 设置；其他平台或 taskset 不可用时只记录警告，线程照常运行。
+ * 绑定的CPU最好事先通过 isolcpus/cgroup 从调度器中隔离出来。
+ */
+@Slf4j
+public final class CpuAffinity {
+
+    private static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * @param cpus taskset 的CPU列表，例如 "3" 或 "2-3"
+     * @return 是否绑定成功
+     */
+    public static boolean pinCurrentThread(String cpus) {
+        String threadName = Thread.currentThread().getName();
+        if (!Files.exists(THREAD_SELF)) {
+            log.warn("当前平台不支持CPU绑定，线程 {} 不做绑定。", threadName);
+            return false;
+        }
+        try {
+            // /proc/thread-self 指向 <pid>/task/<tid>
+            String tid = THREAD_SELF.toRealPath().getFileName().toString();
+            Process process = new ProcessBuilder("taskset", "-pc", cpus, tid).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (process.waitFor() != 0) {
+                log.warn("线程 {} (tid={}) 绑定到CPU {} 失败: {}", threadName, tid, cpus, output);
+                return false;
+            }
+            log.info("线程 {} (tid={}) 已绑定到CPU {}", threadName, tid, cpus);
+            return true;
+        } catch (IOException e) {
+            log.warn("线程 {} 绑定到CPU {} 失败 (taskset 不可用?)", threadName, cpus, e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,69 +1,369 @@
 package com.remus.dwanjcex.disruptor.service;
 
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslator;
+import com.lmax.disruptor.EventTranslatorTwoArg;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.dsl.Disruptor;
-import com.lmax.disruptor.util.DaemonThreadFactory;
+import com.lmax.disruptor.dsl.EventHandlerGroup;
+import com.lmax.disruptor.dsl.ProducerType;
 import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
 import com.remus.dwanjcex.disruptor.event.DisruptorEventFactory;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.disruptor.handler.BatchingPersistenceHandler;
+import com.remus.dwanjcex.disruptor.handler.JournalHandler;
+import com.remus.dwanjcex.disruptor.handler.MarketDataHandler;
 import com.remus.dwanjcex.disruptor.handler.MatchingHandler;
-import com.remus.dwanjcex.disruptor.handler.PersistenceHandler;
+import com.remus.dwanjcex.disruptor.handler.OrderStatePersistenceHandler;
+import com.remus.dwanjcex.disruptor.handler.PersistenceGateHandler;
+import com.remus.dwanjcex.disruptor.handler.SettlementPersistenceHandler;
+import com.remus.dwanjcex.disruptor.handler.SnapshotHandler;
+import com.remus.dwanjcex.disruptor.handler.TickerPublishHandler;
+import com.remus.dwanjcex.disruptor.handler.TradePersistenceHandler;
+import com.remus.dwanjcex.disruptor.spill.SpillStore;
+import com.remus.dwanjcex.wallet.entity.PersistenceCheckpoint;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.mapper.PersistenceCheckpointMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 撮合流水线管理器。每条流水线 (一个Disruptor及其处理链) 可承载多个交易对，
+ * 交易对到流水线的映射由 {@link EngineShardRouter} 决定；以下各Map均以流水线名称为键，流水线在首次使用时创建。
+ */
 @Slf4j
 @Service
-public class DisruptorManager {
+public class DisruptorManager implements SmartInitializingSingleton {
+
+    private static final EventTranslator<DisruptorEvent> HEARTBEAT = (event, sequence) -> {
+        event.clear();
+        event.setType(EventType.HEARTBEAT);
+    };
+
+    private static final EventTranslatorTwoArg<DisruptorEvent, String, Long> REMOVE_ORDER = (event, sequence, symbol, orderId) -> {
+        event.clear();
+        event.setType(EventType.REMOVE_ORDER);
+        event.setCancelOrder(new CancelOrderDto(orderId, null, symbol, null));
+    };
 
     private final ApplicationContext context;
+    private final EngineShardRouter shardRouter;
+    private final PipelineTuning pipelineTuning;
+    private final PersistenceTuning persistenceTuning;
+    private final SpillStore spillStore;
+    private final PersistenceCheckpointMapper checkpointMapper;
+    private final MeterRegistry meterRegistry;
+    private final int bufferSize;
     private final Map<String, Disruptor<DisruptorEvent>> disruptorMap = new ConcurrentHashMap<>();
     private final Map<String, RingBuffer<DisruptorEvent>> ringBufferMap = new ConcurrentHashMap<>();
     private final Map<String, MatchingHandler> matchingHandlerMap = new ConcurrentHashMap<>();
+    private final Map<String, MarketDataHandler> marketDataHandlerMap = new ConcurrentHashMap<>();
+    private final Map<String, JournalHandler> journalHandlerMap = new ConcurrentHashMap<>();
+    private final Map<String, SnapshotHandler> snapshotHandlerMap = new ConcurrentHashMap<>();
+    private final Map<String, PersistenceGateHandler> gateHandlerMap = new ConcurrentHashMap<>();
+    private final List<StageExceptionHandler> stageExceptionHandlers = new CopyOnWriteArrayList<>();
+    // 各流水线启动时 (溢写批次补写之后、开始处理事件之前) 的持久化检查点，处理器名称 -> 日志序号
+    private final Map<String, Map<String, Long>> startupCheckpoints = new ConcurrentHashMap<>();
+
+    // 环形缓冲区已满时暂存的强制移除请求，由心跳任务重试发布
+    private final Queue<PendingRemoval> pendingRemovals = new ConcurrentLinkedQueue<>();
 
-    public DisruptorManager(ApplicationContext context) {
+    public DisruptorManager(ApplicationContext context, EngineShardRouter shardRouter, PipelineTuning pipelineTuning,
+                            PersistenceTuning persistenceTuning, SpillStore spillStore, PersistenceCheckpointMapper checkpointMapper,
+                            MeterRegistry meterRegistry, @Value("${cex.engine.ring-buffer-size:16384}") int bufferSize) {
         this.context = context;
+        this.shardRouter = shardRouter;
+        this.pipelineTuning = pipelineTuning;
+        this.persistenceTuning = persistenceTuning;
+        this.spillStore = spillStore;
+        this.checkpointMapper = checkpointMapper;
+        this.meterRegistry = meterRegistry;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * 所有单例创建完成后 (Web服务和Kafka消费者启动之前) 立即创建溢写目录中仍有遗留批次的流水线，
+     * 其持久化处理器在创建时同步补写这些批次。遗留的余额差额是基于上次进程的内存余额计算的，
+     * 必须在本进程从数据库加载任何账户之前落库。
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String pipeline : spillStore.pipelinesWithBacklog()) {
+            log.warn("流水线 {} 有上次未写库的溢写批次，启动时先创建该流水线并补写。", pipeline);
+            ringBufferMap.computeIfAbsent(pipeline, this::createPipeline);
+        }
+    }
+
+    /**
+     * 交易对所在的流水线名称。
+     */
+    public String getPipeline(String symbol) {
+        return shardRouter.pipelineOf(symbol);
     }
 
     public RingBuffer<DisruptorEvent> getRingBuffer(String symbol) {
-        return ringBufferMap.computeIfAbsent(symbol, this::createDisruptorForSymbol);
+        return ensurePipeline(symbol);
     }
 
     public MatchingHandler getMatchingHandler(String symbol) {
-        // computeIfAbsent确保了在多线程环境下，对于同一个symbol，只创建一个Disruptor引擎
-        ringBufferMap.computeIfAbsent(symbol, this::createDisruptorForSymbol);
-        return matchingHandlerMap.get(symbol);
+        ensurePipeline(symbol);
+        return matchingHandlerMap.get(getPipeline(symbol));
     }
 
-    private RingBuffer<DisruptorEvent> createDisruptorForSymbol(String symbol) {
-        log.info("为交易对 {} 创建新的Disruptor引擎...", symbol);
+    /**
+     * 交易对所在流水线的日志目录，未启用日志时返回 null。
+     */
+    public Path getJournalDirectory(String symbol) {
+        ensurePipeline(symbol);
+        String pipeline = getPipeline(symbol);
+        JournalHandler journalHandler = journalHandlerMap.get(pipeline);
+        return journalHandler == null ? null : journalHandler.getDirectory(pipeline);
+    }
 
-        DisruptorEventFactory factory = new DisruptorEventFactory();
-        int bufferSize = 1024 * 16;
+    /**
+     * 交易对所在流水线已写入的最后一条日志序号，未启用日志时返回 0。
+     */
+    public long getJournalLastSequence(String symbol) {
+        ensurePipeline(symbol);
+        JournalHandler journalHandler = journalHandlerMap.get(getPipeline(symbol));
+        return journalHandler == null ? 0 : journalHandler.getLastSequence();
+    }
+
+    /**
+     * 交易对所在流水线的快照阶段，未启用日志或快照时返回 null (快照只有配合日志回放才能还原最新状态)。
+     */
+    public SnapshotHandler getSnapshotHandler(String symbol) {
+        ensurePipeline(symbol);
+        return snapshotHandlerMap.get(getPipeline(symbol));
+    }
+
+    public MarketDataHandler getMarketDataHandler(String symbol) {
+        ensurePipeline(symbol);
+        return marketDataHandlerMap.get(getPipeline(symbol));
+    }
+
+    /**
+     * 流水线启动时的持久化检查点 (处理器名称 -> 已落库的日志序号)，没有记录的处理器不在其中。
+     * 已创建的流水线返回创建时读取的值，之后的写出不影响结果；其他流水线 (如交易对迁出后的原流水线) 从数据库读取。
+     */
+    public Map<String, Long> getPersistenceCheckpoints(String pipeline) {
+        return startupCheckpoints.computeIfAbsent(pipeline, this::loadCheckpoints);
+    }
+
+    private Map<String, Long> loadCheckpoints(String pipeline) {
+        Map<String, Long> checkpoints = new HashMap<>();
+        for (PersistenceCheckpoint checkpoint : checkpointMapper.findByPipeline(pipeline)) {
+            checkpoints.put(checkpoint.getHandler(), checkpoint.getJournalSeq());
+        }
+        return checkpoints;
+    }
+
+    /**
+     * 为启动补写创建一组新的、记录检查点的持久化处理器，不接入任何流水线，检查点记在给定的流水线名下。
+     */
+    public List<BatchingPersistenceHandler<?>> createReplayHandlers(String pipeline) {
+        List<BatchingPersistenceHandler<?>> handlers = new ArrayList<>();
+        for (BatchingPersistenceHandler<?> handler : persistenceHandlers()) {
+            if (handler.isCheckpointed()) {
+                handler.setPipeline(pipeline);
+                handlers.add(handler);
+            }
+        }
+        return handlers;
+    }
 
-        Disruptor<DisruptorEvent> disruptor = new Disruptor<>(factory, bufferSize, DaemonThreadFactory.INSTANCE);
+    private RingBuffer<DisruptorEvent> ensurePipeline(String symbol) {
+        // computeIfAbsent确保了在多线程环境下，对于同一条流水线，只创建一个Disruptor引擎
+        return ringBufferMap.computeIfAbsent(getPipeline(symbol), this::createPipeline);
+    }
+
+    private RingBuffer<DisruptorEvent> createPipeline(String pipeline) {
+        log.info("创建撮合流水线 {} 的Disruptor引擎...", pipeline);
+        // 日志先于其他资源打开，打开失败时整条流水线创建失败，不留下已打开的溢写队列
+        JournalHandler journalHandler = openJournal(pipeline);
 
+        DisruptorEventFactory factory = new DisruptorEventFactory();
+        // 下单/撤单可能来自多个线程 (Kafka消费者、HTTP请求)，使用多生产者模式
+        Disruptor<DisruptorEvent> disruptor = new Disruptor<>(factory, bufferSize, threadFactory(pipeline),
+                ProducerType.MULTI, pipelineTuning.waitStrategyFor(pipeline));
         // 从Spring容器获取多例的Handler
         MatchingHandler matchingHandler = context.getBean(MatchingHandler.class);
-        PersistenceHandler persistenceHandler = context.getBean(PersistenceHandler.class);
+        matchingHandler.setCpuAffinity(pipelineTuning.cpuAffinityFor(pipeline));
+        MarketDataHandler marketDataHandler = context.getBean(MarketDataHandler.class);
+        // 持久化按关注点拆分为互不依赖的处理器，各自按自适应批量写出，写库失败的批次溢写到本地文件重试
+        BatchingPersistenceHandler<?>[] persistenceHandlers = persistenceHandlers();
+        for (BatchingPersistenceHandler<?> handler : persistenceHandlers) {
+            handler.configureBatching(persistenceTuning.controllerFor(pipeline, handler.getClass().getSimpleName()),
+                    disruptor.getRingBuffer());
+            handler.setPipeline(pipeline);
+            handler.configureSpill(spillStore, pipeline);
+        }
+        if (journalHandler != null) {
+            // 溢写批次已补写，此时的检查点之后就是崩溃时还留在缓冲区中的数据，由启动重建流程从日志补写
+            startupCheckpoints.computeIfAbsent(pipeline, this::loadCheckpoints);
+        }
+        PersistenceGateHandler gateHandler = context.getBean(PersistenceGateHandler.class);
+        gateHandler.setUpstream(persistenceHandlers);
 
-        // 设置处理链
-        disruptor.handleEventsWith(matchingHandler)
-                 .then(persistenceHandler);
+        // 设置处理链：(日志 ->) 撮合，之后各持久化处理器、行情发布 (及快照) 并行消费；
+        // 汇合阶段在全部持久化处理器之后执行
+        EventHandlerGroup<DisruptorEvent> matched = journalHandler != null
+                ? disruptor.handleEventsWith(journalHandler).then(matchingHandler)
+                : disruptor.handleEventsWith(matchingHandler);
+        matched.then(persistenceHandlers);
+        matched.then(marketDataHandler);
+        if (journalHandler != null) {
+            SnapshotHandler snapshotHandler = context.getBean(SnapshotHandler.class);
+            if (snapshotHandler.isEnabled()) {
+                snapshotHandler.setJournalDirectory(journalHandler.getDirectory(pipeline));
+                matched.then(snapshotHandler);
+                snapshotHandlerMap.put(pipeline, snapshotHandler);
+            }
+        }
+        disruptor.after(persistenceHandlers).then(gateHandler);
+
+        // 只有日志阶段出错时停止 (其后的阶段随之停止)；其余阶段记录并跳过出错的事件，见 StageExceptionHandler
+        if (journalHandler != null) {
+            handleExceptionsFor(disruptor, pipeline, journalHandler, true);
+        }
+        handleExceptionsFor(disruptor, pipeline, matchingHandler, false);
+        for (BatchingPersistenceHandler<?> handler : persistenceHandlers) {
+            handleExceptionsFor(disruptor, pipeline, handler, false);
+        }
+        handleExceptionsFor(disruptor, pipeline, marketDataHandler, false);
+        if (snapshotHandlerMap.containsKey(pipeline)) {
+            handleExceptionsFor(disruptor, pipeline, snapshotHandlerMap.get(pipeline), false);
+        }
+        handleExceptionsFor(disruptor, pipeline, gateHandler, false);
 
         disruptor.start();
-        log.info("交易对 {} 的Disruptor引擎已启动。", symbol);
+        log.info("撮合流水线 {} 的Disruptor引擎已启动。", pipeline);
+
+        disruptorMap.put(pipeline, disruptor);
+        matchingHandlerMap.put(pipeline, matchingHandler); // 将新创建的Handler实例存入Map
+        marketDataHandlerMap.put(pipeline, marketDataHandler);
+        gateHandlerMap.put(pipeline, gateHandler);
 
-        disruptorMap.put(symbol, disruptor);
-        matchingHandlerMap.put(symbol, matchingHandler); // 将新创建的Handler实例存入Map
-        
         return disruptor.getRingBuffer();
     }
 
+    private void handleExceptionsFor(Disruptor<DisruptorEvent> disruptor, String pipeline,
+                                     EventHandler<DisruptorEvent> handler, boolean failStop) {
+        StageExceptionHandler exceptionHandler = new StageExceptionHandler(pipeline, handler.getClass().getSimpleName(),
+                failStop, meterRegistry);
+        disruptor.handleExceptionsFor(handler).with(exceptionHandler);
+        stageExceptionHandlers.add(exceptionHandler);
+    }
+
+    /**
+     * 已因异常停止的阶段，格式为 "流水线/阶段"。
+     */
+    public List<String> getHaltedStages() {
+        List<String> halted = new ArrayList<>();
+        for (StageExceptionHandler handler : stageExceptionHandlers) {
+            if (handler.isHalted()) {
+                halted.add(handler.getPipeline() + "/" + handler.getStage());
+            }
+        }
+        return halted;
+    }
+
+    private BatchingPersistenceHandler<?>[] persistenceHandlers() {
+        return new BatchingPersistenceHandler<?>[]{
+                context.getBean(TradePersistenceHandler.class),
+                context.getBean(OrderStatePersistenceHandler.class),
+                context.getBean(SettlementPersistenceHandler.class),
+                context.getBean(TickerPublishHandler.class)
+        };
+    }
+
+    /**
+     * 发布强制从内存订单簿中移除订单的事件。移除与下单、撤单一样经过日志和撮合线程，回放时同样生效。
+     * <p>
+     * 调用方通常是同一流水线上的持久化处理器，在自己的环形缓冲区上阻塞申请槽位可能永远等不到，
+     * 因此只尝试发布一次，缓冲区已满时交给心跳任务稍后重试。
+     */
+    public void publishRemoveOrder(String symbol, Long orderId) {
+        if (!getRingBuffer(symbol).tryPublishEvent(REMOVE_ORDER, symbol, orderId)) {
+            log.warn("流水线 {} 的环形缓冲区已满，订单 {} 的强制移除稍后重试。", getPipeline(symbol), orderId);
+            pendingRemovals.add(new PendingRemoval(symbol, orderId));
+        }
+    }
+
+    /**
+     * 向有待写出数据或待发通知的流水线发布心跳事件，使空闲流水线上的持久化处理器也能按最大延迟写出。
+     * 环形缓冲区已满时放弃本次心跳 (此时流水线并不空闲)。同时重试之前未能发布的强制移除。
+     */
+    @Scheduled(fixedDelayString = "${cex.persistence.heartbeat-ms:50}")
+    public void publishHeartbeats() {
+        for (int i = pendingRemovals.size(); i > 0; i--) {
+            PendingRemoval removal = pendingRemovals.poll();
+            if (removal == null) break;
+            if (!getRingBuffer(removal.symbol()).tryPublishEvent(REMOVE_ORDER, removal.symbol(), removal.orderId())) {
+                pendingRemovals.add(removal);
+            }
+        }
+        gateHandlerMap.forEach((pipeline, gateHandler) -> {
+            RingBuffer<DisruptorEvent> ringBuffer = ringBufferMap.get(pipeline);
+            if (ringBuffer != null && gateHandler.needsHeartbeat()) {
+                ringBuffer.tryPublishEvent(HEARTBEAT);
+            }
+        });
+    }
+
+    /**
+     * 以流水线名称命名处理线程，便于在线程转储和监控中区分各分片。
+     */
+    private static ThreadFactory threadFactory(String pipeline) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "disruptor-" + pipeline + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 打开流水线的日志。日志已启用却无法打开时抛出异常使流水线创建失败，
+     * 不以无日志的方式运行 (否则崩溃后无法回放这段时间的指令)。
+     */
+    private JournalHandler openJournal(String pipeline) {
+        JournalHandler journalHandler = context.getBean(JournalHandler.class);
+        if (!journalHandler.isEnabled()) {
+            return null;
+        }
+        try {
+            journalHandler.open(pipeline);
+            journalHandlerMap.put(pipeline, journalHandler);
+            return journalHandler;
+        } catch (IOException e) {
+            throw new IllegalStateException("打开流水线 " + pipeline + " 的日志失败", e);
+        }
+    }
+
     public void shutdownAll() {
+        gateHandlerMap.clear();
         disruptorMap.values().forEach(Disruptor::shutdown);
         log.info("所有Disruptor引擎已关闭。");
     }
+
+    private record PendingRemoval(String symbol, Long orderId) {}
 }
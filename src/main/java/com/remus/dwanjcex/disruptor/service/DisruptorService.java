@@ -2,6 +2,7 @@ package com.remus.dwanjcex.disruptor.service;
 
 import com.lmax.disruptor.RingBuffer;
 import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EngineCommand;
 import com.remus.dwanjcex.disruptor.event.EventType;
 import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
 import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
@@ -10,15 +11,23 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DisruptorService {
 
+    // 单次向环形缓冲区申请的最大槽位数，远小于缓冲区大小，避免一次申请长时间阻塞等待消费者
+    private static final int MAX_CLAIM = 256;
+
     private final DisruptorManager disruptorManager;
 
     public void publishPlaceOrderEvent(Long orderId, OrderDto orderDto) {
-        log.info("[Disruptor - Publisher] 准备发布下单事件: {}", orderDto.getSymbol());
+        log.debug("[Disruptor - Publisher] 准备发布下单事件: {}", orderDto.getSymbol());
         RingBuffer<DisruptorEvent> ringBuffer = disruptorManager.getRingBuffer(orderDto.getSymbol());
         long sequence = ringBuffer.next();
         try {
@@ -29,12 +38,12 @@ public class DisruptorService {
             event.setPlaceOrder(orderDto);
         } finally {
             ringBuffer.publish(sequence);
-            log.info("[Disruptor - Publisher] 成功发布下单事件到RingBuffer, 序列号: {}", sequence);
+            log.debug("[Disruptor - Publisher] 成功发布下单事件到RingBuffer, 序列号: {}", sequence);
         }
     }
 
     public void publishCancelOrderEvent(CancelOrderDto cancelOrderDto) {
-        log.info("[Disruptor - Publisher] 准备发布取消订单事件: {}", cancelOrderDto.getSymbol());
+        log.debug("[Disruptor - Publisher] 准备发布取消订单事件: {}", cancelOrderDto.getSymbol());
         RingBuffer<DisruptorEvent> ringBuffer = disruptorManager.getRingBuffer(cancelOrderDto.getSymbol());
         long sequence = ringBuffer.next();
         try {
@@ -44,7 +53,56 @@ public class DisruptorService {
             event.setCancelOrder(cancelOrderDto);
         } finally {
             ringBuffer.publish(sequence);
-            log.info("[Disruptor - Publisher] 成功发布取消订单事件到RingBuffer, 序列号: {}", sequence);
+            log.debug("[Disruptor - Publisher] 成功发布取消订单事件到RingBuffer, 序列号: {}", sequence);
+        }
+    }
+
+    /**
+     * 批量发布指令。指令按所在流水线分组，每组按原有顺序一次申请一段连续序号并整体发布，
+     * 同一交易对的指令顺序保持不变。
+     */
+    public void publishBatch(List<EngineCommand> commands) {
+        if (commands.isEmpty()) {
+            return;
+        }
+        Map<String, List<EngineCommand>> byPipeline = new LinkedHashMap<>();
+        for (EngineCommand command : commands) {
+            byPipeline.computeIfAbsent(disruptorManager.getPipeline(command.getSymbol()), k -> new ArrayList<>()).add(command);
+        }
+        for (List<EngineCommand> group : byPipeline.values()) {
+            RingBuffer<DisruptorEvent> ringBuffer = disruptorManager.getRingBuffer(group.get(0).getSymbol());
+            // 一次申请的槽位数不能超过缓冲区大小，否则 next(n) 直接抛出异常
+            int claim = Math.min(MAX_CLAIM, ringBuffer.getBufferSize());
+            for (int from = 0; from < group.size(); from += claim) {
+                publishRange(ringBuffer, group, from, Math.min(group.size(), from + claim));
+            }
+        }
+        log.debug("[Disruptor - Publisher] 批量发布 {} 条指令到 {} 条流水线", commands.size(), byPipeline.size());
+    }
+
+    /**
+     * 申请一段连续序号并整体发布。所有槽位先清空，再逐条写入指令：某条指令写入失败时，
+     * 该槽位以无类型的空事件发布 (各阶段跳过)，不会把槽位中上一轮的旧事件重复发布出去，也不影响其余指令。
+     */
+    private void publishRange(RingBuffer<DisruptorEvent> ringBuffer, List<EngineCommand> commands, int from, int to) {
+        int n = to - from;
+        long hi = ringBuffer.next(n);
+        long lo = hi - (n - 1);
+        try {
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                ringBuffer.get(sequence).clear();
+            }
+            for (int i = 0; i < n; i++) {
+                DisruptorEvent event = ringBuffer.get(lo + i);
+                try {
+                    commands.get(from + i).copyTo(event);
+                } catch (RuntimeException e) {
+                    event.clear();
+                    log.error("[Disruptor - Publisher] 指令写入事件失败，已丢弃: symbol={}", commands.get(from + i).getSymbol(), e);
+                }
+            }
+        } finally {
+            ringBuffer.publish(lo, hi);
         }
     }
 
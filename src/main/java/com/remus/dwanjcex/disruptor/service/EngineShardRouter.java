@@ -0,0 +1,95 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 交易对到撮合流水线 (Disruptor + 撮合线程) 的映射。
+ * <p>
+ * cex.engine.shards.dedicated 中列出的热门交易对各自独占一条以交易对命名的流水线；
+ * 其余交易对共享 shared-count 条名为 shard-N 的流水线，可用 assignments (SYMBOL:N) 显式指定，
+ * 未指定的按交易对名称的哈希分配。shared-count 为 0 时恢复为每个交易对一条流水线。
+ * <p>
+ * 日志序号按流水线分配；调整映射后由 {@link OrderBookRebuilder} 从交易对原来所在流水线的日志回放。
+ */
+@Slf4j
+@Component
+public class EngineShardRouter {
+
+    private static final String SHARED_PIPELINE_PREFIX = "shard-";
+
+    private final Set<String> dedicatedSymbols;
+    private final int sharedCount;
+    private final Map<String, Integer> assignments = new HashMap<>();
+    private final Map<String, String> pipelines = new ConcurrentHashMap<>();
+    // 已知流水线的固定编号：独占交易对按名称排序在前，共享分片在后，用于把流水线均匀地映射到Kafka分区
+    private final Map<String, Integer> pipelineIndexes = new HashMap<>();
+
+    public EngineShardRouter(@Value("${cex.engine.shards.dedicated:}") String[] dedicatedSymbols,
+                             @Value("${cex.engine.shards.shared-count:4}") int sharedCount,
+                             @Value("${cex.engine.shards.assignments:}") String[] assignments) {
+        this.dedicatedSymbols = Arrays.stream(dedicatedSymbols)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+        this.sharedCount = Math.max(sharedCount, 0);
+        for (String assignment : assignments) {
+            String trimmed = assignment.trim();
+            if (trimmed.isEmpty()) continue;
+            int colon = trimmed.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("无效的分片配置 (应为 SYMBOL:N): " + trimmed);
+            }
+            int shard = Integer.parseInt(trimmed.substring(colon + 1).trim());
+            if (shard < 0 || shard >= this.sharedCount) {
+                throw new IllegalArgumentException("分片序号超出范围 [0, " + this.sharedCount + "): " + trimmed);
+            }
+            this.assignments.put(trimmed.substring(0, colon).trim(), shard);
+        }
+        if (this.sharedCount > 0) {
+            this.dedicatedSymbols.stream().sorted().forEach(symbol -> pipelineIndexes.put(symbol, pipelineIndexes.size()));
+            for (int i = 0; i < this.sharedCount; i++) {
+                pipelineIndexes.put(SHARED_PIPELINE_PREFIX + i, pipelineIndexes.size());
+            }
+        }
+        log.info("撮合流水线分片: 独占交易对={}, 共享分片数={}, 显式分配={}", this.dedicatedSymbols, this.sharedCount, this.assignments);
+    }
+
+    /**
+     * 交易对所在的流水线名称，同时用作该流水线的日志目录名。
+     */
+    public String pipelineOf(String symbol) {
+        return pipelines.computeIfAbsent(symbol, this::resolve);
+    }
+
+    /**
+     * 交易对的撮合指令应写入的Kafka分区：同一流水线的交易对总是落在同一分区。
+     * 分区数不少于流水线数时，每个分区至多对应一条流水线。
+     */
+    public int partitionOf(String symbol, int numPartitions) {
+        String pipeline = pipelineOf(symbol);
+        Integer index = pipelineIndexes.get(pipeline);
+        return Math.floorMod(index != null ? index : pipeline.hashCode(), numPartitions);
+    }
+
+    private String resolve(String symbol) {
+        String pipeline;
+        if (sharedCount == 0 || dedicatedSymbols.contains(symbol)) {
+            pipeline = symbol;
+        } else {
+            Integer shard = assignments.get(symbol);
+            // String.hashCode 的算法由规范固定，重启后同一交易对总是落在同一分片
+            pipeline = SHARED_PIPELINE_PREFIX + (shard != null ? shard : Math.floorMod(symbol.hashCode(), sharedCount));
+        }
+        log.info("交易对 {} 分配到撮合流水线 {}", symbol, pipeline);
+        return pipeline;
+    }
+}
@@ -0,0 +1,44 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * 只让撮合关键路径上的线程忙等的等待策略。
+ * <p>
+ * Disruptor 的等待策略作用于整条流水线，直接使用 busy-spin 时持久化、行情等每个处理线程都会占满一个核。
+ * 这里按调用 {@link #waitFor} 的线程分派：通过 {@link #markCurrentThread()} 标记过的线程 (日志和撮合阶段) 忙等，
+ * 其余线程阻塞等待。
+ */
+public class HotPathWaitStrategy implements WaitStrategy {
+
+    private static final ThreadLocal<Boolean> HOT_PATH = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final WaitStrategy spinning = new BusySpinWaitStrategy();
+    private final WaitStrategy blocking = new BlockingWaitStrategy();
+
+    /**
+     * 把当前线程标记为关键路径线程，由处理器在其线程启动时调用。未使用本策略的流水线不受影响。
+     */
+    public static void markCurrentThread() {
+        HOT_PATH.set(Boolean.TRUE);
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+            throws AlertException, InterruptedException, TimeoutException {
+        return HOT_PATH.get()
+                ? spinning.waitFor(sequence, cursor, dependentSequence, barrier)
+                : blocking.waitFor(sequence, cursor, dependentSequence, barrier);
+    }
+
+    @Override
+    public void signalAllWhenBlocking() {
+        blocking.signalAllWhenBlocking();
+    }
+}
@@ -2,35 +2,69 @@ package com.remus.dwanjcex.disruptor.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.disruptor.event.OrderBookUpdate;
+import com.remus.dwanjcex.disruptor.handler.BatchingPersistenceHandler;
+import com.remus.dwanjcex.disruptor.handler.MarketDataHandler;
 import com.remus.dwanjcex.disruptor.handler.MatchingHandler;
+import com.remus.dwanjcex.disruptor.handler.SnapshotHandler;
+import com.remus.dwanjcex.disruptor.journal.JournalReader;
+import com.remus.dwanjcex.disruptor.snapshot.OrderBookSnapshotFile;
+import com.remus.dwanjcex.engine.EngineOrder;
 import com.remus.dwanjcex.engine.OrderBook;
+import com.remus.dwanjcex.engine.OrderBookFactory;
 import com.remus.dwanjcex.wallet.entity.OrderEntity;
 import com.remus.dwanjcex.wallet.entity.Trade;
 import com.remus.dwanjcex.wallet.mapper.MarketMapper;
 import com.remus.dwanjcex.wallet.mapper.TradeMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class OrderBookRebuilder implements ApplicationRunner {
 
+    // 旧版的全量活跃订单快照 (JSON数组)，仅在哈希不存在时用于兼容读取
+    private static final String LEGACY_SNAPSHOT_KEY_PREFIX = "orderbook:snapshot:";
+    // 记录上次启动时各交易对所在的流水线，用于发现分片映射的调整
+    private static final String PIPELINE_ASSIGNMENTS_FILE = "pipelines.properties";
+
     private final MarketMapper marketMapper;
     private final TradeMapper tradeMapper;
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
     private final DisruptorManager disruptorManager;
+    private final OrderBookFactory orderBookFactory;
+
+    @Value("${cex.journal.dir:data/journal}")
+    private String journalBaseDirectory;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        log.info("开始从Redis快照重建订单簿和最新价格...");
+        log.info("开始从快照和日志重建订单簿，并恢复最新价格...");
 
         List<String> symbols = marketMapper.findAllSymbols();
         if (symbols.isEmpty()) {
@@ -40,31 +74,70 @@ public class OrderBookRebuilder implements ApplicationRunner {
 
         log.info("将为以下交易对重建: {}", symbols);
 
+        // 1. 加载每个交易对最近的活跃订单快照，按快照日志序号所属的流水线 (即上次启动时所在的流水线) 分组。
+        //    快照尽量选在该流水线的持久化检查点之前，检查点之后的指令重新撮合时能补写持久化数据
+        Path journalRoot = Paths.get(journalBaseDirectory);
+        Properties previousPipelines = loadPipelineAssignments(journalRoot);
+        Map<String, RebuildState> states = new HashMap<>();
+        Map<String, Map<String, RebuildState>> statesByPipeline = new LinkedHashMap<>();
         for (String symbol : symbols) {
-            // 1. 重建订单簿
             try {
-                String snapshotJson = redisTemplate.opsForValue().get("orderbook:snapshot:" + symbol);
-                if (snapshotJson != null) {
-                    List<OrderEntity> activeOrders = objectMapper.readValue(snapshotJson, new TypeReference<List<OrderEntity>>() {});
-                    if (!activeOrders.isEmpty()) {
-                        OrderBook rebuiltOrderBook = new OrderBook(symbol);
-                        for (OrderEntity order : activeOrders) {
-                            rebuiltOrderBook.add(order);
-                        }
-                        
-                        MatchingHandler targetHandler = disruptorManager.getMatchingHandler(symbol);
-                        targetHandler.getBooks().put(symbol, rebuiltOrderBook);
-                        targetHandler.rebuildCache(symbol, rebuiltOrderBook);
-                        log.info("成功从Redis快照重建订单簿: {}, 包含 {} 个活跃订单。", symbol, activeOrders.size());
-                    }
-                } else {
-                    log.warn("在Redis中找不到 {} 的订单簿快照。", symbol);
+                String pipeline = disruptorManager.getPipeline(symbol);
+                String previousPipeline = previousPipelineOf(previousPipelines, journalRoot, symbol, pipeline);
+                OrderBook rebuiltOrderBook = orderBookFactory.create(symbol);
+                RecoveredOrders recovered = loadLocalSnapshot(symbol, rebuiltOrderBook, persistedSeqOf(previousPipeline, symbol));
+                if (recovered == null) {
+                    recovered = loadActiveOrders(symbol, rebuiltOrderBook);
                 }
+                for (EngineOrder order : recovered.orders()) {
+                    rebuiltOrderBook.add(order);
+                }
+                if (!previousPipeline.equals(pipeline)) {
+                    log.info("交易对 {} 从流水线 {} 迁移到 {}，将回放原流水线的日志。", symbol, previousPipeline, pipeline);
+                }
+                RebuildState state = new RebuildState(rebuiltOrderBook, recovered, !previousPipeline.equals(pipeline));
+                states.put(symbol, state);
+                statesByPipeline.computeIfAbsent(previousPipeline, k -> new LinkedHashMap<>()).put(symbol, state);
+            } catch (Exception e) {
+                log.error("重建订单簿失败: symbol={}", symbol, e);
+            }
+        }
+
+        // 2. 每条流水线的日志只读一遍，按交易对分发到各自的订单簿上回放
+        for (Map.Entry<String, Map<String, RebuildState>> entry : statesByPipeline.entrySet()) {
+            String pipeline = entry.getKey();
+            Map<String, RebuildState> pipelineStates = entry.getValue();
+            String anySymbol = pipelineStates.keySet().iterator().next();
+            try {
+                Path journalDirectory = disruptorManager.getJournalDirectory(anySymbol) == null ? null : journalRoot.resolve(pipeline);
+                replayJournal(pipeline, journalDirectory, disruptorManager.getMatchingHandler(anySymbol), pipelineStates);
+            } catch (PersistenceReplayException e) {
+                // 缓冲区中的数据没能补写，不能带着缺失的成交和结算开始接收新指令
+                throw e;
             } catch (Exception e) {
-                log.error("从Redis快照重建订单簿失败: symbol={}", symbol, e);
+                log.error("回放流水线 {} 的日志失败，跳过其中交易对的重建: {}", pipeline, pipelineStates.keySet(), e);
+                states.keySet().removeAll(pipelineStates.keySet());
+            }
+        }
+
+        for (String symbol : symbols) {
+            // 3. 安装重建后的订单簿
+            RebuildState state = states.get(symbol);
+            if (state != null) {
+                try {
+                    if (state.migrated) {
+                        // 此后的指令写入新流水线的日志，订单簿的日志序号改为新流水线的当前位置
+                        state.orderBook.setLastJournalSeq(disruptorManager.getJournalLastSequence(symbol));
+                    }
+                    installRebuiltBook(symbol, state);
+                    // 活跃订单已由哈希维护，旧版全量快照不再写入，删除以免日后被误用
+                    redisTemplate.delete(LEGACY_SNAPSHOT_KEY_PREFIX + symbol);
+                } catch (Exception e) {
+                    log.error("重建订单簿失败: symbol={}", symbol, e);
+                }
             }
 
-            // 2. 恢复并预热最新成交价
+            // 4. 恢复并预热最新成交价
             try {
                 Trade lastTrade = tradeMapper.findLastTradeBySymbol(symbol);
                 if (lastTrade != null) {
@@ -79,6 +152,275 @@ public class OrderBookRebuilder implements ApplicationRunner {
             }
         }
 
+        savePipelineAssignments(journalRoot, symbols);
         log.info("重建过程完成。");
     }
+
+    /**
+     * 流水线上所有记录检查点的持久化处理器都已落库的日志序号；未启用日志或没有检查点时返回 Long.MAX_VALUE (不限制快照的选择)。
+     */
+    private long persistedSeqOf(String pipeline, String symbol) {
+        if (disruptorManager.getJournalDirectory(symbol) == null) {
+            return Long.MAX_VALUE;
+        }
+        long persistedSeq = Long.MAX_VALUE;
+        for (long journalSeq : disruptorManager.getPersistenceCheckpoints(pipeline).values()) {
+            persistedSeq = Math.min(persistedSeq, journalSeq);
+        }
+        return persistedSeq;
+    }
+
+    private Properties loadPipelineAssignments(Path journalRoot) throws IOException {
+        Properties assignments = new Properties();
+        Path file = journalRoot.resolve(PIPELINE_ASSIGNMENTS_FILE);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                assignments.load(reader);
+            }
+        }
+        return assignments;
+    }
+
+    /**
+     * 交易对上次所在的流水线。没有记录时，若存在以交易对命名的日志目录 (分片之前的布局) 则为该目录，否则视为未迁移。
+     */
+    private static String previousPipelineOf(Properties assignments, Path journalRoot, String symbol, String pipeline) {
+        String previous = assignments.getProperty(symbol);
+        if (previous != null) {
+            return previous;
+        }
+        return !assignments.isEmpty() || pipeline.equals(symbol) || !Files.isDirectory(journalRoot.resolve(symbol)) ? pipeline : symbol;
+    }
+
+    private void savePipelineAssignments(Path journalRoot, List<String> symbols) {
+        if (symbols.isEmpty() || disruptorManager.getJournalDirectory(symbols.get(0)) == null) {
+            return;
+        }
+        Properties assignments = new Properties();
+        for (String symbol : symbols) {
+            assignments.setProperty(symbol, disruptorManager.getPipeline(symbol));
+        }
+        Path file = journalRoot.resolve(PIPELINE_ASSIGNMENTS_FILE);
+        Path temp = journalRoot.resolve(PIPELINE_ASSIGNMENTS_FILE + ".tmp");
+        try {
+            Files.createDirectories(journalRoot);
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                assignments.store(writer, "symbol -> pipeline");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("保存流水线分配记录失败: {}", file, e);
+        }
+    }
+
+    private void installRebuiltBook(String symbol, RebuildState state) {
+        OrderBook rebuiltOrderBook = state.orderBook;
+        RecoveredOrders recovered = state.recovered;
+        if (recovered.orders().isEmpty() && state.replayed == 0) {
+            return;
+        }
+        OrderBookUpdate update = disruptorManager.getMatchingHandler(symbol).installRebuiltBook(symbol, rebuiltOrderBook);
+        // 预热显示快照并通知所有在线用户 (同时把活跃订单写回哈希)
+        disruptorManager.getMarketDataHandler(symbol).publish(update);
+        SnapshotHandler snapshotHandler = disruptorManager.getSnapshotHandler(symbol);
+        if (snapshotHandler != null) {
+            snapshotHandler.seed(update);
+        }
+        log.info("成功重建订单簿: {}, 快照 {} 个活跃订单, 回放 {} 条日志, 当前 {} 个活跃订单。",
+                symbol, recovered.orders().size(), state.replayed, rebuiltOrderBook.getOrderMap().size());
+    }
+
+    /**
+     * 从流水线日志中回放各交易对快照之后的指令：从所有快照中最小的日志序号开始读一遍，
+     * 每条指令只应用到其交易对、且序号大于该交易对快照序号的订单簿上。
+     * 快照不带日志序号 (日志启用之前写入) 的交易对不参与回放。
+     * <p>
+     * 同时补写持久化数据：重新撮合的指令序号大于某个持久化处理器的检查点时，把撮合结果交给该处理器的补写实例，
+     * 补回崩溃时还留在缓冲区中的成交、订单状态和结算。补写失败时抛出 {@link PersistenceReplayException}。
+     */
+    private void replayJournal(String pipeline, Path journalDirectory, MatchingHandler handler,
+                               Map<String, RebuildState> states) throws IOException {
+        if (journalDirectory == null) {
+            return;
+        }
+        long fromSeq = Long.MAX_VALUE;
+        for (Map.Entry<String, RebuildState> entry : states.entrySet()) {
+            long afterSeq = entry.getValue().recovered.journalSeq();
+            if (afterSeq < 0) {
+                log.warn("{} 的活跃订单快照不带日志序号，跳过日志回放。", entry.getKey());
+                continue;
+            }
+            entry.getValue().orderBook.setLastJournalSeq(afterSeq);
+            fromSeq = Math.min(fromSeq, afterSeq);
+        }
+        if (fromSeq == Long.MAX_VALUE) {
+            return;
+        }
+
+        Map<String, Long> checkpoints = disruptorManager.getPersistenceCheckpoints(pipeline);
+        List<BatchingPersistenceHandler<?>> persistence = new ArrayList<>();
+        List<Long> persistedSeqs = new ArrayList<>();
+        for (BatchingPersistenceHandler<?> persistenceHandler : disruptorManager.createReplayHandlers(pipeline)) {
+            Long persistedSeq = checkpoints.get(persistenceHandler.getClass().getSimpleName());
+            if (persistedSeq == null) {
+                log.info("{} 在流水线 {} 上还没有持久化检查点，不补写。", persistenceHandler.getClass().getSimpleName(), pipeline);
+                continue;
+            }
+            persistence.add(persistenceHandler);
+            persistedSeqs.add(persistedSeq);
+        }
+
+        long minPersistedSeq = minOf(persistedSeqs);
+        long[] missed = new long[1];
+        JournalReader.replay(journalDirectory, fromSeq, event -> {
+            RebuildState state = states.get(symbolOf(event));
+            if (state == null || state.recovered.journalSeq() < 0 || event.getJournalSeq() <= state.recovered.journalSeq()) {
+                // 订单簿已包含该指令 (或无法回放)，撮合结果无从得知；检查点之后的此类指令无法补写
+                if (event.getJournalSeq() > minPersistedSeq) {
+                    missed[0]++;
+                }
+                return;
+            }
+            try {
+                handler.replay(state.orderBook, event);
+                state.replayed++;
+            } catch (RuntimeException e) {
+                // 与线上撮合阶段一致：出错的指令跳过，不中断整条流水线的回放
+                log.error("回放日志记录失败，跳过: pipeline={}, journalSeq={}, event={}", pipeline, event.getJournalSeq(), event, e);
+                return;
+            }
+            for (int i = 0; i < persistence.size(); i++) {
+                if (event.getJournalSeq() > persistedSeqs.get(i)) {
+                    replayPersistence(pipeline, persistence.get(i), event);
+                }
+            }
+        });
+        for (BatchingPersistenceHandler<?> persistenceHandler : persistence) {
+            try {
+                persistenceHandler.finishReplay();
+            } catch (RuntimeException e) {
+                throw new PersistenceReplayException(pipeline, persistenceHandler, e);
+            }
+        }
+        if (missed[0] > 0) {
+            log.error("流水线 {} 有 {} 条持久化检查点之后的指令已包含在订单簿快照中，其持久化数据无法补写。", pipeline, missed[0]);
+        }
+        log.info("流水线 {} 的日志回放完成。", pipeline);
+    }
+
+    private static void replayPersistence(String pipeline, BatchingPersistenceHandler<?> persistenceHandler, DisruptorEvent event) {
+        try {
+            persistenceHandler.replay(event);
+        } catch (RuntimeException e) {
+            throw new PersistenceReplayException(pipeline, persistenceHandler, e);
+        }
+    }
+
+    private static long minOf(List<Long> values) {
+        long min = Long.MAX_VALUE;
+        for (long value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    // 撤单和强制移除的交易对都在 cancelOrder 中
+    private static String symbolOf(DisruptorEvent event) {
+        return event.getType() == EventType.PLACE_ORDER ? event.getPlaceOrder().getSymbol() : event.getCancelOrder().getSymbol();
+    }
+
+    /**
+     * 读取本地不晚于 maxJournalSeq 的最新有效二进制快照，没有时退回最新的快照 (此时检查点之后、快照之前的持久化数据无法补写)。
+     * 未启用快照、没有有效快照或精度与当前交易对配置不一致时返回 null。
+     */
+    private RecoveredOrders loadLocalSnapshot(String symbol, OrderBook orderBook, long maxJournalSeq) throws IOException {
+        SnapshotHandler snapshotHandler = disruptorManager.getSnapshotHandler(symbol);
+        if (snapshotHandler == null) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        Path directory = snapshotHandler.getDirectory(symbol);
+        OrderBookSnapshotFile.Content content = OrderBookSnapshotFile.readLatest(directory, maxJournalSeq);
+        if (content == null && maxJournalSeq != Long.MAX_VALUE) {
+            content = OrderBookSnapshotFile.readLatest(directory);
+            if (content != null) {
+                log.warn("{} 没有持久化检查点 (journalSeq={}) 之前的快照，改用最新快照。", symbol, maxJournalSeq);
+            }
+        }
+        if (content == null) {
+            return null;
+        }
+        if (content.priceScale() != orderBook.getPriceScale() || content.quantityScale() != orderBook.getQuantityScale()) {
+            log.warn("{} 的本地快照精度与当前配置不一致，改用Redis中的活跃订单。", symbol);
+            return null;
+        }
+        log.info("已加载 {} 的本地快照: journalSeq={}, {} 个活跃订单, 耗时 {} ms",
+                symbol, content.journalSeq(), content.orders().size(), System.currentTimeMillis() - start);
+        return new RecoveredOrders(content.orders(), content.journalSeq());
+    }
+
+    /**
+     * 读取活跃订单快照：优先使用增量维护的哈希，哈希不存在时回退到旧版的全量JSON快照。
+     * 订单按ID排序，ID随下单时间递增，从而还原同一价格档位内的时间优先顺序。
+     * 哈希带有日志序号时一并返回；两者都不存在时视为空订单簿，从日志开头回放。
+     */
+    private RecoveredOrders loadActiveOrders(String symbol, OrderBook orderBook) throws IOException {
+        String seqValue = redisTemplate.opsForValue().get(MarketDataHandler.ACTIVE_ORDERS_SEQ_KEY_PREFIX + symbol);
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(MarketDataHandler.ACTIVE_ORDERS_KEY_PREFIX + symbol);
+        if (seqValue != null || !entries.isEmpty()) {
+            List<OrderEntity> activeOrders = new ArrayList<>(entries.size());
+            for (Object json : entries.values()) {
+                activeOrders.add(objectMapper.readValue((String) json, OrderEntity.class));
+            }
+            activeOrders.sort(Comparator.comparing(OrderEntity::getId));
+            return new RecoveredOrders(toEngineOrders(activeOrders, orderBook), seqValue != null ? Long.parseLong(seqValue) : -1);
+        }
+
+        String snapshotJson = redisTemplate.opsForValue().get(LEGACY_SNAPSHOT_KEY_PREFIX + symbol);
+        if (snapshotJson == null) {
+            log.warn("在Redis中找不到 {} 的活跃订单快照。", symbol);
+            return new RecoveredOrders(List.of(), 0);
+        }
+        log.info("{} 的活跃订单哈希不存在，回退到旧版全量快照。", symbol);
+        return new RecoveredOrders(toEngineOrders(objectMapper.readValue(snapshotJson, new TypeReference<List<OrderEntity>>() {}), orderBook), -1);
+    }
+
+    private static List<EngineOrder> toEngineOrders(List<OrderEntity> entities, OrderBook orderBook) {
+        List<EngineOrder> orders = new ArrayList<>(entities.size());
+        for (OrderEntity entity : entities) {
+            orders.add(EngineOrder.fromEntity(entity, orderBook.getPriceScale(), orderBook.getQuantityScale()));
+        }
+        return orders;
+    }
+
+    /**
+     * @param journalSeq 快照已包含的最后一条日志序号，-1 表示未知
+     */
+    private record RecoveredOrders(List<EngineOrder> orders, long journalSeq) {}
+
+    /**
+     * 启动补写持久化数据失败。此时不能继续启动，否则缺失的数据再也不会被补写。
+     */
+    private static final class PersistenceReplayException extends IllegalStateException {
+        private PersistenceReplayException(String pipeline, BatchingPersistenceHandler<?> handler, Throwable cause) {
+            super("补写流水线 " + pipeline + " 的 " + handler.getClass().getSimpleName() + " 持久化数据失败", cause);
+        }
+    }
+
+    /**
+     * 单个交易对的重建进度。
+     */
+    private static final class RebuildState {
+        private final OrderBook orderBook;
+        private final RecoveredOrders recovered;
+        // 交易对已迁移到其他流水线：快照的日志序号属于原流水线
+        private final boolean migrated;
+        private long replayed;
+
+        private RebuildState(OrderBook orderBook, RecoveredOrders recovered, boolean migrated) {
+            this.orderBook = orderBook;
+            this.recovered = recovered;
+            this.migrated = migrated;
+        }
+    }
 }
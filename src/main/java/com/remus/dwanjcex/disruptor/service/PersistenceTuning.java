@@ -0,0 +1,47 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import com.remus.dwanjcex.disruptor.handler.AdaptiveBatchController;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 持久化阶段的批量调优配置，为每条流水线的每个持久化处理器创建独立的自适应批量控制器，
+ * 其指标以流水线名称和处理器名称区分。
+ * <p>
+ * 最小批量是收缩的下限，避免低成交量时退化为逐条写出 (此时由最大延迟保证新鲜度)，最大批量限制高峰时单次写出的规模，
+ * 最大延迟是任何数据在缓冲区中等待的上限，由定时心跳保证在没有新事件时也能兑现。
+ */
+@Slf4j
+@Component
+public class PersistenceTuning {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final long targetFlushMs;
+    private final MeterRegistry meterRegistry;
+
+    public PersistenceTuning(@Value("${cex.persistence.batch.min-size:32}") int minBatchSize,
+                             @Value("${cex.persistence.batch.max-size:1000}") int maxBatchSize,
+                             @Value("${cex.persistence.batch.max-delay-ms:200}") long maxDelayMs,
+                             @Value("${cex.persistence.batch.target-flush-ms:20}") long targetFlushMs,
+                             MeterRegistry meterRegistry) {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("无效的持久化批量范围: min-size=" + minBatchSize + ", max-size=" + maxBatchSize);
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.targetFlushMs = targetFlushMs;
+        this.meterRegistry = meterRegistry;
+        log.info("持久化批量调优: 批量={}~{}, 最大延迟={}ms, 目标写出耗时={}ms", minBatchSize, maxBatchSize, maxDelayMs, targetFlushMs);
+    }
+
+    public AdaptiveBatchController controllerFor(String pipeline, String handlerName) {
+        return new AdaptiveBatchController(minBatchSize, maxBatchSize, maxDelayMs, targetFlushMs,
+                meterRegistry, Tags.of("pipeline", pipeline, "handler", handlerName));
+    }
+}
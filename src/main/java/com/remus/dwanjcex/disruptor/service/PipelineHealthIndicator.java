@@ -0,0 +1,28 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 撮合流水线的健康状态：任一阶段因异常停止 (日志写入失败，或处理器无法保证数据不丢失) 时为 DOWN，
+ * 该分片上的指令已无法继续处理，需要人工介入并重启。
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineHealthIndicator implements HealthIndicator {
+
+    private final DisruptorManager disruptorManager;
+
+    @Override
+    public Health health() {
+        List<String> halted = disruptorManager.getHaltedStages();
+        if (halted.isEmpty()) {
+            return Health.up().build();
+        }
+        return Health.down().withDetail("haltedStages", halted).build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.TimeoutBlockingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 各撮合流水线的线程调优配置：等待策略与撮合线程的CPU绑定，均按流水线名称 (独占交易对的名称或 shard-N) 配置。
+ * <p>
+ * busy-spin 只作用于日志和撮合线程 (见 {@link HotPathWaitStrategy})，每条这样的流水线占满两个核，
+ * 持久化、行情等其余处理线程阻塞等待；其他策略作用于整条流水线的所有处理线程：
+ * yielding 延迟次之，sleeping 和 blocking 在空闲时几乎不占CPU，适合低成交量的共享分片。
+ */
+@Slf4j
+@Component
+public class PipelineTuning {
+
+    private static final Pattern CPU_LIST = Pattern.compile("\\d+(-\\d+)?");
+    // busy-spin 流水线上忙等的线程数 (日志、撮合)
+    private static final int SPINNING_THREADS_PER_PIPELINE = 2;
+
+    private final String defaultWaitStrategy;
+    private final long timeoutMs;
+    private final Map<String, String> waitStrategies;
+    private final Map<String, String> cpuAffinities;
+    private final AtomicInteger spinningThreads = new AtomicInteger();
+
+    public PipelineTuning(@Value("${cex.engine.wait-strategy.default:blocking}") String defaultWaitStrategy,
+                          @Value("${cex.engine.wait-strategy.pipelines:}") String[] waitStrategies,
+                          @Value("${cex.engine.wait-strategy.timeout-ms:100}") long timeoutMs,
+                          @Value("${cex.engine.cpu-affinity:}") String[] cpuAffinities) {
+        this.defaultWaitStrategy = defaultWaitStrategy.trim();
+        this.timeoutMs = timeoutMs;
+        this.waitStrategies = parse(waitStrategies, "cex.engine.wait-strategy.pipelines");
+        this.cpuAffinities = parse(cpuAffinities, "cex.engine.cpu-affinity");
+        // 启动时校验配置，避免到创建流水线时才发现拼写错误
+        createWaitStrategy(this.defaultWaitStrategy);
+        this.waitStrategies.values().forEach(this::createWaitStrategy);
+        this.cpuAffinities.forEach((pipeline, cpus) -> {
+            if (!CPU_LIST.matcher(cpus).matches()) {
+                throw new IllegalArgumentException("无效的CPU绑定 (应为 CPU 或 起始-结束): " + pipeline + ":" + cpus);
+            }
+        });
+        log.info("撮合流水线调优: 默认等待策略={}, 按流水线={}, CPU绑定={}", this.defaultWaitStrategy, this.waitStrategies, this.cpuAffinities);
+    }
+
+    /**
+     * 创建流水线的等待策略。busy-spin 流水线忙等的线程总数超过可用核数 (留一个核给其余线程) 时记录警告。
+     */
+    public WaitStrategy waitStrategyFor(String pipeline) {
+        WaitStrategy waitStrategy = createWaitStrategy(waitStrategies.getOrDefault(pipeline, defaultWaitStrategy));
+        if (waitStrategy instanceof HotPathWaitStrategy) {
+            int spinning = spinningThreads.addAndGet(SPINNING_THREADS_PER_PIPELINE);
+            int available = Runtime.getRuntime().availableProcessors();
+            if (spinning > available - 1) {
+                log.warn("流水线 {} 使用 busy-spin，忙等线程共 {} 个，超过可用核数 {} - 1，忙等线程之间以及与其他线程将争抢CPU。",
+                        pipeline, spinning, available);
+            }
+        }
+        return waitStrategy;
+    }
+
+    /**
+     * 流水线撮合线程要绑定的CPU (taskset 的CPU列表格式)，未配置时返回 null。
+     */
+    public String cpuAffinityFor(String pipeline) {
+        return cpuAffinities.get(pipeline);
+    }
+
+    private WaitStrategy createWaitStrategy(String name) {
+        switch (name) {
+            case "busy-spin":
+                return new HotPathWaitStrategy();
+            case "yielding":
+                return new YieldingWaitStrategy();
+            case "sleeping":
+                return new SleepingWaitStrategy();
+            case "blocking":
+                return new BlockingWaitStrategy();
+            case "timeout-blocking":
+                return new TimeoutBlockingWaitStrategy(timeoutMs, TimeUnit.MILLISECONDS);
+            default:
+                throw new IllegalArgumentException("未知的等待策略: " + name
+                        + " (可选 busy-spin, yielding, sleeping, blocking, timeout-blocking)");
+        }
+    }
+
+    private static Map<String, String> parse(String[] entries, String property) {
+        Map<String, String> result = new HashMap<>();
+        for (String entry : entries) {
+            String trimmed = entry.trim();
+            if (trimmed.isEmpty()) continue;
+            int colon = trimmed.indexOf(':');
+            if (colon <= 0 || colon == trimmed.length() - 1) {
+                throw new IllegalArgumentException("无效的配置 " + property + " (应为 流水线:值): " + trimmed);
+            }
+            result.put(trimmed.substring(0, colon).trim(), trimmed.substring(colon + 1).trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import com.lmax.disruptor.ExceptionHandler;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.handler.StageHaltException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 流水线中一个阶段的异常处理器。
+ * <p>
+ * 只有日志阶段是 fail-stop 的：未记入日志的指令不得进入撮合，写日志失败时停止该阶段 (其后的阶段随之停止)。
+ * 其余阶段记录日志和计数后跳过出错的事件继续运行，一条异常的指令不会冻结整个分片；
+ * 处理器认定继续运行会丢失数据时抛出 {@link StageHaltException}，同样停止该阶段。
+ * <p>
+ * 指标 cex.pipeline.stage.errors 统计各阶段的异常事件数，cex.pipeline.stage.halted 为 1 表示该阶段已停止，
+ * 已停止的阶段同时使健康检查变为 DOWN (见 {@link PipelineHealthIndicator})。
+ */
+@Slf4j
+class StageExceptionHandler implements ExceptionHandler<DisruptorEvent> {
+
+    @Getter
+    private final String pipeline;
+    @Getter
+    private final String stage;
+    private final boolean failStop;
+    private final Counter errors;
+
+    @Getter
+    private volatile boolean halted;
+
+    StageExceptionHandler(String pipeline, String stage, boolean failStop, MeterRegistry registry) {
+        this.pipeline = pipeline;
+        this.stage = stage;
+        this.failStop = failStop;
+        Tags tags = Tags.of("pipeline", pipeline, "stage", stage);
+        this.errors = Counter.builder("cex.pipeline.stage.errors")
+                .description("流水线各阶段处理失败的事件数").tags(tags).register(registry);
+        Gauge.builder("cex.pipeline.stage.halted", this, handler -> handler.halted ? 1 : 0)
+                .description("流水线阶段是否已因异常停止").tags(tags).register(registry);
+    }
+
+    @Override
+    public void handleEventException(Throwable ex, long sequence, DisruptorEvent event) {
+        errors.increment();
+        if (failStop || ex instanceof StageHaltException) {
+            halted = true;
+            log.error("流水线 {} 的 {} 阶段处理事件失败，该阶段停止: sequence={}, event={}", pipeline, stage, sequence, event, ex);
+            throw new RuntimeException(ex);
+        }
+        log.error("流水线 {} 的 {} 阶段处理事件失败，跳过该事件: sequence={}, event={}", pipeline, stage, sequence, event, ex);
+    }
+
+    @Override
+    public void handleOnStartException(Throwable ex) {
+        log.error("流水线 {} 的 {} 阶段启动失败。", pipeline, stage, ex);
+    }
+
+    @Override
+    public void handleOnShutdownException(Throwable ex) {
+        log.error("流水线 {} 的 {} 阶段关闭失败。", pipeline, stage, ex);
+    }
+}
@@ -0,0 +1,199 @@
+package com.remus.dwanjcex.disruptor.snapshot;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.engine.EngineOrder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 订单簿的二进制时间点快照文件。
+ * <p>
+ * 文件格式 (均为大端)：
+ * <pre>
+ * int  magic, int version
+ * long journalSeq        // 快照已包含的最后一条日志序号
+ * int  priceScale, int quantityScale
+ * str  symbol            // short 长度 + UTF-8 字节
+ * int  orderCount
+ * 订单 * orderCount       // long id, long userId, byte side, byte type, long price, long quantity,
+ *                        // long filled, long quoteAmount, long quoteFilled
+ * int  crc               // CRC32C，覆盖之前的全部内容
+ * </pre>
+ * 订单按在订单簿中的先后 (同价位内的时间优先) 顺序写入。文件先写入临时文件再原子重命名，
+ * 文件名为快照的日志序号，因此目录中按文件名排序即为新旧顺序。
+ */
+@Slf4j
+public final class OrderBookSnapshotFile {
+
+    private static final int MAGIC = 0x43455853; // "CEXS"
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".snapshot";
+    private static final int ORDER_LENGTH = 8 * 7 + 2;
+
+    private OrderBookSnapshotFile() {
+    }
+
+    /**
+     * 快照内容。
+     */
+    public record Content(String symbol, long journalSeq, int priceScale, int quantityScale, List<EngineOrder> orders) {}
+
+    /**
+     * 写入一份快照，并只保留最新的 retain 份。
+     */
+    public static Path write(Path directory, String symbol, long journalSeq, int priceScale, int quantityScale,
+                             Collection<EngineOrder> orders, int retain) throws IOException {
+        Files.createDirectories(directory);
+        byte[] symbolBytes = symbol.getBytes(StandardCharsets.UTF_8);
+        long size = 4 + 4 + 8 + 4 + 4 + 2 + symbolBytes.length + 4 + (long) ORDER_LENGTH * orders.size() + 4;
+
+        Path target = directory.resolve(String.format("%020d%s", journalSeq, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(journalSeq).putInt(priceScale).putInt(quantityScale);
+            buffer.putShort((short) symbolBytes.length).put(symbolBytes);
+            buffer.putInt(orders.size());
+            for (EngineOrder order : orders) {
+                buffer.putLong(order.getId()).putLong(order.getUserId());
+                buffer.put((byte) order.getSide().ordinal()).put((byte) order.getType().ordinal());
+                buffer.putLong(order.getPrice()).putLong(order.getQuantity()).putLong(order.getFilled());
+                buffer.putLong(order.getQuoteAmount()).putLong(order.getQuoteFilled());
+            }
+            buffer.putInt(checksum(buffer, buffer.position()));
+            buffer.force();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> snapshots = list(directory);
+        for (int i = 0; i < snapshots.size() - retain; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return target;
+    }
+
+    /**
+     * 读取目录中最新的有效快照；损坏或不完整的快照会被跳过并回退到更早的一份，没有有效快照时返回 null。
+     */
+    public static Content readLatest(Path directory) throws IOException {
+        return readLatest(directory, Long.MAX_VALUE);
+    }
+
+    /**
+     * 同 {@link #readLatest(Path)}，只考虑日志序号不超过 maxJournalSeq 的快照。
+     */
+    public static Content readLatest(Path directory, long maxJournalSeq) throws IOException {
+        List<Path> snapshots = list(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            if (journalSeqOf(path) > maxJournalSeq) continue;
+            try {
+                Content content = read(path);
+                if (content != null) {
+                    return content;
+                }
+                log.warn("快照文件校验失败，尝试更早的快照: {}", path);
+            } catch (IOException | RuntimeException e) {
+                log.warn("读取快照文件失败，尝试更早的快照: {}", path, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 目录中最早一份快照的日志序号 (取自文件名)，没有快照时返回 -1。
+     * 最新快照损坏时读取会回退到更早的快照，因此日志只能清理到这一序号为止。
+     */
+    public static long oldestJournalSeq(Path directory) throws IOException {
+        List<Path> snapshots = list(directory);
+        if (snapshots.isEmpty()) {
+            return -1;
+        }
+        return journalSeqOf(snapshots.get(0));
+    }
+
+    // --- Helper Methods ---
+
+    private static long journalSeqOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static Content read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 + 4 + 8 + 4 + 4 + 2 + 4 + 4) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int crcPosition = (int) size - 4;
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getInt(crcPosition) != checksum(buffer, crcPosition)) {
+                return null;
+            }
+            buffer.position(8);
+            long journalSeq = buffer.getLong();
+            int priceScale = buffer.getInt();
+            int quantityScale = buffer.getInt();
+            byte[] symbolBytes = new byte[buffer.getShort()];
+            buffer.get(symbolBytes);
+            String symbol = new String(symbolBytes, StandardCharsets.UTF_8);
+
+            int count = buffer.getInt();
+            OrderTypes.Side[] sides = OrderTypes.Side.values();
+            OrderTypes.OrderType[] types = OrderTypes.OrderType.values();
+            List<EngineOrder> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                EngineOrder order = new EngineOrder();
+                order.setId(buffer.getLong());
+                order.setUserId(buffer.getLong());
+                order.setSymbol(symbol);
+                order.setSide(sides[buffer.get()]);
+                order.setType(types[buffer.get()]);
+                order.setPrice(buffer.getLong());
+                order.setQuantity(buffer.getLong());
+                order.setFilled(buffer.getLong());
+                order.setQuoteAmount(buffer.getLong());
+                order.setQuoteFilled(buffer.getLong());
+                orders.add(order);
+            }
+            return new Content(symbol, journalSeq, priceScale, quantityScale, orders);
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(length).position(0);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+}
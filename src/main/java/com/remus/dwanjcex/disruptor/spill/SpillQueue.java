@@ -0,0 +1,292 @@
+package com.remus.dwanjcex.disruptor.spill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 一个持久化处理器的溢写队列：写库失败的批次追加到本地文件，由后台线程按指数退避依次重试写库。
+ * <p>
+ * 文件中每条记录为 [长度 int][CRC32 int][批次JSON]，只在末尾追加；已成功写库的位置记录在同名的 .offset 文件中，
+ * 队列排空后两个文件都被截断。启动时从记录的位置恢复，末尾不完整或校验失败的记录被截掉，
+ * 恢复出的批次由 {@link #drain()} 在处理器开始消费前同步补写。
+ * 队列非空期间，处理器的新批次也追加到队列末尾而不是直接写库，保证同一处理器的批次按原顺序落库
+ * (例如同一订单的新状态不会被重试的旧状态覆盖)。
+ * <p>
+ * 重试为至少一次：写库成功后、记录位置前进程退出 (或提交结果不明) 时，重启后该批次会再写一次，
+ * 由写入方保证重复写入无害 (批次ID在同一事务中登记，见 {@link com.remus.dwanjcex.wallet.mapper.AppliedBatchMapper})。
+ * 追加在处理器线程上调用，重试在后台线程执行，两者通过本对象的锁协调，写库本身不持锁。
+ */
+@Slf4j
+public class SpillQueue<B> implements Closeable {
+
+    private static final int HEADER_LENGTH = 8;
+
+    private final String name;
+    private final Class<B> batchType;
+    private final Consumer<B> writer;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService retryExecutor;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final Counter retryFailures;
+
+    private final FileChannel dataChannel;
+    private final FileChannel offsetChannel;
+
+    // 下一条待重试记录的位置与文件末尾
+    private long readOffset;
+    private long writeOffset;
+    private volatile int backlog;
+    private boolean retryScheduled;
+    private long backoffMs;
+
+    public SpillQueue(Path directory, String name, Class<B> batchType, Consumer<B> writer, ObjectMapper objectMapper,
+                      ScheduledExecutorService retryExecutor, long initialBackoffMs, long maxBackoffMs,
+                      MeterRegistry registry, Tags tags) throws IOException {
+        this.name = name;
+        this.batchType = batchType;
+        this.writer = writer;
+        this.objectMapper = objectMapper;
+        this.retryExecutor = retryExecutor;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.backoffMs = initialBackoffMs;
+
+        Files.createDirectories(directory);
+        this.dataChannel = FileChannel.open(directory.resolve(name + ".spill"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.offsetChannel = FileChannel.open(directory.resolve(name + ".offset"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+
+        Gauge.builder("cex.persistence.spill.backlog", this, SpillQueue::getBacklog)
+                .description("溢写队列中等待重试的批次数").tags(tags).register(registry);
+        Gauge.builder("cex.persistence.spill.bytes", this, SpillQueue::getBacklogBytes)
+                .description("溢写队列中等待重试的字节数").tags(tags).register(registry);
+        this.retryFailures = Counter.builder("cex.persistence.spill.retry.failures")
+                .description("溢写批次重试写库失败次数").tags(tags).register(registry);
+
+        if (backlog > 0) {
+            log.warn("溢写队列 {} 中有 {} 个上次未写库的批次，等待补写。", name, backlog);
+        }
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public synchronized long getBacklogBytes() {
+        return writeOffset - readOffset;
+    }
+
+    /**
+     * 队列非空时把批次追加到末尾并返回 true；队列为空时返回 false，由调用方直接写库。
+     */
+    public synchronized boolean appendIfBacklogged(B batch) throws IOException {
+        if (backlog == 0) return false;
+        append(batch);
+        return true;
+    }
+
+    /**
+     * 把批次追加到队列末尾并刷盘，之后由后台线程重试写库。
+     */
+    public synchronized void append(B batch) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(batch);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        long position = writeOffset;
+        while (record.hasRemaining()) {
+            position += dataChannel.write(record, position);
+        }
+        dataChannel.force(false);
+        writeOffset = position;
+        backlog++;
+        if (!retryScheduled) {
+            scheduleRetry(backoffMs);
+        }
+    }
+
+    private void scheduleRetry(long delayMs) {
+        if (retryExecutor.isShutdown()) return;
+        retryScheduled = true;
+        retryExecutor.schedule(this::retry, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 在调用线程上补写上次进程遗留的批次，直到队列排空；写库失败时按退避时间等待后继续。
+     * <p>
+     * 须在处理器开始消费之前调用：遗留批次 (例如余额差额) 是基于上次进程的内存状态计算的，
+     * 必须先于新事件落库，也必须先于本进程从数据库加载账户，否则加载到的余额缺少这些差额。
+     */
+    public void drain() throws InterruptedException {
+        if (backlog == 0) return;
+        log.warn("溢写队列 {} 开始补写 {} 个上次未写库的批次。", name, backlog);
+        while (!retryAll()) {
+            long delayMs;
+            synchronized (this) {
+                delayMs = backoffMs;
+                backoffMs = Math.min(maxBackoffMs, backoffMs * 2);
+            }
+            Thread.sleep(delayMs);
+        }
+    }
+
+    /**
+     * 后台重试：依次重试队首的批次，失败时按退避时间再次调度。
+     */
+    private void retry() {
+        if (!retryAll()) {
+            synchronized (this) {
+                backoff();
+            }
+        }
+    }
+
+    /**
+     * 依次重试队首的批次，队列排空时返回 true，读取或写库失败时返回 false。
+     */
+    private boolean retryAll() {
+        while (true) {
+            B batch;
+            long next;
+            synchronized (this) {
+                if (backlog == 0) {
+                    retryScheduled = false;
+                    return true;
+                }
+                try {
+                    ByteBuffer header = readFully(readOffset, HEADER_LENGTH);
+                    int length = header.getInt();
+                    ByteBuffer payload = readFully(readOffset + HEADER_LENGTH, length);
+                    next = readOffset + HEADER_LENGTH + length;
+                    try {
+                        batch = objectMapper.readValue(payload.array(), batchType);
+                    } catch (IOException e) {
+                        // 校验和通过但无法解析 (例如批次结构已变化)，重试也不会成功
+                        log.error("溢写队列 {} 中位于 {} 的批次无法解析，跳过: {}", name, readOffset,
+                                new String(payload.array(), StandardCharsets.UTF_8), e);
+                        advance(next);
+                        continue;
+                    }
+                } catch (IOException e) {
+                    log.error("读取溢写队列 {} 失败，{}ms 后重试。", name, backoffMs, e);
+                    return false;
+                }
+            }
+
+            try {
+                writer.accept(batch);
+            } catch (Exception e) {
+                retryFailures.increment();
+                synchronized (this) {
+                    log.warn("溢写队列 {} 重试写库失败 (积压 {} 个批次)，{}ms 后重试: {}", name, backlog, backoffMs, e.toString());
+                }
+                return false;
+            }
+
+            synchronized (this) {
+                try {
+                    advance(next);
+                } catch (IOException e) {
+                    log.error("记录溢写队列 {} 的重试位置失败。", name, e);
+                }
+                backoffMs = initialBackoffMs;
+            }
+        }
+    }
+
+    private void backoff() {
+        scheduleRetry(backoffMs);
+        backoffMs = Math.min(maxBackoffMs, backoffMs * 2);
+    }
+
+    /**
+     * 队首批次已处理，前进到下一条记录；队列排空时截断文件。须持有锁。
+     */
+    private void advance(long next) throws IOException {
+        readOffset = next;
+        backlog--;
+        if (backlog == 0) {
+            readOffset = 0;
+            writeOffset = 0;
+            dataChannel.truncate(0);
+            log.info("溢写队列 {} 已排空。", name);
+        }
+        offsetChannel.write(ByteBuffer.allocate(8).putLong(0, readOffset), 0);
+        offsetChannel.force(true);
+    }
+
+    /**
+     * 从上次记录的位置扫描文件，统计待重试的批次，并截掉末尾不完整或校验失败的记录。
+     */
+    private void recover() throws IOException {
+        ByteBuffer offset = ByteBuffer.allocate(8);
+        readOffset = offsetChannel.read(offset, 0) == 8 ? offset.getLong(0) : 0;
+        long size = dataChannel.size();
+        if (readOffset > size) {
+            readOffset = size;
+        }
+        long position = readOffset;
+        int count = 0;
+        while (position + HEADER_LENGTH <= size) {
+            ByteBuffer header = readFully(position, HEADER_LENGTH);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + HEADER_LENGTH + length > size) break;
+            CRC32 crc = new CRC32();
+            crc.update(readFully(position + HEADER_LENGTH, length));
+            if ((int) crc.getValue() != checksum) break;
+            position += HEADER_LENGTH + length;
+            count++;
+        }
+        if (position < size) {
+            log.warn("溢写队列 {} 末尾有 {} 字节不完整的记录，已截掉。", name, size - position);
+            dataChannel.truncate(position);
+        }
+        if (count == 0) {
+            // 上次排空后未来得及截断
+            position = 0;
+            readOffset = 0;
+            dataChannel.truncate(0);
+            offsetChannel.write(ByteBuffer.allocate(8), 0);
+        }
+        writeOffset = position;
+        backlog = count;
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (dataChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("溢写文件意外结束: " + name);
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        dataChannel.close();
+        offsetChannel.close();
+    }
+}
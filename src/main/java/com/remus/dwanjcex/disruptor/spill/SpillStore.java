@@ -0,0 +1,167 @@
+package com.remus.dwanjcex.disruptor.spill;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import com.remus.dwanjcex.wallet.mapper.AppliedBatchMapper;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 持久化溢写队列的配置与后台重试线程。每条流水线的每个持久化处理器各有一个队列，
+ * 文件位于 {dir}/{流水线}/{处理器}.spill；所有队列共用一个重试线程 (写库失败时它们面对的是同一个数据库)。
+ * <p>
+ * 批次按字段序列化为JSON，不经过 getter，也不受实体上面向接口输出的注解影响。
+ * 同时负责清理过期的已落库批次记录 (重投去重用，见 {@link AppliedBatchMapper})。
+ */
+@Slf4j
+@Component
+public class SpillStore {
+
+    private final Path directory;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final long appliedRetentionHours;
+    private final MeterRegistry meterRegistry;
+    private final AppliedBatchMapper appliedBatchMapper;
+    private final ObjectMapper objectMapper;
+    private final ScheduledThreadPoolExecutor retryExecutor;
+    private final List<SpillQueue<?>> queues = new CopyOnWriteArrayList<>();
+
+    public SpillStore(@Value("${cex.persistence.spill.dir:data/spill}") String directory,
+                      @Value("${cex.persistence.spill.retry-initial-ms:500}") long initialBackoffMs,
+                      @Value("${cex.persistence.spill.retry-max-ms:30000}") long maxBackoffMs,
+                      @Value("${cex.persistence.spill.applied-retention-hours:168}") long appliedRetentionHours,
+                      MeterRegistry meterRegistry, AppliedBatchMapper appliedBatchMapper) {
+        this.directory = Paths.get(directory);
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+        this.appliedRetentionHours = appliedRetentionHours;
+        this.meterRegistry = meterRegistry;
+        this.appliedBatchMapper = appliedBatchMapper;
+        this.objectMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                // 只按字段读写 (record 仍通过其构造器还原)，实体上的派生 getter 不进入文件
+                .visibility(PropertyAccessor.GETTER, JsonAutoDetect.Visibility.NONE)
+                .visibility(PropertyAccessor.IS_GETTER, JsonAutoDetect.Visibility.NONE)
+                .visibility(PropertyAccessor.SETTER, JsonAutoDetect.Visibility.NONE)
+                .visibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        this.retryExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "persistence-spill-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 关闭时不再执行尚在退避中的重试，留给下次启动
+        this.retryExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * 打开 (或恢复) 一个处理器的溢写队列，writer 在重试线程上写库。上次进程遗留的批次在返回前于调用线程上补写完毕，
+     * 补写期间数据库不可用时一直等待 (流水线不会在遗留批次落库之前启动)。
+     * 打开失败时抛出异常，流水线不会在无法溢写的情况下启动 (否则写库失败的批次只能丢弃)。
+     */
+    public <B> SpillQueue<B> open(String pipeline, String handlerName, Class<B> batchType, Consumer<B> writer) {
+        SpillQueue<B> queue;
+        try {
+            queue = new SpillQueue<>(directory.resolve(pipeline), handlerName, batchType, writer,
+                    objectMapper, retryExecutor, initialBackoffMs, maxBackoffMs,
+                    meterRegistry, Tags.of("pipeline", pipeline, "handler", handlerName));
+        } catch (IOException e) {
+            throw new IllegalStateException("打开 " + pipeline + " 的溢写队列 " + handlerName + " 失败", e);
+        }
+        queues.add(queue);
+        try {
+            queue.drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("补写 " + pipeline + " 的溢写队列 " + handlerName + " 时被中断", e);
+        }
+        return queue;
+    }
+
+    /**
+     * 溢写目录中仍有上次遗留批次的流水线。启动时须在任何账户加载之前创建这些流水线 (创建时补写遗留批次)。
+     */
+    public Set<String> pipelinesWithBacklog() {
+        Set<String> pipelines = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return pipelines;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.spill")) {
+                    for (Path file : files) {
+                        // 排空后文件被截断，非空即有遗留批次 (末尾不完整的记录在打开时截掉)
+                        if (Files.size(file) > 0) {
+                            pipelines.add(dir.getFileName().toString());
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("扫描溢写目录 " + directory + " 失败", e);
+        }
+        return pipelines;
+    }
+
+    /**
+     * 定期删除过期的已落库批次记录。任一溢写队列中还有待重试的批次时不删除 (其中可能有已提交过的批次)。
+     */
+    @Scheduled(fixedDelayString = "${cex.persistence.spill.applied-cleanup-ms:3600000}")
+    public void purgeAppliedBatches() {
+        for (SpillQueue<?> queue : queues) {
+            if (queue.getBacklog() > 0) return;
+        }
+        try {
+            int deleted = appliedBatchMapper.deleteOlderThan(LocalDateTime.now().minusHours(appliedRetentionHours));
+            if (deleted > 0) {
+                log.info("删除 {} 条过期的已落库批次记录。", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("删除过期的已落库批次记录失败: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        retryExecutor.shutdown();
+        try {
+            // 正在进行的重试写完再关闭文件，未重试的批次留在文件中，下次启动继续
+            retryExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SpillQueue<?> queue : queues) {
+            try {
+                queue.close();
+            } catch (IOException e) {
+                log.warn("关闭溢写队列失败。", e);
+            }
+        }
+    }
+}
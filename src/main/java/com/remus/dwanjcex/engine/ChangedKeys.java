@@ -0,0 +1,43 @@
+package com.remus.dwanjcex.engine;
+
+/**
+ * 记录自上次取出以来发生变化的键 (价格档位或订单ID)，按首次标记的顺序保存并去重。
+ * <p>
+ * 只由撮合线程读写；取出时按记录的键回查当前状态，已不存在的键表示被移除。
+ */
+class ChangedKeys {
+
+    private final LongObjectHashMap<Boolean> marked = new LongObjectHashMap<>(64);
+    private long[] keys = new long[64];
+    private int size;
+
+    void mark(long key) {
+        if (marked.put(key, Boolean.TRUE) != null) {
+            return;
+        }
+        if (size == keys.length) {
+            long[] grown = new long[size << 1];
+            System.arraycopy(keys, 0, grown, 0, size);
+            keys = grown;
+        }
+        keys[size++] = key;
+    }
+
+    long get(int index) {
+        return keys[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        marked.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.remus.dwanjcex.engine;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import lombok.*;
+
+/**
+ * 撮合引擎内部的订单表示。
+ * 价格和报价金额按交易对的 pricePrecision 缩放，数量按 quantityPrecision 缩放，
+ * 撮合循环中只做 long 运算，不产生 BigDecimal。
+ * 同时作为价格档位侵入式双向链表的节点。
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = {"prevInBucket", "nextInBucket"})
+public class EngineOrder {
+
+    private long id;
+    private long userId;
+    private String symbol;
+    private OrderTypes.Side side;
+    private OrderTypes.OrderType type;
+
+    private long price; // 定点价格，市价单为 0
+    private long quantity; // 定点数量，市价买单为 0
+    private long filled;
+    private long quoteAmount; // 定点报价金额，仅市价买单使用
+    private long quoteFilled;
+
+    // 价格档位队列中的前驱/后继
+    private EngineOrder prevInBucket;
+    private EngineOrder nextInBucket;
+
+    public long getRemaining() {
+        return quantity - filled;
+    }
+
+    public boolean isMarketBuy() {
+        return type == OrderTypes.OrderType.MARKET && side == OrderTypes.Side.BUY;
+    }
+
+    public void fill(long qty, long quoteQty) {
+        this.filled += qty;
+        this.quoteFilled += quoteQty;
+    }
+
+    public boolean isFullyFilled() {
+        if (isMarketBuy()) {
+            return quoteAmount > 0 && quoteFilled >= quoteAmount;
+        }
+        return quantity > 0 && filled >= quantity;
+    }
+
+    /**
+     * 转换为持久化/快照使用的 OrderEntity。
+     */
+    public OrderEntity toEntity(int priceScale, int quantityScale) {
+        return OrderEntity.builder()
+                .id(id)
+                .userId(userId)
+                .marketSymbol(symbol)
+                .side(side)
+                .type(type)
+                .price(FixedPoint.toDecimal(price, priceScale))
+                .quantity(FixedPoint.toDecimal(quantity, quantityScale))
+                .filled(FixedPoint.toDecimal(filled, quantityScale))
+                .quoteAmount(FixedPoint.toDecimal(quoteAmount, priceScale))
+                .quoteFilled(FixedPoint.toDecimal(quoteFilled, priceScale))
+                .build();
+    }
+
+    public static EngineOrder fromEntity(OrderEntity entity, int priceScale, int quantityScale) {
+        return EngineOrder.builder()
+                .id(entity.getId())
+                .userId(entity.getUserId())
+                .symbol(entity.getMarketSymbol())
+                .side(entity.getSide())
+                .type(entity.getType())
+                .price(FixedPoint.toLong(entity.getPrice(), priceScale))
+                .quantity(FixedPoint.toLong(entity.getQuantity(), quantityScale))
+                .filled(FixedPoint.toLong(entity.getFilled(), quantityScale))
+                .quoteAmount(FixedPoint.toLong(entity.getQuoteAmount(), priceScale))
+                .quoteFilled(FixedPoint.toLong(entity.getQuoteFilled(), priceScale))
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.remus.dwanjcex.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * 定点数工具。
+ * 撮合引擎内部的价格和数量都以按交易对精度缩放后的 long 表示，
+ * 只在 API 与持久化边界上与 BigDecimal 互相转换。
+ */
+public final class FixedPoint {
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        long p = 1L;
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = p;
+            p *= 10;
+        }
+    }
+
+    private FixedPoint() {}
+
+    public static long pow10(int scale) {
+        return POWERS_OF_TEN[scale];
+    }
+
+    /**
+     * BigDecimal -> 定点数。小数位超过精度时抛出 ArithmeticException，null 视为 0。
+     */
+    public static long toLong(BigDecimal value, int scale) {
+        if (value == null) return 0L;
+        return value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 定点数 -> BigDecimal。
+     */
+    public static BigDecimal toDecimal(long value, int scale) {
+        return BigDecimal.valueOf(value, scale);
+    }
+
+    /**
+     * 判断 BigDecimal 是否能以指定精度无损表示。
+     */
+    public static boolean fits(BigDecimal value, int scale) {
+        return value == null || value.stripTrailingZeros().scale() <= scale;
+    }
+
+    /**
+     * 计算 a * b / divisor，结果向下取整。乘积溢出 long 时退化为 BigInteger 运算。
+     */
+    public static long multiplyDivide(long a, long b, long divisor) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return Math.floorDiv(low, divisor);
+        }
+        return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b))
+                .divide(BigInteger.valueOf(divisor)).longValueExact();
+    }
+}
@@ -0,0 +1,183 @@
+package com.remus.dwanjcex.engine;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * 以原始 long 为键的开放寻址哈希表 (线性探测，删除时反向移位，不留墓碑)。
+ * <p>
+ * 专为撮合线程内的订单索引设计：键不装箱、不分配链表节点，
+ * 每个条目只占用一个 long 槽位和一个引用槽位。非线程安全，只能由单一线程读写。
+ */
+public class LongObjectHashMap<V> {
+
+    private static final long EMPTY_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    // 键 0 与空槽标记冲突，单独存放
+    private boolean hasZeroKey;
+    private Object zeroValue;
+
+    public LongObjectHashMap() {
+        this(1024);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY_KEY) {
+            return hasZeroKey ? (V) zeroValue : null;
+        }
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    public boolean containsKey(long key) {
+        return key == EMPTY_KEY ? hasZeroKey : indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == EMPTY_KEY) {
+            V old = hasZeroKey ? (V) zeroValue : null;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int index = hash(key) & mask;
+        while (keys[index] != EMPTY_KEY) {
+            if (keys[index] == key) {
+                V old = (V) values[index];
+                values[index] = value;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == EMPTY_KEY) {
+            if (!hasZeroKey) return null;
+            V old = (V) zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return old;
+        }
+        int index = indexOf(key);
+        if (index < 0) return null;
+        V old = (V) values[index];
+        shiftBack(index);
+        size--;
+        return old;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY_KEY);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        if (hasZeroKey) {
+            action.accept((V) zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY_KEY) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        long k;
+        while ((k = keys[index]) != EMPTY_KEY) {
+            if (k == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 删除槽位后，把同一探测链上后续的条目向前移动，保持查找链连续。
+     */
+    private void shiftBack(int gap) {
+        int index = (gap + 1) & mask;
+        long k;
+        while ((k = keys[index]) != EMPTY_KEY) {
+            int home = hash(k) & mask;
+            // home 不在 (gap, index] 区间内时，该条目可以移入空位
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[gap] = EMPTY_KEY;
+        values[gap] = null;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long k = oldKeys[i];
+            if (k != EMPTY_KEY) {
+                int index = hash(k) & mask;
+                while (keys[index] != EMPTY_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = k;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
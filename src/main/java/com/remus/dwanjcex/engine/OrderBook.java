@@ -3,18 +3,21 @@ package com.remus.dwanjcex.engine;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.remus.dwanjcex.common.OrderTypes;
-import com.remus.dwanjcex.wallet.entity.OrderEntity;
+import com.remus.dwanjcex.engine.ladder.PriceLadder;
+import com.remus.dwanjcex.engine.ladder.TreeMapPriceLadder;
+import com.remus.dwanjcex.wallet.entity.dto.OrderBookDeltaDto;
 import com.remus.dwanjcex.wallet.entity.dto.OrderBookLevel;
+import com.remus.dwanjcex.wallet.entity.dto.OrderBookSnapshotDto;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 @Slf4j
 @Getter
@@ -23,34 +26,79 @@ import java.util.stream.Collectors;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class OrderBook {
 
-    // 价格精度，例如 8 位小数
-    public static final int PRICE_SCALE = 8;
-    public static final BigDecimal PRICE_MULTIPLIER = new BigDecimal(10).pow(PRICE_SCALE);
+    // 默认精度，交易对未配置精度时使用
+    public static final int DEFAULT_SCALE = 8;
+    // 默认的深度档位数
+    public static final int DEFAULT_DEPTH_LEVELS = 20;
 
     private String symbol;
-    private TreeMap<Long, OrderBucket> bids = new TreeMap<>(Comparator.reverseOrder());
-    private TreeMap<Long, OrderBucket> asks = new TreeMap<>();
-    private Map<Long, OrderEntity> orderMap = new ConcurrentHashMap<>();
+    private int priceScale = DEFAULT_SCALE; // 价格/报价金额的小数位数 (Market.pricePrecision)
+    private int quantityScale = DEFAULT_SCALE; // 数量的小数位数 (Market.quantityPrecision)
+    private PriceLadder bids = new TreeMapPriceLadder(true);
+    private PriceLadder asks = new TreeMapPriceLadder(false);
+    private int depthLevels = DEFAULT_DEPTH_LEVELS; // 深度快照每一侧输出的最大档位数
+    private long lastJournalSeq = 0; // 已应用到本订单簿的最后一条日志序号
+    // 订单索引只由撮合线程读写；其他线程通过 publishedSnapshot 读取已发布的深度
+    @JsonIgnore
+    private LongObjectHashMap<EngineOrder> orderMap = new LongObjectHashMap<>();
+    @JsonIgnore
+    private volatile Map<String, List<OrderBookLevel>> publishedSnapshot = Collections.emptyMap();
+    // 自上次发布快照后订单簿是否发生变化
+    @JsonIgnore
+    private boolean depthChanged = true;
+    // 增量推送：自上次推送以来变化的档位，以及已推送的最后一条增量的序号
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private final ChangedKeys bidChanges = new ChangedKeys();
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private final ChangedKeys askChanges = new ChangedKeys();
+    @JsonIgnore
+    private long depthSequence = 0;
+    // 自上次取出以来新增、成交或移除的挂单ID，用于增量维护外部的活跃订单存储
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private final ChangedKeys orderChanges = new ChangedKeys();
 
     public OrderBook(String symbol) {
         this.symbol = symbol;
     }
 
-    public void add(OrderEntity order) {
-        long priceAsLong = toLong(order.getPrice());
-        TreeMap<Long, OrderBucket> book = getBook(order.getSide());
-        
-        OrderBucket bucket = book.computeIfAbsent(priceAsLong, OrderBucket::new);
+    public OrderBook(String symbol, int priceScale, int quantityScale, PriceLadder bids, PriceLadder asks) {
+        this.symbol = symbol;
+        this.priceScale = priceScale;
+        this.quantityScale = quantityScale;
+        this.bids = bids;
+        this.asks = asks;
+    }
+
+    public void add(EngineOrder order) {
+        PriceLadder book = getBook(order.getSide());
+
+        OrderBucket bucket = book.getOrCreate(order.getPrice());
         bucket.add(order);
         orderMap.put(order.getId(), order);
+        orderChanges.mark(order.getId());
+        markChanged(order.getSide(), order.getPrice());
     }
 
-    public boolean remove(Long orderId) {
-        OrderEntity order = orderMap.remove(orderId);
+    /**
+     * 挂单 (maker) 成交：更新订单成交量，并增量扣减其所在档位的聚合数量。
+     */
+    public void fillResting(OrderBucket bucket, EngineOrder order, long qty, long quoteQty) {
+        order.fill(qty, quoteQty);
+        bucket.reduce(qty);
+        orderChanges.mark(order.getId());
+        markChanged(order.getSide(), bucket.getPrice());
+    }
+
+    public boolean remove(long orderId) {
+        EngineOrder order = orderMap.remove(orderId);
         if (order == null) return false;
+        orderChanges.mark(orderId);
 
-        long priceAsLong = toLong(order.getPrice());
-        TreeMap<Long, OrderBucket> book = getBook(order.getSide());
+        long priceAsLong = order.getPrice();
+        PriceLadder book = getBook(order.getSide());
         OrderBucket bucket = book.get(priceAsLong);
         if (bucket != null) {
             bucket.remove(order);
@@ -58,44 +106,154 @@ public class OrderBook {
                 book.remove(priceAsLong);
             }
         }
+        markChanged(order.getSide(), priceAsLong);
         return true;
     }
 
+    /**
+     * 移除指定价格上已空的档位。
+     */
+    public void removeBucket(OrderTypes.Side side, long priceAsLong) {
+        getBook(side).remove(priceAsLong);
+        markChanged(side, priceAsLong);
+    }
+
     @JsonIgnore
     public Optional<OrderBucket> getBestBidBucket() {
-        return bids.isEmpty() ? Optional.empty() : Optional.of(bids.firstEntry().getValue());
+        return Optional.ofNullable(bids.best());
     }
 
     @JsonIgnore
     public Optional<OrderBucket> getBestAskBucket() {
-        return asks.isEmpty() ? Optional.empty() : Optional.of(asks.firstEntry().getValue());
+        return Optional.ofNullable(asks.best());
     }
 
     public Map<String, List<OrderBookLevel>> getOrderBookSnapshot() {
+        return getDepth(depthLevels);
+    }
+
+    /**
+     * 前 N 档深度。档位聚合数量在挂单/成交/撤单时已增量维护，这里只读取最优的 N 个档位，代价为 O(N)。
+     */
+    public Map<String, List<OrderBookLevel>> getDepth(int maxLevels) {
         Map<String, List<OrderBookLevel>> snapshot = new LinkedHashMap<>();
-        snapshot.put("bids", getLevels(bids));
-        snapshot.put("asks", getLevels(asks));
+        snapshot.put("bids", getLevels(bids, maxLevels));
+        snapshot.put("asks", getLevels(asks, maxLevels));
         return snapshot;
     }
 
-    private List<OrderBookLevel> getLevels(TreeMap<Long, OrderBucket> book) {
-        return book.values().stream()
-                .map(bucket -> new OrderBookLevel(toBigDecimal(bucket.getPrice()), bucket.getTotalAmount()))
-                .filter(level -> level.getQuantity().compareTo(BigDecimal.ZERO) > 0)
-                .collect(Collectors.toList());
+    /**
+     * 在撮合线程上生成深度快照，并以不可变对象的形式发布给其他线程读取。
+     * 订单簿自上次发布后没有变化时直接复用已发布的快照。
+     */
+    public Map<String, List<OrderBookLevel>> publishSnapshot() {
+        if (!depthChanged) {
+            return publishedSnapshot;
+        }
+        Map<String, List<OrderBookLevel>> snapshot = Collections.unmodifiableMap(getOrderBookSnapshot());
+        this.publishedSnapshot = snapshot;
+        this.depthChanged = false;
+        return snapshot;
+    }
+
+    /**
+     * 取出自上次调用以来变化的档位并分配下一个增量序号；没有变化时返回 null。
+     * 代价与变化档位数成正比，与订单簿深度无关。只能在撮合线程上调用。
+     */
+    public OrderBookDeltaDto drainDelta() {
+        if (bidChanges.isEmpty() && askChanges.isEmpty()) {
+            return null;
+        }
+        OrderBookDeltaDto delta = new OrderBookDeltaDto(symbol, ++depthSequence,
+                getChangedLevels(bids, bidChanges), getChangedLevels(asks, askChanges));
+        bidChanges.clear();
+        askChanges.clear();
+        return delta;
+    }
+
+    /**
+     * 带序号的深度快照，序号为已推送的最后一条增量。应在 drainDelta 之后、同一撮合线程上调用。
+     */
+    public OrderBookSnapshotDto toSequencedSnapshot(Map<String, List<OrderBookLevel>> depth) {
+        return new OrderBookSnapshotDto(symbol, depthSequence, depth.get("bids"), depth.get("asks"));
+    }
+
+    /**
+     * 取出自上次调用以来发生变化的挂单：仍在订单簿中的交给 upserted，已离开订单簿的交给 removed。
+     * 只能在撮合线程上调用。
+     */
+    public void drainOrderChanges(Consumer<EngineOrder> upserted, LongConsumer removed) {
+        for (int i = 0; i < orderChanges.size(); i++) {
+            long orderId = orderChanges.get(i);
+            EngineOrder order = orderMap.get(orderId);
+            if (order != null) {
+                upserted.accept(order);
+            } else {
+                removed.accept(orderId);
+            }
+        }
+        orderChanges.clear();
+    }
+
+    private List<OrderBookLevel> getChangedLevels(PriceLadder book, ChangedKeys changes) {
+        List<OrderBookLevel> levels = new ArrayList<>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            long price = changes.get(i);
+            OrderBucket bucket = book.get(price);
+            long quantity = bucket == null ? 0 : bucket.getTotalAmount();
+            levels.add(new OrderBookLevel(toPriceDecimal(price), quantity > 0 ? toQuantityDecimal(quantity) : BigDecimal.ZERO));
+        }
+        return levels;
+    }
+
+    private List<OrderBookLevel> getLevels(PriceLadder book, int maxLevels) {
+        List<OrderBookLevel> levels = new ArrayList<>(Math.min(book.size(), maxLevels));
+        book.forEachLevel(maxLevels, bucket -> {
+            if (bucket.getTotalAmount() > 0) {
+                levels.add(new OrderBookLevel(toPriceDecimal(bucket.getPrice()), toQuantityDecimal(bucket.getTotalAmount())));
+            }
+        });
+        return levels;
     }
 
     // --- Helper Methods ---
 
-    private TreeMap<Long, OrderBucket> getBook(OrderTypes.Side side) {
+    private void markChanged(OrderTypes.Side side, long priceAsLong) {
+        (side == OrderTypes.Side.BUY ? bidChanges : askChanges).mark(priceAsLong);
+        depthChanged = true;
+    }
+
+    private PriceLadder getBook(OrderTypes.Side side) {
         return side == OrderTypes.Side.BUY ? bids : asks;
     }
 
-    public static long toLong(BigDecimal price) {
-        return price.multiply(PRICE_MULTIPLIER).longValue();
+    public long toPriceLong(BigDecimal price) {
+        return FixedPoint.toLong(price, priceScale);
+    }
+
+    public long toQuantityLong(BigDecimal quantity) {
+        return FixedPoint.toLong(quantity, quantityScale);
+    }
+
+    public BigDecimal toPriceDecimal(long priceAsLong) {
+        return FixedPoint.toDecimal(priceAsLong, priceScale);
+    }
+
+    public BigDecimal toQuantityDecimal(long quantityAsLong) {
+        return FixedPoint.toDecimal(quantityAsLong, quantityScale);
+    }
+
+    /**
+     * 成交金额 = 价格 * 数量，按价格精度向下取整 (与结算时的取整方式一致)。
+     */
+    public long quoteOf(long price, long quantity) {
+        return FixedPoint.multiplyDivide(price, quantity, FixedPoint.pow10(quantityScale));
     }
 
-    public static BigDecimal toBigDecimal(long priceAsLong) {
-        return BigDecimal.valueOf(priceAsLong).divide(PRICE_MULTIPLIER, PRICE_SCALE, RoundingMode.HALF_UP);
+    /**
+     * 给定报价金额在指定价格下最多可买的数量，按数量精度向下取整。
+     */
+    public long quantityFor(long quoteAmount, long price) {
+        return FixedPoint.multiplyDivide(quoteAmount, FixedPoint.pow10(quantityScale), price);
     }
 }
@@ -0,0 +1,79 @@
+package com.remus.dwanjcex.engine;
+
+import com.remus.dwanjcex.engine.ladder.PriceLadder;
+import com.remus.dwanjcex.engine.ladder.TickArrayPriceLadder;
+import com.remus.dwanjcex.engine.ladder.TreeMapPriceLadder;
+import com.remus.dwanjcex.wallet.entity.Market;
+import com.remus.dwanjcex.wallet.services.MarketService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 订单簿工厂。
+ * 根据配置为每个交易对选择价格档位实现：
+ * 在 cex.engine.tick-ladder.symbols 中列出的交易对使用 tick 下标数组 ({@link TickArrayPriceLadder})，
+ * 其余交易对使用 TreeMap ({@link TreeMapPriceLadder})。
+ */
+@Slf4j
+@Component
+public class OrderBookFactory {
+
+    private final MarketService marketService;
+    private final Set<String> tickLadderSymbols;
+    private final int windowTicks;
+    private final int depthLevels;
+
+    public OrderBookFactory(MarketService marketService,
+                            @Value("${cex.engine.tick-ladder.symbols:}") String[] tickLadderSymbols,
+                            @Value("${cex.engine.tick-ladder.window-ticks:65536}") int windowTicks,
+                            @Value("${cex.engine.depth-levels:20}") int depthLevels) {
+        this.marketService = marketService;
+        this.tickLadderSymbols = Arrays.stream(tickLadderSymbols)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+        this.windowTicks = windowTicks;
+        this.depthLevels = depthLevels;
+    }
+
+    public OrderBook create(String symbol) {
+        int priceScale = priceScaleOf(symbol);
+        int quantityScale = quantityScaleOf(symbol);
+
+        PriceLadder bids;
+        PriceLadder asks;
+        if (tickLadderSymbols.contains(symbol)) {
+            // 价格已按交易对精度缩放，最小变动价位即为 1
+            log.info("交易对 {} 使用tick数组价格档位: windowTicks={}", symbol, windowTicks);
+            bids = new TickArrayPriceLadder(true, 1L, windowTicks);
+            asks = new TickArrayPriceLadder(false, 1L, windowTicks);
+        } else {
+            bids = new TreeMapPriceLadder(true);
+            asks = new TreeMapPriceLadder(false);
+        }
+        OrderBook orderBook = new OrderBook(symbol, priceScale, quantityScale, bids, asks);
+        orderBook.setDepthLevels(depthLevels);
+        return orderBook;
+    }
+
+    /**
+     * 交易对订单簿的价格精度 (定点数小数位数)，未配置时为 {@link OrderBook#DEFAULT_SCALE}。
+     */
+    public int priceScaleOf(String symbol) {
+        Market market = marketService.getMarket(symbol);
+        return market != null && market.getPricePrecision() != null ? market.getPricePrecision() : OrderBook.DEFAULT_SCALE;
+    }
+
+    /**
+     * 交易对订单簿的数量精度 (定点数小数位数)，未配置时为 {@link OrderBook#DEFAULT_SCALE}。
+     */
+    public int quantityScaleOf(String symbol) {
+        Market market = marketService.getMarket(symbol);
+        return market != null && market.getQuantityPrecision() != null ? market.getQuantityPrecision() : OrderBook.DEFAULT_SCALE;
+    }
+}
@@ -1,56 +1,103 @@
 package com.remus.dwanjcex.engine;
 
-import com.remus.dwanjcex.wallet.entity.OrderEntity;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.math.BigDecimal;
-import java.util.LinkedList;
+import java.util.function.Consumer;
 
 /**
  * 价格桶 (Price Bucket)。
  * 代表订单簿中的一个价格档位，包含该价格下的所有订单。
+ * <p>
+ * 订单以侵入式双向链表 (FIFO) 组织：前驱/后继指针保存在订单自身上，
+ * 因此通过 orderMap 找到订单后即可 O(1) 摘除，无需遍历队列。
  */
 @Getter
 @Setter
 @NoArgsConstructor
 public class OrderBucket {
 
-    private long price; // 价格 (定点数，例如 50000 * 10^8)
-    private BigDecimal totalAmount = BigDecimal.ZERO; // 该档位的总数量
-    private LinkedList<OrderEntity> orders = new LinkedList<>(); // 订单链表 (FIFO)
+    private long price; // 价格 (定点数，按交易对价格精度缩放)
+    private long totalAmount; // 该档位的总数量 (定点数)
+    private EngineOrder head; // 队首 (最早挂单)
+    private EngineOrder tail; // 队尾 (最新挂单)
+    private int size; // 订单数量
 
     public OrderBucket(long price) {
         this.price = price;
     }
 
-    public void add(OrderEntity order) {
-        orders.add(order);
-        totalAmount = totalAmount.add(order.getRemaining());
+    public void add(EngineOrder order) {
+        order.setPrevInBucket(tail);
+        order.setNextInBucket(null);
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.setNextInBucket(order);
+        }
+        tail = order;
+        size++;
+        totalAmount += order.getRemaining();
     }
 
-    public boolean remove(OrderEntity order) {
-        boolean removed = orders.remove(order);
-        if (removed) {
-            totalAmount = totalAmount.subtract(order.getRemaining());
+    public boolean remove(EngineOrder order) {
+        if (order.getPrevInBucket() == null && head != order) {
+            return false; // 不在本档位的队列中
         }
-        return removed;
+        unlink(order);
+        totalAmount -= order.getRemaining();
+        return true;
+    }
+
+    /**
+     * 档位内的挂单被部分或全部成交时，同步扣减档位聚合数量。
+     */
+    public void reduce(long filledQty) {
+        totalAmount -= filledQty;
     }
 
     public boolean isEmpty() {
-        return orders.isEmpty();
+        return head == null;
     }
 
-    public OrderEntity peek() {
-        return orders.peek();
+    public EngineOrder peek() {
+        return head;
     }
 
-    public OrderEntity poll() {
-        OrderEntity order = orders.poll();
+    public EngineOrder poll() {
+        EngineOrder order = head;
         if (order != null) {
-            totalAmount = totalAmount.subtract(order.getRemaining());
+            unlink(order);
+            totalAmount -= order.getRemaining();
         }
         return order;
     }
+
+    /**
+     * 按时间优先顺序遍历档位内的订单。
+     */
+    public void forEachOrder(Consumer<EngineOrder> action) {
+        for (EngineOrder order = head; order != null; order = order.getNextInBucket()) {
+            action.accept(order);
+        }
+    }
+
+    private void unlink(EngineOrder order) {
+        EngineOrder prev = order.getPrevInBucket();
+        EngineOrder next = order.getNextInBucket();
+        if (prev == null) {
+            head = next;
+        } else {
+            prev.setNextInBucket(next);
+        }
+        if (next == null) {
+            tail = prev;
+        } else {
+            next.setPrevInBucket(prev);
+        }
+        order.setPrevInBucket(null);
+        order.setNextInBucket(null);
+        size--;
+    }
 }
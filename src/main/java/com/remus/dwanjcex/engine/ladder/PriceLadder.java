@@ -0,0 +1,52 @@
+package com.remus.dwanjcex.engine.ladder;
+
+import com.remus.dwanjcex.engine.OrderBucket;
+
+import java.util.function.Consumer;
+
+/**
+ * 订单簿单边的价格档位容器 (Price Ladder)。
+ * 负责按价格组织 {@link OrderBucket}，并能以 O(1) 或接近 O(1) 的代价给出最优档位。
+ * 所有实现都只在撮合线程内使用，不保证线程安全。
+ */
+public interface PriceLadder {
+
+    /**
+     * 获取指定价格的档位，不存在时返回null。
+     */
+    OrderBucket get(long price);
+
+    /**
+     * 获取指定价格的档位，不存在时创建。
+     */
+    OrderBucket getOrCreate(long price);
+
+    /**
+     * 移除指定价格的档位。
+     */
+    void remove(long price);
+
+    /**
+     * 最优档位 (买盘为最高价，卖盘为最低价)，为空时返回null。
+     */
+    OrderBucket best();
+
+    boolean isEmpty();
+
+    /**
+     * 当前非空档位数量。
+     */
+    int size();
+
+    /**
+     * 从最优价开始，按价格优先顺序遍历所有档位。
+     */
+    default void forEachLevel(Consumer<OrderBucket> action) {
+        forEachLevel(Integer.MAX_VALUE, action);
+    }
+
+    /**
+     * 从最优价开始，按价格优先顺序遍历至多 maxLevels 个档位，不会触及更深的档位。
+     */
+    void forEachLevel(int maxLevels, Consumer<OrderBucket> action);
+}
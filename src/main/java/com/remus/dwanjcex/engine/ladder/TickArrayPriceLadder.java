@@ -0,0 +1,279 @@
+package com.remus.dwanjcex.engine.ladder;
+
+import com.remus.dwanjcex.engine.OrderBucket;
+
+import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 基于最小变动价位 (tick) 下标的数组价格档位实现，适用于成交活跃的交易对。
+ * <p>
+ * 以一个固定宽度的价格窗口为中心，窗口内的每个 tick 对应数组中的一个槽位，
+ * 通过占用位图 (bitmap) 查找下一个非空档位，最优价以 int 下标形式维护。
+ * 窗口内档位的插入、删除和最优价查询都是 O(1) 且不产生对象分配 (档位对象按槽位复用)。
+ * 窗口外或未对齐 tick 的价格退化到稀疏的 TreeMap 中。当窗口内没有任何档位，
+ * 或最优价离开窗口 (落入稀疏存储且优于窗口内所有档位) 时，窗口以最优价为中心重新定位，
+ * 移出新窗口的档位转入稀疏存储，落入新窗口的稀疏档位迁回数组，
+ * 因此价格单边趋势行情下最优价附近的档位始终留在数组中。
+ */
+public class TickArrayPriceLadder implements PriceLadder {
+
+    private final boolean descending;
+    private final long tickSize;
+    private final int windowTicks;
+
+    private final OrderBucket[] slots;
+    private final long[] occupied;
+
+    private long baseTick;
+    private boolean anchored = false;
+    private int arrayLevels = 0;
+    private int bestSlot = -1;
+
+    // 窗口外价格的后备存储
+    private final TreeMap<Long, OrderBucket> sparse;
+    private OrderBucket sparseBest;
+
+    /**
+     * @param descending  true表示买盘 (价格从高到低)，false表示卖盘 (价格从低到高)
+     * @param tickSize    最小变动价位 (定点数)
+     * @param windowTicks 数组窗口覆盖的 tick 数量
+     */
+    public TickArrayPriceLadder(boolean descending, long tickSize, int windowTicks) {
+        if (tickSize <= 0) {
+            throw new IllegalArgumentException("tickSize must be positive: " + tickSize);
+        }
+        if (windowTicks <= 0) {
+            throw new IllegalArgumentException("windowTicks must be positive: " + windowTicks);
+        }
+        this.descending = descending;
+        this.tickSize = tickSize;
+        this.windowTicks = windowTicks;
+        this.slots = new OrderBucket[windowTicks];
+        this.occupied = new long[(windowTicks + 63) >>> 6];
+        this.sparse = descending ? new TreeMap<>(Comparator.reverseOrder()) : new TreeMap<>();
+    }
+
+    @Override
+    public OrderBucket get(long price) {
+        int slot = slotOf(price);
+        if (slot >= 0) {
+            return isOccupied(slot) ? slots[slot] : null;
+        }
+        return sparse.isEmpty() ? null : sparse.get(price);
+    }
+
+    @Override
+    public OrderBucket getOrCreate(long price) {
+        boolean aligned = price % tickSize == 0;
+        if (aligned && arrayLevels == 0 && (!anchored || slotOf(price) < 0)) {
+            recenter(price / tickSize);
+        }
+
+        int slot = slotOf(price);
+        if (slot < 0) {
+            OrderBucket bucket = sparse.get(price);
+            if (bucket == null) {
+                bucket = new OrderBucket(price);
+                sparse.put(price, bucket);
+                refreshSparseBest();
+                followBest();
+            }
+            return bucket;
+        }
+
+        OrderBucket bucket = slots[slot];
+        if (isOccupied(slot)) {
+            return bucket;
+        }
+        if (bucket == null) {
+            bucket = new OrderBucket(price);
+            slots[slot] = bucket;
+        } else {
+            bucket.setPrice(price);
+        }
+        occupy(slot);
+        return bucket;
+    }
+
+    @Override
+    public void remove(long price) {
+        int slot = slotOf(price);
+        if (slot < 0) {
+            if (sparse.remove(price) != null) {
+                refreshSparseBest();
+                followBest();
+            }
+            return;
+        }
+        if (!isOccupied(slot)) {
+            return;
+        }
+        occupied[slot >>> 6] &= ~(1L << slot);
+        arrayLevels--;
+        if (slot == bestSlot) {
+            bestSlot = descending ? prevOccupied(slot - 1) : nextOccupied(slot + 1);
+            followBest();
+        }
+    }
+
+    @Override
+    public OrderBucket best() {
+        OrderBucket arrayBest = bestSlot >= 0 ? slots[bestSlot] : null;
+        if (sparseBest == null) {
+            return arrayBest;
+        }
+        if (arrayBest == null) {
+            return sparseBest;
+        }
+        return isBetter(sparseBest.getPrice(), arrayBest.getPrice()) ? sparseBest : arrayBest;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return arrayLevels == 0 && sparse.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return arrayLevels + sparse.size();
+    }
+
+    @Override
+    public void forEachLevel(int maxLevels, Consumer<OrderBucket> action) {
+        Iterator<OrderBucket> sparseIt = sparse.values().iterator();
+        OrderBucket nextSparse = sparseIt.hasNext() ? sparseIt.next() : null;
+        int slot = bestSlot;
+        int visited = 0;
+        while ((slot >= 0 || nextSparse != null) && visited++ < maxLevels) {
+            if (slot >= 0 && (nextSparse == null || !isBetter(nextSparse.getPrice(), slots[slot].getPrice()))) {
+                action.accept(slots[slot]);
+                slot = descending ? prevOccupied(slot - 1) : nextOccupied(slot + 1);
+            } else {
+                action.accept(nextSparse);
+                nextSparse = sparseIt.hasNext() ? sparseIt.next() : null;
+            }
+        }
+    }
+
+    /**
+     * 稀疏存储中的档位数量，供测试观察窗口是否跟随最优价。
+     */
+    int sparseLevels() {
+        return sparse.size();
+    }
+
+    // --- Helper Methods ---
+
+    private int slotOf(long price) {
+        if (!anchored || price % tickSize != 0) {
+            return -1;
+        }
+        long offset = price / tickSize - baseTick;
+        return offset >= 0 && offset < windowTicks ? (int) offset : -1;
+    }
+
+    private boolean isOccupied(int slot) {
+        return (occupied[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void occupy(int slot) {
+        occupied[slot >>> 6] |= 1L << slot;
+        arrayLevels++;
+        if (bestSlot < 0 || (descending ? slot > bestSlot : slot < bestSlot)) {
+            bestSlot = slot;
+        }
+    }
+
+    private boolean isBetter(long price, long other) {
+        return descending ? price > other : price < other;
+    }
+
+    /**
+     * 稀疏存储中的最优价已对齐 tick 且优于窗口内所有档位时，说明最优价已离开窗口，
+     * 以它为中心重新定位窗口。
+     */
+    private void followBest() {
+        if (sparseBest == null || sparseBest.getPrice() % tickSize != 0) {
+            return;
+        }
+        if (bestSlot >= 0 && !isBetter(sparseBest.getPrice(), slots[bestSlot].getPrice())) {
+            return;
+        }
+        recenter(sparseBest.getPrice() / tickSize);
+    }
+
+    /**
+     * 以指定 tick 为中心重新定位窗口：窗口内现有档位先并入稀疏存储，
+     * 再把落入新窗口的稀疏档位迁回数组。档位对象本身保持不变。
+     */
+    private void recenter(long centerTick) {
+        if (arrayLevels > 0) {
+            for (int slot = nextOccupied(0); slot >= 0; slot = nextOccupied(slot + 1)) {
+                sparse.put(slots[slot].getPrice(), slots[slot]);
+                // 档位已转入稀疏存储，槽位不能再复用该对象
+                slots[slot] = null;
+            }
+            Arrays.fill(occupied, 0L);
+            arrayLevels = 0;
+        }
+        baseTick = centerTick - windowTicks / 2;
+        anchored = true;
+        bestSlot = -1;
+        if (sparse.isEmpty()) {
+            sparseBest = null;
+            return;
+        }
+        long low = baseTick * tickSize;
+        long high = (baseTick + windowTicks - 1) * tickSize;
+        NavigableMap<Long, OrderBucket> window = descending
+                ? sparse.subMap(high, true, low, true)
+                : sparse.subMap(low, true, high, true);
+        Iterator<OrderBucket> it = window.values().iterator();
+        while (it.hasNext()) {
+            OrderBucket bucket = it.next();
+            int slot = slotOf(bucket.getPrice());
+            if (slot >= 0) {
+                slots[slot] = bucket;
+                occupy(slot);
+                it.remove();
+            }
+        }
+        refreshSparseBest();
+    }
+
+    private void refreshSparseBest() {
+        sparseBest = sparse.isEmpty() ? null : sparse.firstEntry().getValue();
+    }
+
+    private int nextOccupied(int from) {
+        if (from >= windowTicks) return -1;
+        int wordIndex = from >>> 6;
+        long word = occupied[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int slot = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return slot < windowTicks ? slot : -1;
+            }
+            if (++wordIndex == occupied.length) return -1;
+            word = occupied[wordIndex];
+        }
+    }
+
+    private int prevOccupied(int from) {
+        if (from < 0) return -1;
+        int wordIndex = from >>> 6;
+        long word = occupied[wordIndex] & (-1L >>> -(from + 1));
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (wordIndex-- == 0) return -1;
+            word = occupied[wordIndex];
+        }
+    }
+}
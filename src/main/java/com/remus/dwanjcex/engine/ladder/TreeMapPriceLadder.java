@@ -0,0 +1,63 @@
+package com.remus.dwanjcex.engine.ladder;
+
+import com.remus.dwanjcex.engine.OrderBucket;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 基于 TreeMap 的价格档位实现，适用于价格分布稀疏、成交不活跃的交易对。
+ */
+public class TreeMapPriceLadder implements PriceLadder {
+
+    private final TreeMap<Long, OrderBucket> levels;
+
+    /**
+     * @param descending true表示买盘 (价格从高到低)，false表示卖盘 (价格从低到高)
+     */
+    public TreeMapPriceLadder(boolean descending) {
+        this.levels = descending ? new TreeMap<>(Comparator.reverseOrder()) : new TreeMap<>();
+    }
+
+    @Override
+    public OrderBucket get(long price) {
+        return levels.get(price);
+    }
+
+    @Override
+    public OrderBucket getOrCreate(long price) {
+        return levels.computeIfAbsent(price, OrderBucket::new);
+    }
+
+    @Override
+    public void remove(long price) {
+        levels.remove(price);
+    }
+
+    @Override
+    public OrderBucket best() {
+        Map.Entry<Long, OrderBucket> first = levels.firstEntry();
+        return first == null ? null : first.getValue();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return levels.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return levels.size();
+    }
+
+    @Override
+    public void forEachLevel(int maxLevels, Consumer<OrderBucket> action) {
+        int visited = 0;
+        for (OrderBucket bucket : levels.values()) {
+            if (visited++ >= maxLevels) break;
+            action.accept(bucket);
+        }
+    }
+}
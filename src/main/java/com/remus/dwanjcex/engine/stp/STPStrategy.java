@@ -1,10 +1,9 @@
 package com.remus.dwanjcex.engine.stp;
 
 import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.engine.EngineOrder;
 import com.remus.dwanjcex.engine.OrderBook;
-import com.remus.dwanjcex.wallet.entity.OrderEntity;
-
-import java.util.Deque;
+import com.remus.dwanjcex.engine.OrderBucket;
 
 /**
  * 自成交保护 (Self-Trade Prevention, STP) 策略接口。
@@ -21,9 +20,9 @@ public interface STPStrategy {
      * @param takerOrder  吃单订单 (新订单)
      * @param makerOrder  挂单订单 (订单簿中的订单)
      * @param orderBook   订单簿
-     * @param makerQueue  挂单所在的队列
+     * @param makerBucket 挂单所在的价格档位
      * @param event       当前的Disruptor事件
      * @return 如果应该中断后续的撮合循环，则返回true。
      */
-    boolean handleSelfTrade(OrderEntity takerOrder, OrderEntity makerOrder, OrderBook orderBook, Deque<OrderEntity> makerQueue, DisruptorEvent event);
+    boolean handleSelfTrade(EngineOrder takerOrder, EngineOrder makerOrder, OrderBook orderBook, OrderBucket makerBucket, DisruptorEvent event);
 }
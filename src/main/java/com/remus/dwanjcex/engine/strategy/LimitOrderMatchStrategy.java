@@ -2,18 +2,14 @@ package com.remus.dwanjcex.engine.strategy;
 
 import com.remus.dwanjcex.common.OrderTypes;
 import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
-import com.remus.dwanjcex.disruptor.event.TradeEvent;
+import com.remus.dwanjcex.engine.EngineOrder;
 import com.remus.dwanjcex.engine.OrderBook;
 import com.remus.dwanjcex.engine.OrderBucket;
 import com.remus.dwanjcex.engine.stp.STPStrategyFactory;
-import com.remus.dwanjcex.wallet.entity.OrderEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.util.Optional;
-
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -22,11 +18,13 @@ public class LimitOrderMatchStrategy implements MatchStrategy {
     private final STPStrategyFactory stpStrategyFactory;
 
     @Override
-    public void match(OrderEntity order, OrderBook orderBook, DisruptorEvent event) {
-        log.info(">>> 开始撮合订单: id={}, side={}, price={}, qty={}", 
-                order.getId(), order.getSide(), order.getPrice(), order.getQuantity());
+    public void match(EngineOrder order, OrderBook orderBook, DisruptorEvent event) {
+        if (log.isDebugEnabled()) {
+            log.debug(">>> 开始撮合订单: id={}, side={}, price={}, qty={}",
+                    order.getId(), order.getSide(), order.getPrice(), order.getQuantity());
+        }
 
-        boolean shouldAddToBook = true; 
+        boolean shouldAddToBook = true;
         if (order.getSide() == OrderTypes.Side.BUY) {
             shouldAddToBook = matchBuyOrder(order, orderBook, event);
         } else {
@@ -35,97 +33,94 @@ public class LimitOrderMatchStrategy implements MatchStrategy {
 
         if (shouldAddToBook && !order.isFullyFilled()) {
             orderBook.add(order);
-            log.info(">>> 订单已加入订单簿: id={}, remaining={}", order.getId(), order.getRemaining());
-        } else {
-            log.info(">>> 订单未加入订单簿: id={}, fullyFilled={}, shouldAddToBook={}", 
+            if (log.isDebugEnabled()) {
+                log.debug(">>> 订单已加入订单簿: id={}, remaining={}", order.getId(), order.getRemaining());
+            }
+        } else if (log.isDebugEnabled()) {
+            log.debug(">>> 订单未加入订单簿: id={}, fullyFilled={}, shouldAddToBook={}",
                     order.getId(), order.isFullyFilled(), shouldAddToBook);
         }
     }
 
-    private boolean matchBuyOrder(OrderEntity buyOrder, OrderBook orderBook, DisruptorEvent event) {
-        long buyPrice = OrderBook.toLong(buyOrder.getPrice());
-        while (buyOrder.getRemaining().compareTo(BigDecimal.ZERO) > 0) {
-            Optional<OrderBucket> bestAskBucketOpt = orderBook.getBestAskBucket();
-            if (bestAskBucketOpt.isEmpty()) {
-                log.info(">>> 对手盘为空 (Ask)");
+    private boolean matchBuyOrder(EngineOrder buyOrder, OrderBook orderBook, DisruptorEvent event) {
+        long buyPrice = buyOrder.getPrice();
+        while (buyOrder.getRemaining() > 0) {
+            OrderBucket askBucket = orderBook.getAsks().best();
+            if (askBucket == null) {
+                log.debug(">>> 对手盘为空 (Ask)");
                 break;
             }
-            
-            long bestAskPrice = bestAskBucketOpt.get().getPrice();
+
+            long bestAskPrice = askBucket.getPrice();
             if (buyPrice < bestAskPrice) {
-                log.info(">>> 价格不匹配: buyPrice({}) < bestAskPrice({})", buyPrice, bestAskPrice);
                 break;
             }
 
-            OrderBucket askBucket = bestAskBucketOpt.get();
-            OrderEntity sellOrder = askBucket.peek();
+            EngineOrder sellOrder = askBucket.peek();
             if (sellOrder == null) {
-                orderBook.getAsks().remove(askBucket.getPrice());
+                orderBook.removeBucket(OrderTypes.Side.SELL, askBucket.getPrice());
                 continue;
             }
 
-            log.info(">>> 发现对手单: id={}, price={}, qty={}", sellOrder.getId(), sellOrder.getPrice(), sellOrder.getRemaining());
-
-            if (buyOrder.getUserId().equals(sellOrder.getUserId())) {
-                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(buyOrder, sellOrder, orderBook, null, event);
+            if (buyOrder.getUserId() == sellOrder.getUserId()) {
+                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(buyOrder, sellOrder, orderBook, askBucket, event);
                 if (shouldBreak) {
-                    return false; 
+                    return false;
                 }
                 continue;
             }
 
-            processTrade(buyOrder, sellOrder, OrderBook.toBigDecimal(askBucket.getPrice()), orderBook, event);
+            processTrade(buyOrder, sellOrder, askBucket, bestAskPrice, orderBook, event);
         }
         return true;
     }
 
-    private boolean matchSellOrder(OrderEntity sellOrder, OrderBook orderBook, DisruptorEvent event) {
-        long sellPrice = OrderBook.toLong(sellOrder.getPrice());
-        while (sellOrder.getRemaining().compareTo(BigDecimal.ZERO) > 0) {
-            Optional<OrderBucket> bestBidBucketOpt = orderBook.getBestBidBucket();
-            if (bestBidBucketOpt.isEmpty()) {
-                log.info(">>> 对手盘为空 (Bid)");
+    private boolean matchSellOrder(EngineOrder sellOrder, OrderBook orderBook, DisruptorEvent event) {
+        long sellPrice = sellOrder.getPrice();
+        while (sellOrder.getRemaining() > 0) {
+            OrderBucket bidBucket = orderBook.getBids().best();
+            if (bidBucket == null) {
+                log.debug(">>> 对手盘为空 (Bid)");
                 break;
             }
-            
-            long bestBidPrice = bestBidBucketOpt.get().getPrice();
+
+            long bestBidPrice = bidBucket.getPrice();
             if (sellPrice > bestBidPrice) {
-                log.info(">>> 价格不匹配: sellPrice({}) > bestBidPrice({})", sellPrice, bestBidPrice);
                 break;
             }
 
-            OrderBucket bidBucket = bestBidBucketOpt.get();
-            OrderEntity buyOrder = bidBucket.peek();
+            EngineOrder buyOrder = bidBucket.peek();
             if (buyOrder == null) {
-                orderBook.getBids().remove(bidBucket.getPrice());
+                orderBook.removeBucket(OrderTypes.Side.BUY, bidBucket.getPrice());
                 continue;
             }
 
-            log.info(">>> 发现对手单: id={}, price={}, qty={}", buyOrder.getId(), buyOrder.getPrice(), buyOrder.getRemaining());
-
-            if (sellOrder.getUserId().equals(buyOrder.getUserId())) {
-                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(sellOrder, buyOrder, orderBook, null, event);
+            if (sellOrder.getUserId() == buyOrder.getUserId()) {
+                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(sellOrder, buyOrder, orderBook, bidBucket, event);
                 if (shouldBreak) {
                     return false;
                 }
                 continue;
             }
 
-            processTrade(sellOrder, buyOrder, OrderBook.toBigDecimal(bidBucket.getPrice()), orderBook, event);
+            processTrade(sellOrder, buyOrder, bidBucket, bestBidPrice, orderBook, event);
         }
         return true;
     }
 
-    private void processTrade(OrderEntity takerOrder, OrderEntity makerOrder, BigDecimal price, OrderBook orderBook, DisruptorEvent event) {
-        BigDecimal tradedQty = takerOrder.getRemaining().min(makerOrder.getRemaining());
-        
-        log.info(">>> 撮合成功: Taker[{}] vs Maker[{}] | Price: {} | Qty: {}", 
-                takerOrder.getId(), makerOrder.getId(), price, tradedQty);
+    private void processTrade(EngineOrder takerOrder, EngineOrder makerOrder, OrderBucket makerBucket, long price, OrderBook orderBook, DisruptorEvent event) {
+        long tradedQty = Math.min(takerOrder.getRemaining(), makerOrder.getRemaining());
+        long tradedQuote = orderBook.quoteOf(price, tradedQty);
+
+        if (log.isDebugEnabled()) {
+            log.debug(">>> 撮合成功: Taker[{}] vs Maker[{}] | Price: {} | Qty: {}",
+                    takerOrder.getId(), makerOrder.getId(), price, tradedQty);
+        }
 
-        takerOrder.addFilled(tradedQty);
-        makerOrder.addFilled(tradedQty);
+        takerOrder.fill(tradedQty, tradedQuote);
+        orderBook.fillResting(makerBucket, makerOrder, tradedQty, tradedQuote);
 
-        event.addTradeEvent(createTradeEvent(takerOrder, makerOrder, price, tradedQty));
+        recordTrade(takerOrder, makerOrder, price, tradedQty, tradedQuote, orderBook, event);
 
         if (takerOrder.isFullyFilled()) {
             orderBook.remove(takerOrder.getId());
@@ -135,15 +130,13 @@ public class LimitOrderMatchStrategy implements MatchStrategy {
         }
     }
 
-    private TradeEvent createTradeEvent(OrderEntity takerOrder, OrderEntity makerOrder, BigDecimal price, BigDecimal quantity) {
-        return TradeEvent.builder()
-                .symbol(takerOrder.getMarketSymbol())
-                .price(price)
-                .quantity(quantity)
-                .takerOrderId(takerOrder.getId())
-                .makerOrderId(makerOrder.getId())
-                .takerUserId(takerOrder.getUserId())
-                .makerUserId(makerOrder.getUserId())
-                .build();
+    /**
+     * 把成交结果和挂单成交后的状态写入事件中预分配的槽位，不产生新对象。
+     */
+    private void recordTrade(EngineOrder takerOrder, EngineOrder makerOrder, long price, long quantity, long quoteQuantity, OrderBook orderBook, DisruptorEvent event) {
+        event.nextTradeSlot().set(takerOrder.getSymbol(), price, quantity, quoteQuantity,
+                orderBook.getPriceScale(), orderBook.getQuantityScale(),
+                takerOrder.getId(), makerOrder.getId(), takerOrder.getUserId(), makerOrder.getUserId());
+        event.nextOrderSlot().set(makerOrder, orderBook.getPriceScale(), orderBook.getQuantityScale());
     }
 }
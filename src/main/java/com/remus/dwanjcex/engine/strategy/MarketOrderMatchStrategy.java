@@ -2,19 +2,14 @@ package com.remus.dwanjcex.engine.strategy;
 
 import com.remus.dwanjcex.common.OrderTypes;
 import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
-import com.remus.dwanjcex.disruptor.event.TradeEvent;
+import com.remus.dwanjcex.engine.EngineOrder;
 import com.remus.dwanjcex.engine.OrderBook;
 import com.remus.dwanjcex.engine.OrderBucket;
 import com.remus.dwanjcex.engine.stp.STPStrategyFactory;
-import com.remus.dwanjcex.wallet.entity.OrderEntity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Optional;
-
 @Slf4j
 @Component
 @RequiredArgsConstructor
@@ -23,7 +18,7 @@ public class MarketOrderMatchStrategy implements MatchStrategy {
     private final STPStrategyFactory stpStrategyFactory;
 
     @Override
-    public void match(OrderEntity order, OrderBook orderBook, DisruptorEvent event) {
+    public void match(EngineOrder order, OrderBook orderBook, DisruptorEvent event) {
         if (order.getSide() == OrderTypes.Side.BUY) {
             matchMarketBuy(order, orderBook, event);
         } else {
@@ -31,87 +26,82 @@ public class MarketOrderMatchStrategy implements MatchStrategy {
         }
     }
 
-    private void matchMarketBuy(OrderEntity buyOrder, OrderBook orderBook, DisruptorEvent event) {
-        BigDecimal amountToSpend = buyOrder.getQuoteAmount();
+    private void matchMarketBuy(EngineOrder buyOrder, OrderBook orderBook, DisruptorEvent event) {
+        long amountToSpend = buyOrder.getQuoteAmount();
 
-        while (buyOrder.getQuoteFilled().compareTo(amountToSpend) < 0) {
-            Optional<OrderBucket> bestAskBucketOpt = orderBook.getBestAskBucket();
-            if (bestAskBucketOpt.isEmpty()) break;
+        while (buyOrder.getQuoteFilled() < amountToSpend) {
+            OrderBucket askBucket = orderBook.getAsks().best();
+            if (askBucket == null) break;
 
-            OrderBucket askBucket = bestAskBucketOpt.get();
-            BigDecimal price = OrderBook.toBigDecimal(askBucket.getPrice());
-            OrderEntity sellOrder = askBucket.peek();
+            long price = askBucket.getPrice();
+            EngineOrder sellOrder = askBucket.peek();
             if (sellOrder == null) {
-                orderBook.getAsks().remove(askBucket.getPrice());
+                orderBook.removeBucket(OrderTypes.Side.SELL, price);
                 continue;
             }
 
-            if (buyOrder.getUserId().equals(sellOrder.getUserId())) {
-                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(buyOrder, sellOrder, orderBook, null, event);
+            if (buyOrder.getUserId() == sellOrder.getUserId()) {
+                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(buyOrder, sellOrder, orderBook, askBucket, event);
                 if (shouldBreak) {
                     break;
                 }
                 continue;
             }
 
-            BigDecimal remainingSpend = amountToSpend.subtract(buyOrder.getQuoteFilled());
-            BigDecimal maxQtyToBuy = remainingSpend.divide(price, 8, RoundingMode.DOWN);
-            BigDecimal tradedQty = maxQtyToBuy.min(sellOrder.getRemaining());
+            long remainingSpend = amountToSpend - buyOrder.getQuoteFilled();
+            long maxQtyToBuy = orderBook.quantityFor(remainingSpend, price);
+            long tradedQty = Math.min(maxQtyToBuy, sellOrder.getRemaining());
+
+            long cost = orderBook.quoteOf(price, tradedQty);
+
+            // 剩余金额不足以买入一个最小数量单位 (或成交金额向下取整后为0) 时结束
+            if (tradedQty <= 0 || cost <= 0) break;
 
-            if (tradedQty.compareTo(BigDecimal.ZERO) <= 0) break;
+            processTrade(buyOrder, sellOrder, askBucket, price, tradedQty, cost, orderBook, event);
 
-            processTrade(buyOrder, sellOrder, price, tradedQty, orderBook, event);
-            
-            if (askBucket.isEmpty()) orderBook.getAsks().remove(askBucket.getPrice());
+            if (askBucket.isEmpty()) orderBook.removeBucket(OrderTypes.Side.SELL, price);
         }
     }
 
-    private void matchMarketSell(OrderEntity sellOrder, OrderBook orderBook, DisruptorEvent event) {
-        while (sellOrder.getRemaining().compareTo(BigDecimal.ZERO) > 0) {
-            Optional<OrderBucket> bestBidBucketOpt = orderBook.getBestBidBucket();
-            if (bestBidBucketOpt.isEmpty()) break;
+    private void matchMarketSell(EngineOrder sellOrder, OrderBook orderBook, DisruptorEvent event) {
+        while (sellOrder.getRemaining() > 0) {
+            OrderBucket bidBucket = orderBook.getBids().best();
+            if (bidBucket == null) break;
 
-            OrderBucket bidBucket = bestBidBucketOpt.get();
-            BigDecimal price = OrderBook.toBigDecimal(bidBucket.getPrice());
-            OrderEntity buyOrder = bidBucket.peek();
+            long price = bidBucket.getPrice();
+            EngineOrder buyOrder = bidBucket.peek();
             if (buyOrder == null) {
-                orderBook.getBids().remove(bidBucket.getPrice());
+                orderBook.removeBucket(OrderTypes.Side.BUY, price);
                 continue;
             }
 
-            if (sellOrder.getUserId().equals(buyOrder.getUserId())) {
-                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(sellOrder, buyOrder, orderBook, null, event);
+            if (sellOrder.getUserId() == buyOrder.getUserId()) {
+                boolean shouldBreak = stpStrategyFactory.getActiveStrategy().handleSelfTrade(sellOrder, buyOrder, orderBook, bidBucket, event);
                 if (shouldBreak) {
                     break;
                 }
                 continue;
             }
 
-            BigDecimal tradedQty = sellOrder.getRemaining().min(buyOrder.getRemaining());
+            long tradedQty = Math.min(sellOrder.getRemaining(), buyOrder.getRemaining());
+            long cost = orderBook.quoteOf(price, tradedQty);
 
-            processTrade(sellOrder, buyOrder, price, tradedQty, orderBook, event);
+            processTrade(sellOrder, buyOrder, bidBucket, price, tradedQty, cost, orderBook, event);
 
-            if (bidBucket.isEmpty()) orderBook.getBids().remove(bidBucket.getPrice());
+            if (bidBucket.isEmpty()) orderBook.removeBucket(OrderTypes.Side.BUY, price);
         }
     }
 
-    private void processTrade(OrderEntity takerOrder, OrderEntity makerOrder, BigDecimal price, BigDecimal tradedQty, OrderBook orderBook, DisruptorEvent event) {
-        log.info(">>> 撮合成功: Taker[{}] vs Maker[{}] | Price: {} | Qty: {}", 
-                takerOrder.getId(), makerOrder.getId(), price, tradedQty);
-
-        BigDecimal cost = tradedQty.multiply(price);
-        
-        takerOrder.addFilled(tradedQty);
-        if (takerOrder.getType() == OrderTypes.OrderType.MARKET && takerOrder.getSide() == OrderTypes.Side.BUY) {
-            takerOrder.addQuoteFilled(cost);
-        }
-        
-        makerOrder.addFilled(tradedQty);
-        if (makerOrder.getType() == OrderTypes.OrderType.MARKET && makerOrder.getSide() == OrderTypes.Side.BUY) {
-            makerOrder.addQuoteFilled(cost);
+    private void processTrade(EngineOrder takerOrder, EngineOrder makerOrder, OrderBucket makerBucket, long price, long tradedQty, long cost, OrderBook orderBook, DisruptorEvent event) {
+        if (log.isDebugEnabled()) {
+            log.debug(">>> 撮合成功: Taker[{}] vs Maker[{}] | Price: {} | Qty: {}",
+                    takerOrder.getId(), makerOrder.getId(), price, tradedQty);
         }
 
-        event.addTradeEvent(createTradeEvent(takerOrder, makerOrder, price, tradedQty));
+        takerOrder.fill(tradedQty, cost);
+        orderBook.fillResting(makerBucket, makerOrder, tradedQty, cost);
+
+        recordTrade(takerOrder, makerOrder, price, tradedQty, cost, orderBook, event);
 
         if (takerOrder.isFullyFilled()) {
             orderBook.remove(takerOrder.getId());
@@ -121,15 +111,13 @@ public class MarketOrderMatchStrategy implements MatchStrategy {
         }
     }
 
-    private TradeEvent createTradeEvent(OrderEntity takerOrder, OrderEntity makerOrder, BigDecimal price, BigDecimal quantity) {
-        return TradeEvent.builder()
-                .symbol(takerOrder.getMarketSymbol())
-                .price(price)
-                .quantity(quantity)
-                .takerOrderId(takerOrder.getId())
-                .makerOrderId(makerOrder.getId())
-                .takerUserId(takerOrder.getUserId())
-                .makerUserId(makerOrder.getUserId())
-                .build();
+    /**
+     * 把成交结果和挂单成交后的状态写入事件中预分配的槽位，不产生新对象。
+     */
+    private void recordTrade(EngineOrder takerOrder, EngineOrder makerOrder, long price, long quantity, long quoteQuantity, OrderBook orderBook, DisruptorEvent event) {
+        event.nextTradeSlot().set(takerOrder.getSymbol(), price, quantity, quoteQuantity,
+                orderBook.getPriceScale(), orderBook.getQuantityScale(),
+                takerOrder.getId(), makerOrder.getId(), takerOrder.getUserId(), makerOrder.getUserId());
+        event.nextOrderSlot().set(makerOrder, orderBook.getPriceScale(), orderBook.getQuantityScale());
     }
 }
@@ -0,0 +1,51 @@
+package com.remus.dwanjcex.kafka;
+
+import com.remus.dwanjcex.disruptor.service.EngineShardRouter;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 撮合指令主题的分区器：按交易对所在的撮合流水线选择分区，同一流水线的全部交易对落在同一分区，
+ * 因此每条流水线只由一个消费者线程供给，交易对内的指令顺序得以保持。
+ * 其他主题按键的哈希分区 (无键时随机)。
+ */
+public class EngineCommandPartitioner implements Partitioner {
+
+    /**
+     * 生产者配置中传入 {@link EngineShardRouter} 实例的键
+     */
+    public static final String SHARD_ROUTER_CONFIG = "cex.engine.shard-router";
+    /**
+     * 生产者配置中传入撮合指令主题名的键
+     */
+    public static final String COMMAND_TOPIC_CONFIG = "cex.kafka.command-topic";
+
+    private EngineShardRouter shardRouter;
+    private String commandTopic;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        this.shardRouter = (EngineShardRouter) configs.get(SHARD_ROUTER_CONFIG);
+        this.commandTopic = (String) configs.get(COMMAND_TOPIC_CONFIG);
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (topic.equals(commandTopic) && key instanceof String symbol) {
+            return shardRouter.partitionOf(symbol, numPartitions);
+        }
+        if (keyBytes == null) {
+            return ThreadLocalRandom.current().nextInt(numPartitions);
+        }
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -1,60 +1,108 @@
 package com.remus.dwanjcex.kafka;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remus.dwanjcex.disruptor.event.EngineCommand;
 import com.remus.dwanjcex.disruptor.service.DisruptorService;
-import com.remus.dwanjcex.kafka.dto.KafkaOrderMessage;
-import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.engine.OrderBookFactory;
+import com.remus.dwanjcex.kafka.codec.BinaryEngineCommand;
+import com.remus.dwanjcex.kafka.codec.CommandBinaryCodec;
+import com.remus.dwanjcex.kafka.dto.KafkaCommandMessage;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Kafka消费者服务。
  * 负责从Kafka消费消息，并将其分发到系统内部进行处理。
+ * 以批量方式监听：一次 poll 返回的记录解码后整体送入Disruptor，分摊监听调用与环形缓冲区的协调开销。
+ * <p>
+ * 撮合指令主题按流水线分区 (见 {@link EngineCommandPartitioner})，分区由 consumer-concurrency 个消费者线程瓜分，
+ * 每条流水线只由持有其分区的那个线程供给，同一交易对的指令顺序与写入主题的顺序一致。
+ * <p>
+ * 指令值以字节接收，按首字节区分 {@link CommandBinaryCodec} 二进制消息与JSON消息，两种编码可在同一主题中混用；
+ * 二进制消息在发布时直接解码进环形缓冲区事件。
  */
 @Slf4j
 @Service
 public class KafkaConsumerService {
 
-    private static final String TOPIC_ORDERS = "orders-topic";
-    private static final String TOPIC_CANCEL_ORDERS = "cancel-orders-topic";
     private static final String GROUP_ID = "matching-engine-group";
 
     private final ObjectMapper objectMapper;
     private final DisruptorService disruptorService;
+    private final OrderBookFactory orderBookFactory;
 
-    public KafkaConsumerService(ObjectMapper objectMapper, DisruptorService disruptorService) {
+    public KafkaConsumerService(ObjectMapper objectMapper, DisruptorService disruptorService, OrderBookFactory orderBookFactory) {
         this.objectMapper = objectMapper;
         this.disruptorService = disruptorService;
+        this.orderBookFactory = orderBookFactory;
     }
 
     /**
-     * 监听订单主题，消费订单消息并送入Disruptor处理。
+     * 监听撮合指令主题，批量消费下单/撤单指令并按原有顺序送入Disruptor处理。
      */
-    @KafkaListener(topics = TOPIC_ORDERS, groupId = GROUP_ID)
-    public void listenOrderTopic(String message) {
-        log.info("从Kafka接收到下单消息: {}", message);
-        try {
-            KafkaOrderMessage kafkaMessage = objectMapper.readValue(message, KafkaOrderMessage.class);
-            // 将orderId和DTO分别传递
-            disruptorService.publishPlaceOrderEvent(kafkaMessage.getOrderId(), kafkaMessage.getOrderDto());
-        } catch (JsonProcessingException e) {
-            log.error("反序列化下单消息为KafkaOrderMessage时失败: {}", message, e);
+    @KafkaListener(topics = "${cex.kafka.command-topic:engine-commands}", groupId = GROUP_ID,
+            containerFactory = "batchKafkaListenerContainerFactory",
+            concurrency = "${cex.kafka.consumer-concurrency:1}",
+            properties = {"max.poll.records=${cex.kafka.max-poll-records:500}",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer"})
+    public void listenCommandTopic(List<ConsumerRecord<String, byte[]>> records) {
+        log.debug("从Kafka接收到 {} 条撮合指令", records.size());
+        List<EngineCommand> commands = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            EngineCommand command = decode(record);
+            if (command != null) {
+                commands.add(command);
+            }
         }
+        disruptorService.publishBatch(commands);
     }
 
     /**
-     * 监听取消订单主题，消费取消消息并送入Disruptor处理。
+     * 解码一条记录，无法解码的记录 (空值、格式错误、超出交易对精度) 记录日志后跳过，返回 null；
+     * 不向监听器抛出异常，否则整批记录会被反复投递。
      */
-    @KafkaListener(topics = TOPIC_CANCEL_ORDERS, groupId = GROUP_ID)
-    public void listenCancelOrderTopic(String message) {
-        log.info("从Kafka接收到取消订单消息: {}", message);
+    private EngineCommand decode(ConsumerRecord<String, byte[]> record) {
+        byte[] value = record.value();
+        if (value == null) {
+            log.warn("忽略空的撮合指令 (tombstone): partition={}, offset={}, key={}",
+                    record.partition(), record.offset(), record.key());
+            return null;
+        }
         try {
-            CancelOrderDto cancelDto = objectMapper.readValue(message, CancelOrderDto.class);
-            disruptorService.publishCancelOrderEvent(cancelDto);
-        } catch (JsonProcessingException e) {
-            log.error("反序列化取消消息为CancelOrderDto时失败: {}", message, e);
+            EngineCommand command;
+            if (CommandBinaryCodec.isBinary(value)) {
+                command = BinaryEngineCommand.of(value);
+                if (command == null) {
+                    log.error("无效的二进制撮合指令: partition={}, offset={}, length={}",
+                            record.partition(), record.offset(), value.length);
+                    return null;
+                }
+            } else {
+                command = objectMapper.readValue(value, KafkaCommandMessage.class).toCommand();
+                // 缺少指令内容的消息在这里拒绝，而不是到发布时才失败 (那会使整批重投)
+                if (command.getSymbol() == null) {
+                    log.error("撮合指令缺少交易对，跳过: partition={}, offset={}", record.partition(), record.offset());
+                    return null;
+                }
+            }
+            // 超出精度的价格或数量无法转换为订单簿的定点数，进入撮合线程后才失败
+            String symbol = command.getSymbol();
+            if (!command.fitsScale(orderBookFactory.priceScaleOf(symbol), orderBookFactory.quantityScaleOf(symbol))) {
+                log.error("撮合指令的价格或数量超出交易对 {} 的精度，跳过: partition={}, offset={}",
+                        symbol, record.partition(), record.offset());
+                return null;
+            }
+            return command;
+        } catch (Exception e) {
+            log.error("解码撮合指令失败，跳过: partition={}, offset={}, value={}",
+                    record.partition(), record.offset(), new String(value, StandardCharsets.UTF_8), e);
+            return null;
         }
     }
 }
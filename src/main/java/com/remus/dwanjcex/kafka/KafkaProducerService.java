@@ -4,9 +4,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.remus.dwanjcex.disruptor.event.OrderCancelEvent;
 import com.remus.dwanjcex.disruptor.event.OrderCreatedEvent;
-import com.remus.dwanjcex.kafka.dto.KafkaOrderMessage;
+import com.remus.dwanjcex.kafka.codec.CommandBinaryCodec;
+import com.remus.dwanjcex.kafka.dto.KafkaCommandMessage;
 import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.event.TransactionPhase;
@@ -15,20 +18,27 @@ import org.springframework.transaction.event.TransactionalEventListener;
 /**
  * Kafka生产者服务。
  * 负责将系统中的关键业务事件发送到Kafka消息队列。
+ * 下单与撤单写入同一个撮合指令主题并以交易对为键，同一交易对的下单与随后的撤单按发送顺序被消费。
+ * 指令默认以 {@link CommandBinaryCodec} 的二进制格式编码，cex.kafka.command-format=json 时退回JSON。
+ * 下单与撤单只有一个撮合指令主题，编码开关即作用于该主题；消费端按每条消息的首字节识别编码，
+ * 切换编码时无需排空主题，两种编码的消息可以并存。
  */
 @Slf4j
 @Service
 public class KafkaProducerService {
 
-    private static final String TOPIC_ORDERS = "orders-topic";
-    private static final String TOPIC_CANCEL_ORDERS = "cancel-orders-topic";
-
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final String commandTopic;
+    private final boolean binaryFormat;
 
-    public KafkaProducerService(KafkaTemplate<String, String> kafkaTemplate, ObjectMapper objectMapper) {
+    public KafkaProducerService(KafkaTemplate<String, byte[]> kafkaTemplate, ObjectMapper objectMapper,
+                                @Value("${cex.kafka.command-topic:engine-commands}") String commandTopic,
+                                @Value("${cex.kafka.command-format:binary}") String commandFormat) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.commandTopic = commandTopic;
+        this.binaryFormat = !"json".equalsIgnoreCase(commandFormat);
     }
 
     /**
@@ -38,9 +48,8 @@ public class KafkaProducerService {
     public void handleOrderCreation(OrderCreatedEvent event) {
         log.info("接收到订单创建的事务后事件，准备发送到Kafka: orderId={}", event.getOrderId());
         try {
-            KafkaOrderMessage message = new KafkaOrderMessage(event.getOrderId(), event.getOrderDto());
-            String messagePayload = objectMapper.writeValueAsString(message);
-            kafkaTemplate.send(TOPIC_ORDERS, messagePayload).whenComplete((result, ex) -> {
+            byte[] messagePayload = encodePlace(event.getOrderId(), event.getOrderDto());
+            kafkaTemplate.send(commandTopic, event.getOrderDto().getSymbol(), messagePayload).whenComplete((result, ex) -> {
                 if (ex != null) {
                     log.error("发送订单消息到Kafka失败: orderId={}, error={}", event.getOrderId(), ex.getMessage(), ex);
                 } else {
@@ -51,7 +60,7 @@ public class KafkaProducerService {
                 }
             });
         } catch (JsonProcessingException e) {
-            log.error("序列化KafkaOrderMessage为JSON时失败: orderId={}", event.getOrderId(), e);
+            log.error("序列化KafkaCommandMessage为JSON时失败: orderId={}", event.getOrderId(), e);
         }
     }
 
@@ -63,8 +72,8 @@ public class KafkaProducerService {
         CancelOrderDto dto = event.getCancelOrderDto();
         log.info("接收到订单取消的事务后事件，准备发送到Kafka: orderId={}", dto.getOrderId());
         try {
-            String messagePayload = objectMapper.writeValueAsString(dto);
-            kafkaTemplate.send(TOPIC_CANCEL_ORDERS, messagePayload).whenComplete((result, ex) -> {
+            byte[] messagePayload = encodeCancel(dto);
+            kafkaTemplate.send(commandTopic, dto.getSymbol(), messagePayload).whenComplete((result, ex) -> {
                 if (ex != null) {
                     log.error("发送取消订单消息到Kafka失败: orderId={}, error={}", dto.getOrderId(), ex.getMessage(), ex);
                 } else {
@@ -75,7 +84,21 @@ public class KafkaProducerService {
                 }
             });
         } catch (JsonProcessingException e) {
-            log.error("序列化CancelOrderDto为JSON时失败: orderId={}", dto.getOrderId(), e);
+            log.error("序列化KafkaCommandMessage为JSON时失败: orderId={}", dto.getOrderId(), e);
+        }
+    }
+
+    private byte[] encodePlace(Long orderId, OrderDto dto) throws JsonProcessingException {
+        if (binaryFormat) {
+            return CommandBinaryCodec.encodePlace(orderId, dto);
+        }
+        return objectMapper.writeValueAsBytes(KafkaCommandMessage.place(orderId, dto));
+    }
+
+    private byte[] encodeCancel(CancelOrderDto dto) throws JsonProcessingException {
+        if (binaryFormat) {
+            return CommandBinaryCodec.encodeCancel(dto);
         }
+        return objectMapper.writeValueAsBytes(KafkaCommandMessage.cancel(dto));
     }
 }
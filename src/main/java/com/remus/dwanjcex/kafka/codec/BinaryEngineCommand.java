@@ -0,0 +1,45 @@
+package com.remus.dwanjcex.kafka.codec;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EngineCommand;
+
+/**
+ * 尚未解码的二进制撮合指令：只持有原始字节和交易对 (用于选择流水线)，
+ * 在发布时直接解码进已申请的环形缓冲区事件，不经过JSON和中间消息对象。
+ */
+public final class BinaryEngineCommand implements EngineCommand {
+
+    private final String symbol;
+    private final byte[] data;
+
+    private BinaryEngineCommand(String symbol, byte[] data) {
+        this.symbol = symbol;
+        this.data = data;
+    }
+
+    /**
+     * 校验消息并包装为指令，消息无效时返回 null。交易对从消息本身读取而不信任记录的键，
+     * 保证指令总是进入其订单簿所在的流水线。
+     */
+    public static BinaryEngineCommand of(byte[] data) {
+        if (!CommandBinaryCodec.isValid(data)) {
+            return null;
+        }
+        return new BinaryEngineCommand(CommandBinaryCodec.peekSymbol(data), data);
+    }
+
+    @Override
+    public String getSymbol() {
+        return symbol;
+    }
+
+    @Override
+    public void copyTo(DisruptorEvent event) {
+        CommandBinaryCodec.decode(data, symbol, event);
+    }
+
+    @Override
+    public boolean fitsScale(int priceScale, int quantityScale) {
+        return CommandBinaryCodec.fitsScale(data, priceScale, quantityScale);
+    }
+}
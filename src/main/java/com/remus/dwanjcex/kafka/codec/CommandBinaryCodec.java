@@ -0,0 +1,301 @@
+package com.remus.dwanjcex.kafka.codec;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.engine.FixedPoint;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 撮合指令的紧凑二进制编码 (大端，定长字段按固定顺序排列)。
+ * <p>
+ * 消息格式：
+ * <pre>
+ * byte magic, byte version, byte eventType
+ * PLACE_ORDER : long orderId, long userId, str symbol, byte orderType, byte side, dec price, dec amount, dec quoteAmount
+ * CANCEL_ORDER: long orderId, long userId, str symbol, byte side
+ * </pre>
+ * str 为 byte 长度 + UTF-8 字节；dec 为 byte 标志：0 表示 null，
+ * 1 表示 byte scale + long 非标度值 (绝大多数价格和数量)，2 表示 int scale + 无符号 byte 长度 + 非标度值字节。
+ * 枚举按 ordinal 写入，新增枚举值只能追加在末尾；格式变化时递增 version，解码方拒绝不认识的版本。
+ * 首字节 magic 不可能出现在 JSON 文本的开头，消费方据此区分二进制与 JSON 消息。
+ */
+public final class CommandBinaryCodec {
+
+    public static final byte MAGIC = (byte) 0xC3;
+    public static final byte VERSION = 1;
+
+    private static final byte NULL_ENUM = -1;
+    private static final byte DEC_NULL = 0;
+    private static final byte DEC_COMPACT = 1;
+    private static final byte DEC_BIG = 2;
+    // 下单消息除字符串外的最大长度，用于一次性分配缓冲区
+    private static final int MAX_FIXED_LENGTH = 3 + 8 + 8 + 1 + 1 + 1 + 3 * (1 + 4 + 1 + 255);
+
+    private CommandBinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encodePlace(Long orderId, OrderDto dto) {
+        byte[] symbol = dto.getSymbol().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_FIXED_LENGTH + symbol.length);
+        buffer.put(MAGIC).put(VERSION).put((byte) EventType.PLACE_ORDER.ordinal());
+        buffer.putLong(nullToZero(orderId));
+        buffer.putLong(nullToZero(dto.getUserId()));
+        putString(buffer, symbol);
+        putEnum(buffer, dto.getType());
+        putEnum(buffer, dto.getSide());
+        putDecimal(buffer, dto.getPrice());
+        putDecimal(buffer, dto.getAmount());
+        putDecimal(buffer, dto.getQuoteAmount());
+        return toArray(buffer);
+    }
+
+    public static byte[] encodeCancel(CancelOrderDto dto) {
+        byte[] symbol = dto.getSymbol().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(3 + 8 + 8 + 1 + symbol.length + 1);
+        buffer.put(MAGIC).put(VERSION).put((byte) EventType.CANCEL_ORDER.ordinal());
+        buffer.putLong(nullToZero(dto.getOrderId()));
+        buffer.putLong(nullToZero(dto.getUserId()));
+        putString(buffer, symbol);
+        putEnum(buffer, dto.getSide());
+        return toArray(buffer);
+    }
+
+    /**
+     * 检查消息结构是否完整有效 (魔数、版本、枚举取值和长度)，不创建任何对象。
+     * 通过检查的消息可以安全地在已申请的环形缓冲区槽位中解码。
+     */
+    public static boolean isValid(byte[] data) {
+        if (!isBinary(data) || data.length < 3 || data[1] != VERSION) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(2);
+        try {
+            byte type = buffer.get();
+            if (type == EventType.PLACE_ORDER.ordinal()) {
+                buffer.position(buffer.position() + 16);
+                skipString(buffer);
+                return validEnum(buffer.get(), OrderTypes.OrderType.values().length)
+                        && validEnum(buffer.get(), OrderTypes.Side.values().length)
+                        && skipDecimal(buffer) && skipDecimal(buffer) && skipDecimal(buffer)
+                        && !buffer.hasRemaining();
+            }
+            if (type == EventType.CANCEL_ORDER.ordinal()) {
+                buffer.position(buffer.position() + 16);
+                skipString(buffer);
+                return validEnum(buffer.get(), OrderTypes.Side.values().length) && !buffer.hasRemaining();
+            }
+            return false;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 读取消息中的交易对，不解码其余字段。消息须已通过 {@link #isValid}。
+     */
+    public static String peekSymbol(byte[] data) {
+        int length = data[3 + 16] & 0xFF;
+        return new String(data, 3 + 16 + 1, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 下单消息的价格、数量和报价金额能否以给定精度的定点数无损表示，不创建 BigDecimal (紧凑形式下)。
+     * 撤单消息总是返回 true。消息须已通过 {@link #isValid}。
+     */
+    public static boolean fitsScale(byte[] data, int priceScale, int quantityScale) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(2);
+        if (buffer.get() != EventType.PLACE_ORDER.ordinal()) {
+            return true;
+        }
+        buffer.position(buffer.position() + 16);
+        skipString(buffer);
+        buffer.position(buffer.position() + 2);
+        return decimalFits(buffer, priceScale) && decimalFits(buffer, quantityScale) && decimalFits(buffer, priceScale);
+    }
+
+    /**
+     * 把消息直接解码进 (已清空的) 环形缓冲区事件。消息须已通过 {@link #isValid}。
+     */
+    public static void decode(byte[] data, DisruptorEvent event) {
+        decode(data, null, event);
+    }
+
+    /**
+     * 同 {@link #decode(byte[], DisruptorEvent)}，symbol 为校验时已读出的交易对 (为 null 时从消息读取)，避免重复解码字符串。
+     * <p>
+     * 下单指令仍解码为 {@link OrderDto} 和 BigDecimal：日志阶段按DTO写入日志、撮合阶段在订单簿上按其精度转换为定点数，
+     * 这两处都以DTO为输入；紧凑形式的数值由 long 非标度值直接构造，不经过字符串或 BigInteger。
+     */
+    public static void decode(byte[] data, String symbol, DisruptorEvent event) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(2);
+        EventType type = EventType.values()[buffer.get()];
+        event.setType(type);
+        switch (type) {
+            case PLACE_ORDER: {
+                event.setOrderId(buffer.getLong());
+                event.setPlaceOrder(OrderDto.builder()
+                        .userId(buffer.getLong())
+                        .symbol(readSymbol(buffer, symbol))
+                        .type(getEnum(buffer, OrderTypes.OrderType.values()))
+                        .side(getEnum(buffer, OrderTypes.Side.values()))
+                        .price(getDecimal(buffer))
+                        .amount(getDecimal(buffer))
+                        .quoteAmount(getDecimal(buffer))
+                        .build());
+                break;
+            }
+            case CANCEL_ORDER: {
+                long orderId = buffer.getLong();
+                long userId = buffer.getLong();
+                String cancelSymbol = readSymbol(buffer, symbol);
+                event.setCancelOrder(new CancelOrderDto(orderId, userId, cancelSymbol, getEnum(buffer, OrderTypes.Side.values())));
+                break;
+            }
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static long nullToZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes.length > 255) {
+            throw new IllegalArgumentException("交易对名称过长: " + bytes.length);
+        }
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static String readSymbol(ByteBuffer buffer, String known) {
+        if (known == null) {
+            return getString(buffer);
+        }
+        skipString(buffer);
+        return known;
+    }
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        buffer.position(buffer.position() + length);
+    }
+
+    private static void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put(value == null ? NULL_ENUM : (byte) value.ordinal());
+    }
+
+    private static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        byte ordinal = buffer.get();
+        return ordinal == NULL_ENUM ? null : values[ordinal];
+    }
+
+    private static boolean validEnum(byte ordinal, int size) {
+        return ordinal == NULL_ENUM || (ordinal >= 0 && ordinal < size);
+    }
+
+    private static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.put(DEC_NULL);
+        } else if (value.scale() == (byte) value.scale() && value.unscaledValue().bitLength() < 64) {
+            buffer.put(DEC_COMPACT);
+            buffer.put((byte) value.scale());
+            buffer.putLong(value.unscaledValue().longValue());
+        } else {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            if (unscaled.length > 255) {
+                throw new IllegalArgumentException("数值过大: " + value);
+            }
+            buffer.put(DEC_BIG);
+            buffer.putInt(value.scale());
+            buffer.put((byte) unscaled.length);
+            buffer.put(unscaled);
+        }
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        switch (buffer.get()) {
+            case DEC_NULL:
+                return null;
+            case DEC_COMPACT: {
+                byte scale = buffer.get();
+                return BigDecimal.valueOf(buffer.getLong(), scale);
+            }
+            default: {
+                int scale = buffer.getInt();
+                byte[] unscaled = new byte[buffer.get() & 0xFF];
+                buffer.get(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            }
+        }
+    }
+
+    private static boolean decimalFits(ByteBuffer buffer, int scale) {
+        switch (buffer.get()) {
+            case DEC_NULL:
+                return true;
+            case DEC_COMPACT: {
+                int valueScale = buffer.get();
+                long unscaled = buffer.getLong();
+                // 去掉末尾的0后再比较，与 FixedPoint.fits 一致
+                while (valueScale > scale && unscaled % 10 == 0) {
+                    unscaled /= 10;
+                    valueScale--;
+                }
+                return valueScale <= scale;
+            }
+            default: {
+                int valueScale = buffer.getInt();
+                byte[] unscaled = new byte[buffer.get() & 0xFF];
+                buffer.get(unscaled);
+                return FixedPoint.fits(new BigDecimal(new BigInteger(unscaled), valueScale), scale);
+            }
+        }
+    }
+
+    private static boolean skipDecimal(ByteBuffer buffer) {
+        switch (buffer.get()) {
+            case DEC_NULL:
+                return true;
+            case DEC_COMPACT:
+                buffer.position(buffer.position() + 1 + 8);
+                return true;
+            case DEC_BIG: {
+                buffer.position(buffer.position() + 4);
+                int length = buffer.get() & 0xFF;
+                buffer.position(buffer.position() + length);
+                return length > 0;
+            }
+            default:
+                return false;
+        }
+    }
+}
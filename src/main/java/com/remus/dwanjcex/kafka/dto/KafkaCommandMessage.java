@@ -0,0 +1,50 @@
+package com.remus.dwanjcex.kafka.dto;
+
+import com.remus.dwanjcex.disruptor.event.EngineCommand;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 撮合指令主题的消息体。下单与撤单共用一个主题，以交易对为键，保证同一交易对的指令顺序。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KafkaCommandMessage {
+
+    /**
+     * 指令类型
+     */
+    private EventType type;
+
+    /**
+     * 订单在数据库中的ID (下单指令)
+     */
+    private Long orderId;
+
+    /**
+     * 订单的详细信息DTO (下单指令)
+     */
+    private OrderDto orderDto;
+
+    /**
+     * 撤单信息 (撤单指令)
+     */
+    private CancelOrderDto cancelOrderDto;
+
+    public static KafkaCommandMessage place(Long orderId, OrderDto orderDto) {
+        return new KafkaCommandMessage(EventType.PLACE_ORDER, orderId, orderDto, null);
+    }
+
+    public static KafkaCommandMessage cancel(CancelOrderDto cancelOrderDto) {
+        return new KafkaCommandMessage(EventType.CANCEL_ORDER, null, null, cancelOrderDto);
+    }
+
+    public EngineCommand toCommand() {
+        return type == EventType.PLACE_ORDER ? EngineCommand.place(orderId, orderDto) : EngineCommand.cancel(cancelOrderDto);
+    }
+}
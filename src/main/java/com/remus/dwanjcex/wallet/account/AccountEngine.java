@@ -0,0 +1,186 @@
+package com.remus.dwanjcex.wallet.account;
+
+import com.remus.dwanjcex.wallet.entity.LedgerLog;
+import com.remus.dwanjcex.wallet.entity.WalletBalance;
+import com.remus.dwanjcex.wallet.mapper.WalletBalanceMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 内存账户引擎：用户各资产的可用与冻结余额以内存为准。
+ * <p>
+ * 账户在首次使用时从数据库加载 (不存在则创建)，此后冻结、解冻、结算都只在内存中执行，
+ * 每次变更以 {@link BalanceChange} 返回，由调用方按差额批量持久化；同一账户上的变更在账户对象上串行执行，
+ * 因此各撮合流水线和下单请求可以并发操作不同账户，不再需要分布式锁和乐观锁重试。
+ * <p>
+ * 内存余额是唯一的权威状态，因此同一时刻只能有一个撮合服务实例操作这些账户 (与内存订单簿的前提一致)。
+ */
+@Slf4j
+@Component
+public class AccountEngine {
+
+    // 账户加载锁的分段数
+    private static final int LOAD_LOCK_STRIPES = 64;
+
+    private final WalletBalanceMapper balanceMapper;
+    // 账户加载在独立事务中提交，避免新建的余额行随调用方的事务回滚而消失
+    private final TransactionTemplate loadTemplate;
+    private final Map<AccountKey, WalletBalance> accounts = new ConcurrentHashMap<>();
+    private final Object[] loadLocks = new Object[LOAD_LOCK_STRIPES];
+
+    public AccountEngine(WalletBalanceMapper balanceMapper, PlatformTransactionManager transactionManager) {
+        this.balanceMapper = balanceMapper;
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < loadLocks.length; i++) {
+            loadLocks[i] = new Object();
+        }
+    }
+
+    public BalanceChange deposit(Long userId, String asset, BigDecimal amount, String ref) {
+        return apply(userId, asset, "DEPOSIT", ref, amount, "User deposit", balance -> balance.credit(amount));
+    }
+
+    public BalanceChange freeze(Long userId, String asset, BigDecimal amount, String ref) {
+        BalanceChange change = apply(userId, asset, "FREEZE", ref, amount.negate(), "Order freeze", balance -> balance.freeze(amount));
+        log.info("用户：{},冻结金额：{}", userId, amount);
+        return change;
+    }
+
+    public BalanceChange unfreeze(Long userId, String asset, BigDecimal amount, String ref) {
+        BalanceChange change = apply(userId, asset, "UNFREEZE", ref, amount, "Order unfreeze", balance -> balance.unfreeze(amount));
+        log.info("用户：{},解冻金额：{}", userId, amount);
+        return change;
+    }
+
+    public BalanceChange settleCredit(Long userId, String asset, BigDecimal amount, String ref) {
+        return apply(userId, asset, "TRADE_INCOME", ref, amount, "Trade income", balance -> balance.credit(amount));
+    }
+
+    /**
+     * 扣减冻结余额，金额不为正时不产生变更并返回 null。
+     */
+    public BalanceChange reduceFrozen(Long userId, String asset, BigDecimal amount, String reason) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) return null;
+        return apply(userId, asset, "TRADE_DEDUCT", reason, amount.negate(), "Trade deduct frozen", balance -> balance.reduceFrozen(amount));
+    }
+
+    /**
+     * 撤销一次尚未持久化成功的变更 (例如所在的数据库事务已回滚)，返回反向的补偿变更。
+     * <p>
+     * 原变更之后同一账户上的其他变更记录的变更前后余额都包含原变更的金额，因此不能直接抹去原变更，
+     * 而是在账户的锁内追加一次反向变更，其变更前后余额与此刻的账户一致；调用方应把原变更和补偿变更的流水一并写入
+     * (二者差额相抵，余额行无需更新)，流水中的余额链条才能前后衔接。
+     */
+    public BalanceChange revert(BalanceChange change) {
+        LedgerLog ledger = change.ledger();
+        BigDecimal availableDelta = change.availableDelta().negate();
+        BigDecimal frozenDelta = change.frozenDelta().negate();
+        BalanceChange compensation = apply(ledger.getUserId(), ledger.getAssetSymbol(), ledger.getBizType() + "_REVERT",
+                ledger.getBizId(), ledger.getAmount().negate(), "Revert uncommitted " + ledger.getBizType(),
+                balance -> balance.applyDelta(availableDelta, frozenDelta));
+        log.warn("撤销未提交的余额变更: userId={}, asset={}, bizType={}, bizId={}",
+                ledger.getUserId(), ledger.getAssetSymbol(), ledger.getBizType(), ledger.getBizId());
+        return compensation;
+    }
+
+    /**
+     * 账户余额的一致副本，可由任意线程调用。
+     */
+    public WalletBalance getBalance(Long userId, String asset) {
+        return copyOf(account(userId, asset));
+    }
+
+    /**
+     * 已加载账户的一致副本，账户尚未加载时返回 null (此时数据库中的余额即为最新)。
+     */
+    public WalletBalance getLoadedBalance(Long userId, String asset) {
+        WalletBalance balance = accounts.get(new AccountKey(userId, asset));
+        return balance == null ? null : copyOf(balance);
+    }
+
+    private BalanceChange apply(Long userId, String asset, String bizType, String bizId, BigDecimal amount, String remark,
+                                Consumer<WalletBalance> action) {
+        WalletBalance balance = account(userId, asset);
+        synchronized (balance) {
+            BigDecimal beforeAvailable = balance.getAvailable();
+            BigDecimal beforeFrozen = balance.getFrozen();
+            action.accept(balance);
+            LedgerLog ledger = LedgerLog.builder()
+                    .userId(userId)
+                    .assetSymbol(asset)
+                    .bizType(bizType)
+                    .bizId(bizId)
+                    .amount(amount)
+                    .beforeAvailable(beforeAvailable)
+                    .beforeFrozen(beforeFrozen)
+                    .afterAvailable(balance.getAvailable())
+                    .afterFrozen(balance.getFrozen())
+                    .remark(remark)
+                    .build();
+            return new BalanceChange(balance.getId(), ledger);
+        }
+    }
+
+    private WalletBalance account(Long userId, String asset) {
+        AccountKey key = new AccountKey(userId, asset);
+        WalletBalance balance = accounts.get(key);
+        if (balance != null) {
+            return balance;
+        }
+        // 数据库加载不放在 computeIfAbsent 中执行 (会在加载期间锁住哈希桶，阻塞其他账户)，
+        // 而是按账户分段加锁：同一账户只加载一次，其余线程等待加载完成
+        synchronized (loadLocks[Math.floorMod(key.hashCode(), loadLocks.length)]) {
+            balance = accounts.get(key);
+            if (balance != null) {
+                return balance;
+            }
+            WalletBalance loaded = loadTemplate.execute(status -> fetchOrCreate(userId, asset));
+            WalletBalance existing = accounts.putIfAbsent(key, loaded);
+            return existing != null ? existing : loaded;
+        }
+    }
+
+    private WalletBalance fetchOrCreate(Long userId, String assetSymbol) {
+        WalletBalance b = balanceMapper.findByUserIdAndAsset(userId, assetSymbol);
+        if (b != null) return b;
+
+        WalletBalance newBalance = WalletBalance.builder()
+                .userId(userId)
+                .assetSymbol(assetSymbol)
+                .chain(null)
+                .available(BigDecimal.ZERO)
+                .frozen(BigDecimal.ZERO)
+                .total(BigDecimal.ZERO)
+                .build();
+        balanceMapper.insert(newBalance);
+        return balanceMapper.findByUserIdAndAsset(userId, assetSymbol);
+    }
+
+    private static WalletBalance copyOf(WalletBalance balance) {
+        synchronized (balance) {
+            return WalletBalance.builder()
+                    .id(balance.getId())
+                    .userId(balance.getUserId())
+                    .assetSymbol(balance.getAssetSymbol())
+                    .chain(balance.getChain())
+                    .available(balance.getAvailable())
+                    .frozen(balance.getFrozen())
+                    .total(balance.getTotal())
+                    .version(balance.getVersion())
+                    .createdAt(balance.getCreatedAt())
+                    .updatedAt(balance.getUpdatedAt())
+                    .build();
+        }
+    }
+
+    private record AccountKey(Long userId, String asset) {}
+}
@@ -0,0 +1,20 @@
+package com.remus.dwanjcex.wallet.account;
+
+import com.remus.dwanjcex.wallet.entity.LedgerLog;
+
+import java.math.BigDecimal;
+
+/**
+ * 内存账户上已生效的一次余额变更：对应的余额行及其流水记录 (含变更前后的可用与冻结余额)。
+ * 持久化时按差额更新余额行并写入流水，不需要重新读取余额。
+ */
+public record BalanceChange(Long balanceId, LedgerLog ledger) {
+
+    public BigDecimal availableDelta() {
+        return ledger.getAfterAvailable().subtract(ledger.getBeforeAvailable());
+    }
+
+    public BigDecimal frozenDelta() {
+        return ledger.getAfterFrozen().subtract(ledger.getBeforeFrozen());
+    }
+}
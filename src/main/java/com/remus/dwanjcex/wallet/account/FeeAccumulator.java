@@ -0,0 +1,119 @@
+package com.remus.dwanjcex.wallet.account;
+
+import com.remus.dwanjcex.wallet.entity.SystemFeeAccrual;
+import com.remus.dwanjcex.wallet.entity.SystemFeeIncome;
+import com.remus.dwanjcex.wallet.mapper.SystemFeeAccrualMapper;
+import com.remus.dwanjcex.wallet.mapper.SystemFeeIncomeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 手续费收入累加器：在内存中按 (资产, 手续费类型, 时间桶) 累加手续费，在调用方的事务中以多行 INSERT 写入 system_fee_accrual。
+ * 每次写入的是该批次内各时间桶的部分和，某个时间桶的收入为对应各行之和。
+ * 开启 cex.fee.detail-rows 时另外按成交向 system_fee_income 写入明细行 (同样是多行 INSERT)，两张表各自求和即为总收入。
+ * 每条持久化流水线持有一个实例，累加状态只由该流水线的线程使用。
+ */
+@Component
+@Scope("prototype")
+public class FeeAccumulator {
+
+    // 单条 INSERT 语句的最大行数
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final SystemFeeIncomeMapper feeIncomeMapper;
+    private final SystemFeeAccrualMapper feeAccrualMapper;
+    private final long bucketMillis;
+    private final boolean detailRows;
+    private final Map<FeeBucket, BigDecimal> accruals = new LinkedHashMap<>();
+    private final List<SystemFeeIncome> details = new ArrayList<>();
+
+    public FeeAccumulator(SystemFeeIncomeMapper feeIncomeMapper, SystemFeeAccrualMapper feeAccrualMapper,
+                          @Value("${cex.fee.bucket-seconds:60}") long bucketSeconds,
+                          @Value("${cex.fee.detail-rows:false}") boolean detailRows) {
+        this.feeIncomeMapper = feeIncomeMapper;
+        this.feeAccrualMapper = feeAccrualMapper;
+        this.bucketMillis = Math.max(1, bucketSeconds) * 1000;
+        this.detailRows = detailRows;
+    }
+
+    /**
+     * 记录一笔手续费收入，金额为零时忽略。
+     *
+     * @param orderId 支付该手续费的订单 (仅用于明细行)
+     */
+    public void accrue(String asset, String feeType, BigDecimal amount, Long orderId, Long userId, long timestampMillis) {
+        if (amount.signum() == 0) return;
+        FeeBucket bucket = new FeeBucket(asset, feeType, timestampMillis - Math.floorMod(timestampMillis, bucketMillis));
+        accruals.merge(bucket, amount, BigDecimal::add);
+        if (detailRows) {
+            details.add(SystemFeeIncome.builder().assetSymbol(asset).amount(amount).orderId(orderId).userId(userId).feeType(feeType).build());
+        }
+    }
+
+    public boolean isEmpty() {
+        return accruals.isEmpty() && details.isEmpty();
+    }
+
+    /**
+     * 待写入的行数 (汇总行与明细行之和)。
+     */
+    public int size() {
+        return accruals.size() + details.size();
+    }
+
+    /**
+     * 取出累加的手续费并清空，由流水线线程在批次结束时调用。
+     */
+    public FeeRows drain() {
+        List<SystemFeeAccrual> accrualRows = new ArrayList<>(accruals.size());
+        for (Map.Entry<FeeBucket, BigDecimal> entry : accruals.entrySet()) {
+            FeeBucket bucket = entry.getKey();
+            accrualRows.add(SystemFeeAccrual.builder()
+                    .assetSymbol(bucket.asset())
+                    .feeType(bucket.feeType())
+                    .bucketStart(LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket.startMillis()), ZoneId.systemDefault()))
+                    .amount(entry.getValue())
+                    .build());
+        }
+        FeeRows rows = new FeeRows(accrualRows, new ArrayList<>(details));
+        accruals.clear();
+        details.clear();
+        return rows;
+    }
+
+    /**
+     * 写入一批手续费行。须在事务内调用；不访问累加状态，可在任意线程 (包括溢写重试线程) 上执行。
+     */
+    public void write(FeeRows rows) {
+        List<SystemFeeAccrual> accrualRows = rows.accruals();
+        for (int from = 0; from < accrualRows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            feeAccrualMapper.insertBatch(accrualRows.subList(from, Math.min(accrualRows.size(), from + MAX_ROWS_PER_STATEMENT)));
+        }
+        List<SystemFeeIncome> detailRows = rows.details();
+        for (int from = 0; from < detailRows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            feeIncomeMapper.insertBatch(detailRows.subList(from, Math.min(detailRows.size(), from + MAX_ROWS_PER_STATEMENT)));
+        }
+    }
+
+    /**
+     * 一批待写入的手续费行：按时间桶汇总的行和 (开启时的) 按成交明细行。
+     */
+    public record FeeRows(List<SystemFeeAccrual> accruals, List<SystemFeeIncome> details) {
+
+        public int size() {
+            return accruals.size() + details.size();
+        }
+    }
+
+    private record FeeBucket(String asset, String feeType, long startMillis) {}
+}
@@ -0,0 +1,58 @@
+package com.remus.dwanjcex.wallet.account;
+
+import com.remus.dwanjcex.wallet.entity.LedgerLog;
+import com.remus.dwanjcex.wallet.mapper.LedgerLogMapper;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流水缓冲写入器：收集一批余额流水，在调用方的事务中以多行 INSERT 一次写入。
+ * 每条持久化流水线持有一个实例，缓冲只由该流水线的线程使用。
+ */
+@Component
+@Scope("prototype")
+public class LedgerWriter {
+
+    // 单条 INSERT 语句的最大行数，避免超出数据库的包大小限制
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private final LedgerLogMapper ledgerLogMapper;
+    private final List<LedgerLog> buffer = new ArrayList<>();
+
+    public LedgerWriter(LedgerLogMapper ledgerLogMapper) {
+        this.ledgerLogMapper = ledgerLogMapper;
+    }
+
+    public void add(LedgerLog ledger) {
+        buffer.add(ledger);
+    }
+
+    public int size() {
+        return buffer.size();
+    }
+
+    public boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    /**
+     * 取出缓冲的全部流水并清空缓冲，由流水线线程在批次结束时调用。
+     */
+    public List<LedgerLog> drain() {
+        List<LedgerLog> rows = new ArrayList<>(buffer);
+        buffer.clear();
+        return rows;
+    }
+
+    /**
+     * 写入一批流水。须在事务内调用；不访问缓冲，可在任意线程 (包括溢写重试线程) 上执行。
+     */
+    public void write(List<LedgerLog> rows) {
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            ledgerLogMapper.insertBatch(rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_STATEMENT)));
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.remus.dwanjcex.wallet.entity;
 
 import com.remus.dwanjcex.common.OrderStatus;
 import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.wallet.entity.state.FilledOrderState;
 import com.remus.dwanjcex.wallet.entity.state.NewOrderState;
 import com.remus.dwanjcex.wallet.entity.state.OrderState;
+import com.remus.dwanjcex.wallet.entity.state.PartiallyFilledOrderState;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -51,6 +53,20 @@ public class OrderEntity {
         this.status = this.state.getStatus();
     }
 
+    /**
+     * 按已成交量恢复状态，用于由撮合引擎的订单快照构建实体 (快照中的订单尚未被取消)。
+     */
+    public void restoreState() {
+        if (isFullyFilled()) {
+            this.state = FilledOrderState.INSTANCE;
+        } else if (this.filled.signum() > 0 || this.quoteFilled.signum() > 0) {
+            this.state = PartiallyFilledOrderState.INSTANCE;
+        } else {
+            this.state = NewOrderState.INSTANCE;
+        }
+        this.status = this.state.getStatus();
+    }
+
     public void fill(BigDecimal filledQty, BigDecimal filledAmount) {
         this.state = this.state.onFill(this, filledQty, filledAmount);
         this.status = this.state.getStatus();
@@ -0,0 +1,17 @@
+package com.remus.dwanjcex.wallet.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 持久化处理器在某条流水线上已落库的位置：该日志序号及之前所有事件的数据都已写入数据库。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PersistenceCheckpoint {
+    private String pipeline;
+    private String handler;
+    private long journalSeq;
+}
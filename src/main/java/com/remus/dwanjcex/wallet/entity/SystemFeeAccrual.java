@@ -0,0 +1,25 @@
+package com.remus.dwanjcex.wallet.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 按 (资产, 手续费类型, 时间桶) 汇总的手续费收入。同一时间桶可能有多行 (各批次的部分和)，桶内收入为各行之和。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SystemFeeAccrual {
+    private Long id;
+    private String assetSymbol;
+    private String feeType; // MAKER / TAKER
+    private LocalDateTime bucketStart;
+    private BigDecimal amount;
+    private LocalDateTime createdAt;
+}
@@ -17,6 +17,7 @@ public class SystemFeeIncome {
     private String assetSymbol;
     private BigDecimal amount;
     private Long tradeId;
+    private Long orderId;
     private Long userId;
     private String feeType; // MAKER / TAKER
     private LocalDateTime createdAt;
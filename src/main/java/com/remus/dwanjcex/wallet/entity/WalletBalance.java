@@ -97,4 +97,13 @@ public class WalletBalance {
         this.frozen = this.frozen.subtract(amount);
         this.total = this.available.add(this.frozen);
     }
+
+    /**
+     * 按差额调整余额，不做校验。仅用于撤销此前已校验过的变更。
+     */
+    public void applyDelta(BigDecimal availableDelta, BigDecimal frozenDelta) {
+        this.available = this.available.add(availableDelta);
+        this.frozen = this.frozen.add(frozenDelta);
+        this.total = this.available.add(this.frozen);
+    }
 }
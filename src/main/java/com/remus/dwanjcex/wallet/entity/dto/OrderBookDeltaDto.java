@@ -0,0 +1,38 @@
+package com.remus.dwanjcex.wallet.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 订单簿增量 (diff) 的DTO。
+ * 只包含自上一条增量以来数量发生变化的档位，quantity 为0表示该档位已被移除。
+ * seq 在同一交易对内单调递增且连续，客户端发现不连续时应重新获取快照。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBookDeltaDto {
+
+    /**
+     * 交易对
+     */
+    private String symbol;
+
+    /**
+     * 增量序号
+     */
+    private long seq;
+
+    /**
+     * 发生变化的买盘档位
+     */
+    private List<OrderBookLevel> bids;
+
+    /**
+     * 发生变化的卖盘档位
+     */
+    private List<OrderBookLevel> asks;
+}
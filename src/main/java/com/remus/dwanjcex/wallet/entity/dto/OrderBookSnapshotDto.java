@@ -0,0 +1,37 @@
+package com.remus.dwanjcex.wallet.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 带序号的订单簿深度快照DTO。
+ * seq 为快照已包含的最后一条增量的序号，客户端从 seq + 1 开始应用增量。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBookSnapshotDto {
+
+    /**
+     * 交易对
+     */
+    private String symbol;
+
+    /**
+     * 快照对应的增量序号
+     */
+    private long seq;
+
+    /**
+     * 买盘档位 (价格从高到低)
+     */
+    private List<OrderBookLevel> bids;
+
+    /**
+     * 卖盘档位 (价格从低到高)
+     */
+    private List<OrderBookLevel> asks;
+}
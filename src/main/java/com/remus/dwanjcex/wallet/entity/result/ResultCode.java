@@ -16,6 +16,7 @@ public enum ResultCode {
     SYMBOL_NOT_SUPPORTED(1007,"不支持该交易对" ),
     ORDER_NOT_BELONG_TO_USER(1006,"订单不属于该用户" ),
     ORDER_CANNOT_BE_CANCELED(1007,"订单无法取消" ),
+    INVALID_PRECISION(1008,"价格或数量精度超出交易对限制" ),
     USER_NOT_FOUND(2001,"用户不存在" ),
     UNAUTHORIZED(2002,"用户无权限" ),
     INVALID_CREDENTIALS(2003,"密码错误" ),
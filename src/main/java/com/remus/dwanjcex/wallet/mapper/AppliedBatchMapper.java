@@ -0,0 +1,31 @@
+package com.remus.dwanjcex.wallet.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已落库的持久化批次记录。批次写库时在同一事务中登记其ID，溢写队列重投已提交过的批次时据此跳过，
+ * 余额差额、流水、手续费和成交不会重复写入。
+ * <pre>
+ * CREATE TABLE persistence_applied_batch (
+ *     batch_id   CHAR(36) NOT NULL PRIMARY KEY,
+ *     created_at DATETIME NOT NULL,
+ *     KEY idx_created_at (created_at)
+ * );
+ * </pre>
+ */
+@Mapper
+public interface AppliedBatchMapper {
+
+    /**
+     * 登记批次，返回 1 表示首次登记，0 表示该批次已经写入过。须与批次的数据在同一事务中执行。
+     */
+    @Insert("INSERT IGNORE INTO persistence_applied_batch (batch_id, created_at) VALUES (#{batchId}, NOW())")
+    int markApplied(String batchId);
+
+    @Delete("DELETE FROM persistence_applied_batch WHERE created_at < #{before} LIMIT 10000")
+    int deleteOlderThan(LocalDateTime before);
+}
@@ -5,6 +5,8 @@ import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
 
+import java.util.List;
+
 @Mapper
 public interface LedgerLogMapper {
 
@@ -14,4 +16,15 @@ public interface LedgerLogMapper {
             "#{beforeAvailable}, #{beforeFrozen}, #{afterAvailable}, #{afterFrozen}, #{remark}, NOW())")
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(LedgerLog log);
+
+    @Insert("<script>" +
+            "INSERT INTO ledger_log (user_id, asset_symbol, chain, biz_type, biz_id, amount, " +
+            "before_available, before_frozen, after_available, after_frozen, remark, created_at) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.userId}, #{item.assetSymbol}, #{item.chain}, #{item.bizType}, #{item.bizId}, #{item.amount}, " +
+            "#{item.beforeAvailable}, #{item.beforeFrozen}, #{item.afterAvailable}, #{item.afterFrozen}, #{item.remark}, NOW())" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    void insertBatch(List<LedgerLog> logs);
 }
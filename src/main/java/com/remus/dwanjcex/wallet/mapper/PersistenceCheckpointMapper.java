@@ -0,0 +1,37 @@
+package com.remus.dwanjcex.wallet.mapper;
+
+import com.remus.dwanjcex.wallet.entity.PersistenceCheckpoint;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 持久化检查点。处理器写出批次时在同一事务中把检查点推进到批次最后一个事件的日志序号，
+ * 启动时从检查点之后回放日志，补写崩溃时还留在处理器缓冲区中的数据。
+ * <pre>
+ * CREATE TABLE persistence_checkpoint (
+ *     pipeline    VARCHAR(64) NOT NULL,
+ *     handler     VARCHAR(64) NOT NULL,
+ *     journal_seq BIGINT      NOT NULL,
+ *     updated_at  DATETIME    NOT NULL,
+ *     PRIMARY KEY (pipeline, handler)
+ * );
+ * </pre>
+ */
+@Mapper
+public interface PersistenceCheckpointMapper {
+
+    /**
+     * 推进检查点，只增不减 (溢写队列按原顺序重投，但重投的旧批次不会使检查点回退)。
+     */
+    @Insert("INSERT INTO persistence_checkpoint (pipeline, handler, journal_seq, updated_at) " +
+            "VALUES (#{pipeline}, #{handler}, #{journalSeq}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE journal_seq = GREATEST(journal_seq, VALUES(journal_seq)), updated_at = NOW()")
+    void advance(@Param("pipeline") String pipeline, @Param("handler") String handler, @Param("journalSeq") long journalSeq);
+
+    @Select("SELECT pipeline, handler, journal_seq FROM persistence_checkpoint WHERE pipeline = #{pipeline}")
+    List<PersistenceCheckpoint> findByPipeline(@Param("pipeline") String pipeline);
+}
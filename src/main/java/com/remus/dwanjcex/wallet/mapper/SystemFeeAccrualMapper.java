@@ -0,0 +1,35 @@
+package com.remus.dwanjcex.wallet.mapper;
+
+import com.remus.dwanjcex.wallet.entity.SystemFeeAccrual;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+
+import java.util.List;
+
+/**
+ * 手续费收入的时间桶汇总，与 system_fee_income 的明细行分表存放，统计收入时二者不会重复计算。
+ * <pre>
+ * CREATE TABLE system_fee_accrual (
+ *     id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+ *     asset_symbol VARCHAR(32)     NOT NULL,
+ *     fee_type     VARCHAR(16)     NOT NULL,
+ *     bucket_start DATETIME        NOT NULL,
+ *     amount       DECIMAL(36, 18) NOT NULL,
+ *     created_at   DATETIME        NOT NULL,
+ *     KEY idx_asset_bucket (asset_symbol, bucket_start)
+ * );
+ * </pre>
+ */
+@Mapper
+public interface SystemFeeAccrualMapper {
+
+    @Insert("<script>" +
+            "INSERT INTO system_fee_accrual (asset_symbol, fee_type, bucket_start, amount, created_at) VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.assetSymbol}, #{item.feeType}, #{item.bucketStart}, #{item.amount}, NOW())" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    void insertBatch(List<SystemFeeAccrual> accruals);
+}
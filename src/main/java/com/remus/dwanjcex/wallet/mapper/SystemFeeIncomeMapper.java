@@ -7,13 +7,20 @@ import org.apache.ibatis.annotations.Options;
 
 import java.util.List;
 
+/**
+ * 按成交记录的手续费明细 (开启 cex.fee.detail-rows 时写入)，按时间桶的汇总见 {@link SystemFeeAccrualMapper}。
+ * order_id 为支付该手续费的订单；成交ID由成交写入阶段在同一时刻生成，明细行中为 NULL。
+ * <pre>
+ * ALTER TABLE system_fee_income ADD COLUMN order_id BIGINT NULL AFTER trade_id;
+ * </pre>
+ */
 @Mapper
 public interface SystemFeeIncomeMapper {
 
     @Insert("<script>" +
-            "INSERT INTO system_fee_income (asset_symbol, amount, trade_id, user_id, fee_type, created_at) VALUES " +
+            "INSERT INTO system_fee_income (asset_symbol, amount, trade_id, order_id, user_id, fee_type, created_at) VALUES " +
             "<foreach collection='list' item='item' separator=','>" +
-            "(#{item.assetSymbol}, #{item.amount}, #{item.tradeId}, #{item.userId}, #{item.feeType}, NOW())" +
+            "(#{item.assetSymbol}, #{item.amount}, #{item.tradeId}, #{item.orderId}, #{item.userId}, #{item.feeType}, NOW())" +
             "</foreach>" +
             "</script>")
     @Options(useGeneratedKeys = true, keyProperty = "id")
@@ -3,6 +3,7 @@ package com.remus.dwanjcex.wallet.mapper;
 import com.remus.dwanjcex.wallet.entity.WalletBalance;
 import org.apache.ibatis.annotations.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Mapper
@@ -21,6 +22,17 @@ public interface WalletBalanceMapper {
             "WHERE id = #{id} AND version = #{version}")
     int updateWithVersion(WalletBalance balance);
 
+    /**
+     * 按差额更新余额 (余额以内存账户为准，数据库只累加已生效的变更)
+     */
+    @Update("UPDATE wallets_balances SET " +
+            "available = available + #{availableDelta}, " +
+            "frozen = frozen + #{frozenDelta}, " +
+            "total = total + #{availableDelta} + #{frozenDelta}, " +
+            "version = version + 1 " +
+            "WHERE id = #{id}")
+    int applyDelta(@Param("id") Long id, @Param("availableDelta") BigDecimal availableDelta, @Param("frozenDelta") BigDecimal frozenDelta);
+
     @Select("SELECT * FROM wallets_balances WHERE user_id = #{userId} AND asset_symbol = #{assetSymbol} AND chain IS NULL")
     WalletBalance findByUserIdAndAsset(Long userId, String assetSymbol);
     
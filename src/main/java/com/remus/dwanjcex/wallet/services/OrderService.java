@@ -4,7 +4,8 @@ import com.remus.dwanjcex.common.KeyConstant;
 import com.remus.dwanjcex.common.OrderTypes;
 import com.remus.dwanjcex.disruptor.event.OrderCancelEvent;
 import com.remus.dwanjcex.disruptor.event.OrderCreatedEvent;
-import com.remus.dwanjcex.disruptor.handler.MatchingHandler;
+import com.remus.dwanjcex.disruptor.service.DisruptorManager;
+import com.remus.dwanjcex.engine.FixedPoint;
 import com.remus.dwanjcex.exception.BusinessException;
 import com.remus.dwanjcex.wallet.entity.Market;
 import com.remus.dwanjcex.wallet.entity.OrderEntity;
@@ -31,7 +32,7 @@ public class OrderService {
     private final OrderMapper orderMapper;
     private final WalletService walletService;
     private final MarketService marketService;
-    private final MatchingHandler matchingHandler;
+    private final DisruptorManager disruptorManager;
     private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
@@ -40,6 +41,12 @@ public class OrderService {
         if (market == null) {
             throw new BusinessException(ResultCode.SYMBOL_NOT_SUPPORTED);
         }
+        // 撮合引擎以交易对精度的定点数表示价格和数量，超出精度的请求在入口处拒绝
+        if (!FixedPoint.fits(dto.getPrice(), market.getPricePrecision())
+                || !FixedPoint.fits(dto.getQuoteAmount(), market.getPricePrecision())
+                || !FixedPoint.fits(dto.getAmount(), market.getQuantityPrecision())) {
+            throw new BusinessException(ResultCode.INVALID_PRECISION);
+        }
 
         OrderEntity.OrderEntityBuilder builder = OrderEntity.builder()
                 .userId(dto.getUserId())
@@ -103,7 +110,10 @@ public class OrderService {
     }
 
     public Map<String, List<OrderBookLevel>> getOrderBook(String symbol){
-        return matchingHandler.getOrderBookSnapshot(symbol);
+        if (marketService.getMarket(symbol) == null) {
+            throw new BusinessException(ResultCode.SYMBOL_NOT_SUPPORTED);
+        }
+        return disruptorManager.getMatchingHandler(symbol).getOrderBookSnapshot(symbol);
     }
 
     public List<OrderEntity> getMyOrders(Long userId) {
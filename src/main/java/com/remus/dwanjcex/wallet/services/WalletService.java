@@ -1,155 +1,138 @@
 package com.remus.dwanjcex.wallet.services;
 
-import com.remus.dwanjcex.common.KeyConstant;
 import com.remus.dwanjcex.exception.BusinessException;
-import com.remus.dwanjcex.wallet.entity.LedgerLog;
+import com.remus.dwanjcex.wallet.account.AccountEngine;
+import com.remus.dwanjcex.wallet.account.BalanceChange;
+import com.remus.dwanjcex.wallet.account.LedgerWriter;
 import com.remus.dwanjcex.wallet.entity.WalletBalance;
 import com.remus.dwanjcex.wallet.mapper.LedgerLogMapper;
 import com.remus.dwanjcex.wallet.mapper.WalletBalanceMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * 钱包服务。余额变更先在 {@link AccountEngine} 的内存账户上生效，再按差额写入数据库：
+ * 充值和下单冻结在调用方的事务中立即持久化 (事务回滚时以补偿变更撤销内存变更)，
+ * 成交结算由持久化阶段收集后通过 {@link #persistBalances} 批量写入余额，流水由持久化阶段的 {@link LedgerWriter} 批量写入。
+ */
 @Slf4j
 @Service
 public class WalletService {
 
+    private final AccountEngine accountEngine;
     private final WalletBalanceMapper balanceMapper;
     private final LedgerLogMapper ledgerLogMapper;
-    private final RedissonClient redissonClient;
-    private static final int MAX_RETRIES = 5;
 
-    public WalletService(WalletBalanceMapper balanceMapper, LedgerLogMapper ledgerLogMapper, RedissonClient redissonClient) {
+    public WalletService(AccountEngine accountEngine, WalletBalanceMapper balanceMapper, LedgerLogMapper ledgerLogMapper) {
+        this.accountEngine = accountEngine;
         this.balanceMapper = balanceMapper;
         this.ledgerLogMapper = ledgerLogMapper;
-        this.redissonClient = redissonClient;
-    }
-
-    private WalletBalance fetchOrCreate(Long userId, String assetSymbol) {
-        WalletBalance b = balanceMapper.findByUserIdAndAsset(userId, assetSymbol);
-        if (b != null) return b;
-        
-        WalletBalance newBalance = WalletBalance.builder()
-                .userId(userId)
-                .assetSymbol(assetSymbol)
-                .chain(null)
-                .available(BigDecimal.ZERO)
-                .frozen(BigDecimal.ZERO)
-                .total(BigDecimal.ZERO)
-                .build();
-        balanceMapper.insert(newBalance);
-        return balanceMapper.findByUserIdAndAsset(userId, assetSymbol);
     }
 
     @Transactional
     public void deposit(Long userId, String asset, BigDecimal amount, String ref) {
-        executeWithLock(userId, asset, balance -> {
-            BigDecimal beforeAvailable = balance.getAvailable();
-            BigDecimal beforeFrozen = balance.getFrozen();
-            balance.credit(amount);
-            insertLedgerLog(userId, asset, "DEPOSIT", ref, amount, beforeAvailable, beforeFrozen, balance.getAvailable(), balance.getFrozen(), "User deposit");
-        });
+        persistInTransaction(accountEngine.deposit(userId, asset, amount, ref));
     }
 
     @Transactional
     public boolean freeze(Long userId, String asset, BigDecimal amount, String ref) {
+        BalanceChange change;
         try {
-            executeWithLock(userId, asset, balance -> {
-                BigDecimal beforeAvailable = balance.getAvailable();
-                BigDecimal beforeFrozen = balance.getFrozen();
-                balance.freeze(amount);
-                log.info("用户：{},冻结金额：{}", userId, amount);
-                insertLedgerLog(userId, asset, "FREEZE", ref, amount.negate(), beforeAvailable, beforeFrozen, balance.getAvailable(), balance.getFrozen(), "Order freeze");
-            });
-            return true;
+            change = accountEngine.freeze(userId, asset, amount, ref);
         } catch (BusinessException e) {
             return false;
         }
+        persistInTransaction(change);
+        return true;
     }
 
-    @Transactional
-    public boolean unfreeze(Long userId, String asset, BigDecimal amount, String ref) {
-        try {
-            executeWithLock(userId, asset, balance -> {
-                BigDecimal beforeAvailable = balance.getAvailable();
-                BigDecimal beforeFrozen = balance.getFrozen();
-                balance.unfreeze(amount);
-                log.info("用户：{},解冻金额：{}", userId, amount);
-                insertLedgerLog(userId, asset, "UNFREEZE", ref, amount, beforeAvailable, beforeFrozen, balance.getAvailable(), balance.getFrozen(), "Order unfreeze");
-            });
-            return true;
-        } catch (BusinessException e) {
-            return false;
+    /**
+     * 在当前事务中写入已在内存生效的余额变更 (不含流水)。须在事务内调用。
+     * 同一账户的多次变更先合并为一个差额，每个账户只执行一条 UPDATE；
+     * 按余额行ID的顺序更新，各流水线的并发事务以相同顺序加行锁，避免死锁。
+     */
+    public void persistBalances(List<BalanceChange> changes) {
+        Map<Long, NetDelta> netDeltas = new TreeMap<>();
+        for (BalanceChange change : changes) {
+            netDeltas.computeIfAbsent(change.balanceId(), id -> new NetDelta()).add(change);
+        }
+        for (Map.Entry<Long, NetDelta> entry : netDeltas.entrySet()) {
+            NetDelta delta = entry.getValue();
+            if (delta.isZero()) continue;
+            if (balanceMapper.applyDelta(entry.getKey(), delta.available, delta.frozen) == 0) {
+                log.error("余额行不存在，无法写入余额变更: balanceId={}, available={}, frozen={}",
+                        entry.getKey(), delta.available, delta.frozen);
+            }
         }
     }
 
-    @Transactional
-    public void settleCredit(Long userId, String asset, BigDecimal amount, String ref) {
-        executeWithLock(userId, asset, balance -> {
-            BigDecimal beforeAvailable = balance.getAvailable();
-            BigDecimal beforeFrozen = balance.getFrozen();
-            balance.credit(amount);
-            insertLedgerLog(userId, asset, "TRADE_INCOME", ref, amount, beforeAvailable, beforeFrozen, balance.getAvailable(), balance.getFrozen(), "Trade income");
-        });
-    }
-
-    @Transactional
-    public void reduceFrozen(Long userId, String asset, BigDecimal amount, String reason) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) return;
-        
-        executeWithLock(userId, asset, balance -> {
-            BigDecimal beforeAvailable = balance.getAvailable();
-            BigDecimal beforeFrozen = balance.getFrozen();
-            balance.reduceFrozen(amount);
-            insertLedgerLog(userId, asset, "TRADE_DEDUCT", reason, amount.negate(), beforeAvailable, beforeFrozen, balance.getAvailable(), balance.getFrozen(), "Trade deduct frozen");
-        });
-    }
-
-    private void executeWithLock(Long userId, String asset, java.util.function.Consumer<WalletBalance> action) {
-        RLock lock = redissonClient.getLock(KeyConstant.LOCK_USER + userId + ":" + asset);
-        try {
-            lock.lock();
-            for (int i = 0; i < MAX_RETRIES; i++) {
-                WalletBalance balance = fetchOrCreate(userId, asset);
-                action.accept(balance);
-                if (balanceMapper.updateWithVersion(balance) > 0) {
-                    return;
+    private void persistInTransaction(BalanceChange change) {
+        // 先注册回滚撤销，保证写库失败时内存余额同样恢复
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        writeReverted(change, accountEngine.revert(change));
+                    }
                 }
-            }
-            throw new BusinessException("Wallet operation failed due to high concurrency.");
-        } finally {
-            lock.unlock();
+            });
         }
+        persistBalances(List.of(change));
+        ledgerLogMapper.insert(change.ledger());
     }
 
-    private void insertLedgerLog(Long userId, String asset, String bizType, String bizId, BigDecimal amount,
-                                 BigDecimal beforeAvailable, BigDecimal beforeFrozen,
-                                 BigDecimal afterAvailable, BigDecimal afterFrozen, String remark) {
-        LedgerLog logEntry = LedgerLog.builder()
-                .userId(userId)
-                .assetSymbol(asset)
-                .bizType(bizType)
-                .bizId(bizId)
-                .amount(amount)
-                .beforeAvailable(beforeAvailable)
-                .beforeFrozen(beforeFrozen)
-                .afterAvailable(afterAvailable)
-                .afterFrozen(afterFrozen)
-                .remark(remark)
-                .build();
-        ledgerLogMapper.insert(logEntry);
+    /**
+     * 事务回滚后写入原变更和补偿变更的流水 (单条多行 INSERT，自动提交)。二者差额相抵，余额行不变；
+     * 其间同一账户的其他流水已包含原变更的金额，写入这两条后流水的余额链条保持连续。
+     */
+    private void writeReverted(BalanceChange change, BalanceChange compensation) {
+        try {
+            ledgerLogMapper.insertBatch(List.of(change.ledger(), compensation.ledger()));
+        } catch (Exception e) {
+            log.error("写入撤销变更的流水失败: original={}, compensation={}", change.ledger(), compensation.ledger(), e);
+        }
     }
 
     public WalletBalance getBalance(Long userId, String asset) {
-        return fetchOrCreate(userId, asset);
+        return accountEngine.getBalance(userId, asset);
     }
 
+    /**
+     * 用户全部资产余额。已加载到内存的账户以内存余额为准 (数据库可能尚未写入最近的结算)。
+     */
     public List<WalletBalance> getAllBalances(Long userId) {
-        return balanceMapper.findByUserId(userId);
+        List<WalletBalance> balances = new ArrayList<>();
+        for (WalletBalance stored : balanceMapper.findByUserId(userId)) {
+            WalletBalance live = stored.getChain() == null ? accountEngine.getLoadedBalance(userId, stored.getAssetSymbol()) : null;
+            balances.add(live != null ? live : stored);
+        }
+        return balances;
+    }
+
+    /**
+     * 一个账户在本批变更中的净差额
+     */
+    private static final class NetDelta {
+        private BigDecimal available = BigDecimal.ZERO;
+        private BigDecimal frozen = BigDecimal.ZERO;
+
+        void add(BalanceChange change) {
+            available = available.add(change.availableDelta());
+            frozen = frozen.add(change.frozenDelta());
+        }
+
+        boolean isZero() {
+            return available.signum() == 0 && frozen.signum() == 0;
+        }
     }
 }
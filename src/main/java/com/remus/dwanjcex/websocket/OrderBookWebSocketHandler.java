@@ -3,6 +3,7 @@ package com.remus.dwanjcex.websocket;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.remus.dwanjcex.config.jwt.JwtUtils;
 import com.remus.dwanjcex.wallet.entity.dto.OrderBookLevel;
 import com.remus.dwanjcex.websocket.dto.WebSocketPushMessage;
@@ -64,6 +65,8 @@ public class OrderBookWebSocketHandler extends TextWebSocketHandler {
                     pushService.subscribe(arg, session);
                     if (arg.startsWith("orderbook:")) {
                         sendInitialSnapshot(session, arg);
+                    } else if (arg.startsWith("depth:")) {
+                        sendInitialDepthSnapshot(session, arg);
                     } else if (arg.startsWith("ticker:")) {
                         sendInitialTicker(session, arg);
                     }
@@ -110,6 +113,22 @@ public class OrderBookWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * 增量深度主题的初始快照，携带序号。订阅先于读取快照完成，
+     * 客户端丢弃 seq 不大于快照序号的增量，并在发现序号不连续时重新订阅。
+     */
+    private void sendInitialDepthSnapshot(WebSocketSession session, String topic) throws IOException {
+        String symbol = topic.substring("depth:".length());
+        String redisKey = "orderbook:depth:snapshot:" + symbol;
+        String snapshotJson = redisTemplate.opsForValue().get(redisKey);
+
+        if (snapshotJson != null) {
+            sendMessage(session, topic, new RawValue(snapshotJson));
+        } else {
+            log.warn("Redis中不存在 {} 的带序号深度快照 (Key: {})，无法发送初始数据。", symbol, redisKey);
+        }
+    }
+
     private void sendInitialTicker(WebSocketSession session, String topic) throws IOException {
         String symbol = topic.substring("ticker:".length());
         String redisKey = "last_price:" + symbol;
@@ -34,6 +34,11 @@ public class RedisMessageSubscriber implements MessageListener {
                 Map<String, List<OrderBookLevel>> orderBookData = objectMapper.readValue(body, new TypeReference<>() {});
                 webSocketPushService.broadcast("orderbook:" + symbol, orderBookData);
 
+            } else if (channel.startsWith("channel:depth:")) {
+                // 增量消息体已是最终的JSON，原样转发，不再反序列化
+                String symbol = channel.substring("channel:depth:".length());
+                webSocketPushService.broadcastRaw("depth:" + symbol, body);
+
             } else if (channel.startsWith("channel:ticker:")) {
                 String symbol = channel.substring("channel:ticker:".length());
                 Trade trade = objectMapper.readValue(body, Trade.class);
@@ -2,6 +2,7 @@ package com.remus.dwanjcex.websocket;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.remus.dwanjcex.websocket.dto.WebSocketPushMessage;
 import com.remus.dwanjcex.websocket.event.OrderCancelNotificationEvent;
 import lombok.RequiredArgsConstructor;
@@ -140,6 +141,13 @@ public class WebSocketPushService {
         }
     }
 
+    /**
+     * 广播已序列化好的JSON数据，数据部分按原样嵌入推送消息，不经过反序列化/再序列化。
+     */
+    public void broadcastRaw(String topic, String dataJson) {
+        broadcast(topic, new RawValue(dataJson));
+    }
+
     private void sendMessage(WebSocketSession session, String topic, Object data) throws IOException {
         String payload = objectMapper.writeValueAsString(new WebSocketPushMessage<>(topic, data));
         TextMessage textMessage = new TextMessage(payload);
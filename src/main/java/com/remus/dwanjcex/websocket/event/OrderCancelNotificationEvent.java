@@ -5,7 +5,7 @@ import org.springframework.context.ApplicationEvent;
 
 /**
  * 订单取消的通知事件。
- * 当一个订单因自成交或其他原因被系统取消时，由PersistenceHandler发布。
+ * 当一个订单因自成交或其他原因被系统取消时，由持久化之后的汇合阶段 (PersistenceGateHandler) 发布。
  * 用于通知WebSocket服务向特定用户推送消息。
  *
  * @author Remus
@@ -6,7 +6,7 @@ import org.springframework.context.ApplicationEvent;
 
 /**
  * 交易执行事件。
- * 当一笔交易被成功持久化到数据库后，由PersistenceHandler发布。
+ * 当一笔交易被成功持久化到数据库后，由持久化阶段发布。
  *
  * @author Remus
  * @version 1.0
@@ -0,0 +1,88 @@
+package com.remus.dwanjcex.disruptor.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EventSlotsTest {
+
+    @Test
+    void reusesPreallocatedSlotsAfterClear() {
+        AtomicInteger created = new AtomicInteger();
+        EventSlots<Object> slots = new EventSlots<>(4, () -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+        assertEquals(4, created.get());
+
+        List<Object> first = take(slots, 3);
+        assertEquals(3, slots.count());
+        assertSame(first.get(1), slots.get(1));
+
+        slots.clear();
+        assertEquals(0, slots.count());
+        List<Object> second = take(slots, 3);
+        for (int i = 0; i < 3; i++) {
+            assertSame(first.get(i), second.get(i));
+        }
+        assertEquals(4, created.get());
+    }
+
+    @Test
+    void overflowSlotsAreAllocatedOnceAndRetained() {
+        AtomicInteger created = new AtomicInteger();
+        EventSlots<Object> slots = new EventSlots<>(2, () -> {
+            created.incrementAndGet();
+            return new Object();
+        });
+
+        List<Object> first = take(slots, 5);
+        assertEquals(5, created.get());
+        assertSame(first.get(4), slots.get(4));
+
+        slots.clear();
+        List<Object> second = take(slots, 5);
+        assertSame(first.get(3), second.get(3));
+        assertEquals(5, created.get());
+    }
+
+    @Test
+    void releasesOversizedOverflow() {
+        EventSlots<Object> slots = new EventSlots<>(1, Object::new);
+        Object overflow = take(slots, 2000).get(1);
+        slots.clear();
+        assertNotSame(overflow, take(slots, 2).get(1));
+    }
+
+    @Test
+    void eventClearResetsTradeAndOrderSlots() {
+        DisruptorEvent event = new DisruptorEvent();
+        TradeEvent trade = event.nextTradeSlot();
+        for (int i = 1; i < DisruptorEvent.TRADE_SLOT_CAPACITY + 3; i++) {
+            event.nextTradeSlot();
+        }
+        event.nextOrderSlot();
+        assertEquals(DisruptorEvent.TRADE_SLOT_CAPACITY + 3, event.getTradeCount());
+        assertEquals(1, event.getOrderSnapshotCount());
+
+        event.clear();
+        assertEquals(0, event.getTradeCount());
+        assertEquals(0, event.getOrderSnapshotCount());
+        assertSame(trade, event.nextTradeSlot());
+        assertSame(trade, event.getTrade(0));
+    }
+
+    private static List<Object> take(EventSlots<Object> slots, int n) {
+        List<Object> taken = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            taken.add(slots.next());
+        }
+        return taken;
+    }
+}
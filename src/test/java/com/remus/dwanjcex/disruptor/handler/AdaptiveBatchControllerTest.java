@@ -0,0 +1,86 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdaptiveBatchControllerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdaptiveBatchController controller =
+            new AdaptiveBatchController(32, 1024, 50, 20, registry, Tags.of("handler", "test"));
+
+    @Test
+    void triggersOnSizeOrDelay() {
+        assertEquals(AdaptiveBatchController.FlushTrigger.SIZE, controller.triggerFor(32, 0));
+        assertEquals(AdaptiveBatchController.FlushTrigger.DELAY, controller.triggerFor(1, 50));
+        assertNull(controller.triggerFor(31, 49));
+    }
+
+    @Test
+    void doublesUnderBacklogUpToMax() {
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, 32, FAST, 1_000);
+        assertEquals(64, controller.getBatchSize());
+        for (int i = 0; i < 10; i++) {
+            controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, controller.getBatchSize(), FAST, 100_000);
+        }
+        assertEquals(1024, controller.getBatchSize());
+        assertEquals(5.0, registry.get("cex.persistence.batch.adjustments").tag("direction", "grow").counter().count());
+    }
+
+    @Test
+    void growsSlightlyWhenSlowWithSmallBacklog() {
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, 32, SLOW, 10);
+        assertEquals(40, controller.getBatchSize());
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, 40, FAST, 10);
+        assertEquals(40, controller.getBatchSize());
+    }
+
+    @Test
+    void shrinksGraduallyWithoutBacklog() {
+        grow(512);
+        // 低流量：每次只写出少量条目，逐次按 1/4 收缩而不是一次跌到写出的条目数
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.DELAY, 3, FAST, 0);
+        assertEquals(384, controller.getBatchSize());
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.DELAY, 3, FAST, 0);
+        assertEquals(288, controller.getBatchSize());
+        for (int i = 0; i < 50; i++) {
+            controller.onFlush(AdaptiveBatchController.FlushTrigger.DELAY, 1, FAST, 0);
+        }
+        assertEquals(32, controller.getBatchSize());
+    }
+
+    @Test
+    void doesNotShrinkWhileFlushingFullBatches() {
+        grow(256);
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, 256, FAST, 0);
+        assertEquals(256, controller.getBatchSize());
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.DELAY, 200, FAST, 0);
+        assertEquals(200, controller.getBatchSize());
+    }
+
+    @Test
+    void recordsFlushMetricsPerTrigger() {
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.DELAY, 5, FAST, 0);
+        controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, 32, FAST, 0);
+        assertEquals(1, registry.get("cex.persistence.flush").tag("trigger", "delay").timer().count());
+        assertEquals(1, registry.get("cex.persistence.flush").tag("trigger", "size").timer().count());
+        assertEquals(37.0, registry.get("cex.persistence.flush.rows").summary().totalAmount());
+        assertEquals(32.0, registry.get("cex.persistence.batch.size").gauge().value());
+    }
+
+    private void grow(int target) {
+        while (controller.getBatchSize() < target) {
+            controller.onFlush(AdaptiveBatchController.FlushTrigger.SIZE, controller.getBatchSize(), FAST, Long.MAX_VALUE);
+        }
+        assertEquals(target, controller.getBatchSize());
+    }
+}
@@ -0,0 +1,153 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.wallet.mapper.PersistenceCheckpointMapper;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchingPersistenceHandlerTest {
+
+    private static final String PIPELINE = "shard-0";
+    private static final String CHECKPOINT_KEY = PIPELINE + "/" + RecordingHandler.class.getSimpleName();
+
+    private final Map<String, Long> checkpoints = new HashMap<>();
+    private final RecordingHandler handler = new RecordingHandler(checkpointMapper());
+
+    @Test
+    void batchCommitsCheckpointOfItsLastEvent() {
+        configure(handler);
+        handler.onEvent(event(1, 10L), 0, false);
+        // 心跳不经过日志，序号为0，不会使批次的日志序号回退
+        handler.onEvent(event(0, null), 1, false);
+        handler.onEvent(event(2, 11L), 2, true);
+
+        assertEquals(1, handler.batches.size());
+        assertEquals(2L, handler.batches.get(0).journalSeq());
+        assertEquals(List.of(10L, 11L), handler.batches.get(0).orderIds());
+        assertEquals(2L, checkpoints.get(CHECKPOINT_KEY));
+    }
+
+    @Test
+    void idleEventsAdvanceCheckpointPeriodically() {
+        configure(handler);
+        // 没有要写出的数据时，检查点单独推进，但不会每个事件都写一次数据库
+        handler.onEvent(event(7, null), 0, true);
+        assertEquals(7L, checkpoints.get(CHECKPOINT_KEY));
+        handler.onEvent(event(8, null), 1, true);
+        assertEquals(7L, checkpoints.get(CHECKPOINT_KEY));
+        assertTrue(handler.batches.isEmpty());
+    }
+
+    @Test
+    void replayWritesRemainderAndAdvancesToLastReplayedEvent() {
+        handler.setPipeline(PIPELINE);
+        handler.replay(event(5, 20L));
+        handler.replay(event(6, null));
+        assertTrue(handler.batches.isEmpty());
+
+        handler.finishReplay();
+        assertEquals(1, handler.batches.size());
+        assertEquals(6L, handler.batches.get(0).journalSeq());
+        assertEquals(6L, checkpoints.get(CHECKPOINT_KEY));
+
+        // 之后的指令都没有数据时也推进到最后一条
+        handler.replay(event(9, null));
+        handler.finishReplay();
+        assertEquals(1, handler.batches.size());
+        assertEquals(9L, checkpoints.get(CHECKPOINT_KEY));
+    }
+
+    @Test
+    void replayFailsWhenBatchCannotBeWritten() {
+        handler.setPipeline(PIPELINE);
+        handler.failing = true;
+        handler.replay(event(5, 20L));
+        assertThrows(IllegalStateException.class, handler::finishReplay);
+        assertNull(checkpoints.get(CHECKPOINT_KEY));
+    }
+
+    // --- Helper Methods ---
+
+    private static void configure(RecordingHandler handler) {
+        // 每两条数据写出一次，延迟上限足够长，不会因为时间触发写出
+        handler.configureBatching(new AdaptiveBatchController(2, 2, 60_000, 20, new SimpleMeterRegistry(), Tags.of("handler", "test")),
+                () -> 0L);
+        handler.setPipeline(PIPELINE);
+    }
+
+    private static DisruptorEvent event(long journalSeq, Long orderId) {
+        DisruptorEvent event = new DisruptorEvent();
+        event.setType(journalSeq == 0 ? EventType.HEARTBEAT : EventType.PLACE_ORDER);
+        event.setJournalSeq(journalSeq);
+        event.setOrderId(orderId);
+        return event;
+    }
+
+    private PersistenceCheckpointMapper checkpointMapper() {
+        return (PersistenceCheckpointMapper) Proxy.newProxyInstance(PersistenceCheckpointMapper.class.getClassLoader(),
+                new Class<?>[]{PersistenceCheckpointMapper.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("advance")) {
+                        checkpoints.merge(args[0] + "/" + args[1], (Long) args[2], Math::max);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * 收集每个事件的订单ID，写出时在"事务"中推进检查点。
+     */
+    private static final class RecordingHandler extends BatchingPersistenceHandler<RecordingHandler.Batch> {
+
+        private final List<Long> pending = new ArrayList<>();
+        private final List<Batch> batches = new ArrayList<>();
+        private boolean failing;
+
+        RecordingHandler(PersistenceCheckpointMapper checkpointMapper) {
+            super(checkpointMapper);
+        }
+
+        @Override
+        protected void handle(DisruptorEvent event) {
+            if (event.getOrderId() != null) {
+                pending.add(event.getOrderId());
+            }
+        }
+
+        @Override
+        protected int pendingCount() {
+            return pending.size();
+        }
+
+        @Override
+        protected Batch takeBatch() {
+            Batch batch = new Batch(journalSeq(), new ArrayList<>(pending));
+            pending.clear();
+            return batch;
+        }
+
+        @Override
+        protected void write(Batch batch) {
+            if (failing) {
+                throw new IllegalStateException("database unavailable");
+            }
+            advanceCheckpoint(batch.journalSeq());
+            batches.add(batch);
+        }
+
+        record Batch(long journalSeq, List<Long> orderIds) {}
+    }
+}
@@ -0,0 +1,43 @@
+package com.remus.dwanjcex.disruptor.handler;
+
+import com.remus.dwanjcex.wallet.mapper.AppliedBatchMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistenceEventsTest {
+
+    private final Set<String> applied = new HashSet<>();
+
+    @Test
+    void markAppliedSkipsRedeliveredBatch() {
+        assertTrue(PersistenceEvents.markApplied(appliedBatchMapper(), "b-1"));
+        assertFalse(PersistenceEvents.markApplied(appliedBatchMapper(), "b-1"));
+        assertTrue(PersistenceEvents.markApplied(appliedBatchMapper(), "b-2"));
+    }
+
+    @Test
+    void markAppliedRejectsBatchWithoutId() {
+        // 没有批次ID时无法去重，写入必须失败而不是照常写入
+        assertThrows(IllegalStateException.class, () -> PersistenceEvents.markApplied(appliedBatchMapper(), null));
+        assertTrue(applied.isEmpty());
+    }
+
+    // --- Helper Methods ---
+
+    private AppliedBatchMapper appliedBatchMapper() {
+        return (AppliedBatchMapper) Proxy.newProxyInstance(AppliedBatchMapper.class.getClassLoader(),
+                new Class<?>[]{AppliedBatchMapper.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("markApplied")) {
+                        return applied.add((String) args[0]) ? 1 : 0;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
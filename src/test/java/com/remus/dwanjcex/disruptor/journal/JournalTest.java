@@ -0,0 +1,179 @@
+package com.remus.dwanjcex.disruptor.journal;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysEveryEventTypeInOrder() throws IOException {
+        try (JournalWriter writer = new JournalWriter(dir, SEGMENT_SIZE)) {
+            assertEquals(1, writer.append(place(101, new BigDecimal("60000.12"), new BigDecimal("0.5"))));
+            assertEquals(2, writer.append(cancel(EventType.CANCEL_ORDER, 101)));
+            assertEquals(3, writer.append(cancel(EventType.REMOVE_ORDER, 102)));
+        }
+
+        List<DisruptorEvent> events = replayAll(0);
+        assertEquals(3, events.size());
+
+        DisruptorEvent placed = events.get(0);
+        assertEquals(EventType.PLACE_ORDER, placed.getType());
+        assertEquals(1, placed.getJournalSeq());
+        assertEquals(101L, placed.getOrderId());
+        assertEquals(7L, placed.getPlaceOrder().getUserId());
+        assertEquals("BTCUSDT", placed.getPlaceOrder().getSymbol());
+        assertEquals(OrderTypes.OrderType.LIMIT, placed.getPlaceOrder().getType());
+        assertEquals(OrderTypes.Side.BUY, placed.getPlaceOrder().getSide());
+        assertEquals(new BigDecimal("60000.12"), placed.getPlaceOrder().getPrice());
+        assertEquals(new BigDecimal("0.5"), placed.getPlaceOrder().getAmount());
+        assertNull(placed.getPlaceOrder().getQuoteAmount());
+
+        assertEquals(EventType.CANCEL_ORDER, events.get(1).getType());
+        assertEquals(new CancelOrderDto(101L, 7L, "BTCUSDT", OrderTypes.Side.SELL), events.get(1).getCancelOrder());
+        assertEquals(EventType.REMOVE_ORDER, events.get(2).getType());
+        assertEquals(102L, events.get(2).getCancelOrder().getOrderId());
+        assertEquals(3, events.get(2).getJournalSeq());
+
+        assertEquals(List.of(3L), sequences(replayAll(2)));
+    }
+
+    @Test
+    void rejectsTypelessEventWithoutConsumingSequence() throws IOException {
+        try (JournalWriter writer = new JournalWriter(dir, SEGMENT_SIZE)) {
+            assertEquals(1, writer.append(cancel(EventType.CANCEL_ORDER, 100)));
+            // 发布时填充失败的槽位没有类型，不能写入日志
+            assertThrows(IllegalArgumentException.class, () -> writer.append(new DisruptorEvent()));
+            assertEquals(2, writer.append(cancel(EventType.CANCEL_ORDER, 101)));
+        }
+        assertEquals(List.of(1L, 2L), sequences(replayAll(0)));
+    }
+
+    @Test
+    void dropsCorruptedTailAndContinuesAfterIt() throws IOException {
+        try (JournalWriter writer = new JournalWriter(dir, SEGMENT_SIZE)) {
+            for (int i = 0; i < 3; i++) {
+                writer.append(place(100 + i, BigDecimal.ONE, BigDecimal.ONE));
+            }
+        }
+        // 模拟写入第三条记录时进程退出：记录体损坏，校验失败
+        Path segment = JournalReader.listSegments(dir).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            long position = 0;
+            for (int i = 0; i < 2; i++) {
+                header.clear();
+                channel.read(header, position);
+                position += JournalCodec.HEADER_LENGTH + header.getInt(0);
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), position + JournalCodec.HEADER_LENGTH);
+        }
+
+        assertEquals(List.of(1L, 2L), sequences(replayAll(0)));
+
+        // 重新打开后从最后一条完整记录继续编号，残留的半条记录被覆盖
+        try (JournalWriter writer = new JournalWriter(dir, SEGMENT_SIZE)) {
+            assertEquals(2, writer.getLastSequence());
+            assertEquals(3, writer.append(cancel(EventType.CANCEL_ORDER, 100)));
+        }
+        List<DisruptorEvent> events = replayAll(0);
+        assertEquals(List.of(1L, 2L, 3L), sequences(events));
+        assertEquals(EventType.CANCEL_ORDER, events.get(2).getType());
+    }
+
+    @Test
+    void rollsSegmentsAndPrunesOnlyCoveredOnes() throws IOException {
+        int count = 300;
+        try (JournalWriter writer = new JournalWriter(dir, SEGMENT_SIZE)) {
+            for (int i = 1; i <= count; i++) {
+                writer.append(place(i, new BigDecimal("100.5"), new BigDecimal("2")));
+            }
+        }
+        List<Path> segments = JournalReader.listSegments(dir);
+        assertTrue(segments.size() > 3, "应滚动出多个段: " + segments.size());
+        assertEquals(count, replayAll(0).size());
+
+        long secondStart = JournalReader.startSequenceOf(segments.get(1));
+        long thirdStart = JournalReader.startSequenceOf(segments.get(2));
+
+        // 第二段的最后一条记录之前的位置不能删除第二段
+        assertEquals(1, JournalReader.deleteSegmentsUpTo(dir, thirdStart - 2));
+        assertEquals(secondStart, JournalReader.startSequenceOf(JournalReader.listSegments(dir).get(0)));
+        assertEquals(1, JournalReader.deleteSegmentsUpTo(dir, thirdStart - 1));
+
+        List<Long> remaining = sequences(replayAll(thirdStart - 1));
+        assertEquals(count - thirdStart + 1, remaining.size());
+        assertEquals(thirdStart, remaining.get(0));
+        assertEquals(count, remaining.get(remaining.size() - 1));
+
+        // 写入中的最后一段始终保留
+        JournalReader.deleteSegmentsUpTo(dir, Long.MAX_VALUE - 1);
+        assertEquals(1, JournalReader.listSegments(dir).size());
+    }
+
+    private List<DisruptorEvent> replayAll(long afterSequence) throws IOException {
+        List<DisruptorEvent> events = new ArrayList<>();
+        JournalReader.replay(dir, afterSequence, event -> {
+            // 回放复用同一个事件对象，复制需要的字段
+            DisruptorEvent copy = new DisruptorEvent();
+            copy.setType(event.getType());
+            copy.setJournalSeq(event.getJournalSeq());
+            copy.setOrderId(event.getOrderId());
+            copy.setPlaceOrder(event.getPlaceOrder());
+            copy.setCancelOrder(event.getCancelOrder());
+            events.add(copy);
+        });
+        return events;
+    }
+
+    private static List<Long> sequences(List<DisruptorEvent> events) {
+        List<Long> sequences = new ArrayList<>();
+        events.forEach(event -> sequences.add(event.getJournalSeq()));
+        return sequences;
+    }
+
+    private static DisruptorEvent place(long orderId, BigDecimal price, BigDecimal amount) {
+        DisruptorEvent event = new DisruptorEvent();
+        event.setType(EventType.PLACE_ORDER);
+        event.setOrderId(orderId);
+        event.setPlaceOrder(OrderDto.builder()
+                .userId(7L)
+                .symbol("BTCUSDT")
+                .type(OrderTypes.OrderType.LIMIT)
+                .side(OrderTypes.Side.BUY)
+                .price(price)
+                .amount(amount)
+                .build());
+        return event;
+    }
+
+    private static DisruptorEvent cancel(EventType type, long orderId) {
+        DisruptorEvent event = new DisruptorEvent();
+        event.setType(type);
+        event.setCancelOrder(new CancelOrderDto(orderId, 7L, "BTCUSDT", OrderTypes.Side.SELL));
+        return event;
+    }
+}
@@ -0,0 +1,128 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import com.lmax.disruptor.RingBuffer;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EngineCommand;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DisruptorServiceTest {
+
+    private static final int BUFFER_SIZE = 8;
+
+    private final Map<String, RingBuffer<DisruptorEvent>> ringBuffers = new HashMap<>();
+    private final DisruptorService service = new DisruptorService(new StubManager());
+
+    @Test
+    void publishesEachPipelineInOrder() {
+        service.publishBatch(List.of(place(1, "BTCUSDT"), place(2, "ETHUSDT"), cancel(1, "BTCUSDT"), place(3, "BTCUSDT")));
+
+        RingBuffer<DisruptorEvent> btc = ringBuffers.get("BTCUSDT");
+        assertEquals(2, btc.getCursor());
+        assertEquals(EventType.PLACE_ORDER, btc.get(0).getType());
+        assertEquals(1L, btc.get(0).getOrderId());
+        assertEquals(EventType.CANCEL_ORDER, btc.get(1).getType());
+        assertEquals(1L, btc.get(1).getCancelOrder().getOrderId());
+        assertEquals(3L, btc.get(2).getOrderId());
+
+        RingBuffer<DisruptorEvent> eth = ringBuffers.get("ETHUSDT");
+        assertEquals(0, eth.getCursor());
+        assertEquals(2L, eth.get(0).getOrderId());
+    }
+
+    @Test
+    void splitsBatchLargerThanBuffer() {
+        List<EngineCommand> commands = new ArrayList<>();
+        for (int i = 0; i < BUFFER_SIZE * 2 + 3; i++) {
+            commands.add(place(i, "BTCUSDT"));
+        }
+        service.publishBatch(commands);
+
+        RingBuffer<DisruptorEvent> btc = ringBuffers.get("BTCUSDT");
+        assertEquals(commands.size() - 1, btc.getCursor());
+        assertEquals((long) commands.size() - 1, btc.get(btc.getCursor()).getOrderId());
+    }
+
+    @Test
+    void failedCopyDoesNotRepublishStaleSlots() {
+        // 先用一轮旧事件填满缓冲区，之后的每个槽位都残留着上一轮的内容
+        List<EngineCommand> stale = new ArrayList<>();
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            stale.add(place(100 + i, "BTCUSDT"));
+        }
+        service.publishBatch(stale);
+
+        service.publishBatch(List.of(place(1, "BTCUSDT"), failing("BTCUSDT"), place(3, "BTCUSDT")));
+
+        RingBuffer<DisruptorEvent> btc = ringBuffers.get("BTCUSDT");
+        assertEquals(BUFFER_SIZE + 2, btc.getCursor());
+        assertEquals(1L, btc.get(BUFFER_SIZE).getOrderId());
+        // 写入失败的槽位以无类型的空事件发布，不是上一轮的旧订单
+        DisruptorEvent failed = btc.get(BUFFER_SIZE + 1);
+        assertNull(failed.getType());
+        assertNull(failed.getOrderId());
+        assertNull(failed.getPlaceOrder());
+        assertEquals(3L, btc.get(BUFFER_SIZE + 2).getOrderId());
+    }
+
+    // --- Helper Methods ---
+
+    private static EngineCommand place(long orderId, String symbol) {
+        return EngineCommand.place(orderId, OrderDto.builder().userId(7L).symbol(symbol).build());
+    }
+
+    private static EngineCommand cancel(long orderId, String symbol) {
+        return EngineCommand.cancel(new CancelOrderDto(orderId, 7L, symbol, null));
+    }
+
+    private static EngineCommand failing(String symbol) {
+        return new EngineCommand() {
+            @Override
+            public String getSymbol() {
+                return symbol;
+            }
+
+            @Override
+            public void copyTo(DisruptorEvent event) {
+                // 写入一部分字段后失败，模拟解码到一半出错
+                event.setType(EventType.PLACE_ORDER);
+                throw new IllegalArgumentException("corrupted command");
+            }
+
+            @Override
+            public boolean fitsScale(int priceScale, int quantityScale) {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 每个交易对一条流水线，环形缓冲区没有消费者，发布后可直接检查槽位内容。
+     */
+    private final class StubManager extends DisruptorManager {
+
+        StubManager() {
+            super(null, null, null, null, null, null, null, BUFFER_SIZE);
+        }
+
+        @Override
+        public String getPipeline(String symbol) {
+            return symbol;
+        }
+
+        @Override
+        public RingBuffer<DisruptorEvent> getRingBuffer(String symbol) {
+            return ringBuffers.computeIfAbsent(symbol, s -> RingBuffer.createMultiProducer(DisruptorEvent::new, BUFFER_SIZE));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EngineShardRouterTest {
+
+    @Test
+    void dedicatedSymbolsGetTheirOwnPipeline() {
+        EngineShardRouter router = new EngineShardRouter(new String[]{" BTCUSDT", "ETHUSDT ", ""}, 4, new String[0]);
+        assertEquals("BTCUSDT", router.pipelineOf("BTCUSDT"));
+        assertEquals("ETHUSDT", router.pipelineOf("ETHUSDT"));
+        assertTrue(router.pipelineOf("DOGEUSDT").startsWith("shard-"));
+    }
+
+    @Test
+    void sharedSymbolsHashToStableShard() {
+        EngineShardRouter router = new EngineShardRouter(new String[0], 4, new String[0]);
+        String symbol = "SOLUSDT";
+        String expected = "shard-" + Math.floorMod(symbol.hashCode(), 4);
+        assertEquals(expected, router.pipelineOf(symbol));
+        assertEquals(expected, new EngineShardRouter(new String[0], 4, new String[0]).pipelineOf(symbol));
+    }
+
+    @Test
+    void explicitAssignmentOverridesHash() {
+        EngineShardRouter router = new EngineShardRouter(new String[0], 4, new String[]{"SOLUSDT:3", " XRPUSDT : 0 "});
+        assertEquals("shard-3", router.pipelineOf("SOLUSDT"));
+        assertEquals("shard-0", router.pipelineOf("XRPUSDT"));
+    }
+
+    @Test
+    void rejectsInvalidAssignments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EngineShardRouter(new String[0], 4, new String[]{"SOLUSDT:4"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new EngineShardRouter(new String[0], 4, new String[]{"SOLUSDT"}));
+    }
+
+    @Test
+    void zeroSharedCountMeansOnePipelinePerSymbol() {
+        EngineShardRouter router = new EngineShardRouter(new String[0], 0, new String[0]);
+        assertEquals("SOLUSDT", router.pipelineOf("SOLUSDT"));
+        assertEquals("XRPUSDT", router.pipelineOf("XRPUSDT"));
+    }
+
+    @Test
+    void pipelinesSpreadOverDistinctPartitions() {
+        // 2 个独占交易对 + 4 个共享分片 = 6 条流水线，分区数足够时互不共享分区
+        EngineShardRouter router = new EngineShardRouter(new String[]{"BTCUSDT", "ETHUSDT"}, 4,
+                new String[]{"A:0", "B:1", "C:2", "D:3"});
+        Set<Integer> partitions = new HashSet<>();
+        for (String symbol : new String[]{"BTCUSDT", "ETHUSDT", "A", "B", "C", "D"}) {
+            int partition = router.partitionOf(symbol, 6);
+            assertTrue(partition >= 0 && partition < 6);
+            partitions.add(partition);
+        }
+        assertEquals(6, partitions.size());
+        assertEquals(0, router.partitionOf("BTCUSDT", 6));
+        assertEquals(router.partitionOf("A", 6), router.partitionOf("A", 6));
+
+        // 分区少于流水线时同一流水线的交易对仍落在同一分区
+        EngineShardRouter shared = new EngineShardRouter(new String[0], 2, new String[]{"A:1", "B:1"});
+        assertEquals(shared.partitionOf("A", 1), shared.partitionOf("B", 1));
+        assertEquals(shared.partitionOf("A", 3), shared.partitionOf("B", 3));
+    }
+}
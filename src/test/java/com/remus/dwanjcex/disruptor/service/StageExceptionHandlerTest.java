@@ -0,0 +1,61 @@
+package com.remus.dwanjcex.disruptor.service;
+
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.handler.StageHaltException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StageExceptionHandlerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void skipsFailedEventAndCountsIt() {
+        StageExceptionHandler handler = new StageExceptionHandler("shard-0", "MatchingHandler", false, registry);
+        // 例如超出精度的价格在撮合线程上转换定点数失败
+        handler.handleEventException(new ArithmeticException("Rounding necessary"), 7, new DisruptorEvent());
+        handler.handleEventException(new IllegalArgumentException("bad"), 8, new DisruptorEvent());
+
+        assertFalse(handler.isHalted());
+        assertEquals(2.0, errors("MatchingHandler"));
+        assertEquals(0.0, halted("MatchingHandler"));
+    }
+
+    @Test
+    void failStopStageHaltsAndReportsIt() {
+        StageExceptionHandler handler = new StageExceptionHandler("shard-0", "JournalHandler", true, registry);
+        assertThrows(RuntimeException.class,
+                () -> handler.handleEventException(new IllegalStateException("disk full"), 3, new DisruptorEvent()));
+
+        assertTrue(handler.isHalted());
+        assertEquals(1.0, errors("JournalHandler"));
+        assertEquals(1.0, halted("JournalHandler"));
+    }
+
+    @Test
+    void haltRequestStopsNonFailStopStage() {
+        StageExceptionHandler handler = new StageExceptionHandler("shard-0", "SettlementPersistenceHandler", false, registry);
+        assertThrows(RuntimeException.class, () -> handler.handleEventException(
+                new StageHaltException("写入溢写队列失败", new IOException("disk full")), 5, new DisruptorEvent()));
+
+        assertTrue(handler.isHalted());
+        assertEquals(1.0, halted("SettlementPersistenceHandler"));
+    }
+
+    // --- Helper Methods ---
+
+    private double errors(String stage) {
+        return registry.get("cex.pipeline.stage.errors").tags("pipeline", "shard-0", "stage", stage).counter().count();
+    }
+
+    private double halted(String stage) {
+        return registry.get("cex.pipeline.stage.halted").tags("pipeline", "shard-0", "stage", stage).gauge().value();
+    }
+}
@@ -0,0 +1,114 @@
+package com.remus.dwanjcex.disruptor.snapshot;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.engine.EngineOrder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OrderBookSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsOrdersInBookOrder() throws IOException {
+        List<EngineOrder> orders = List.of(
+                order(11, OrderTypes.Side.BUY, OrderTypes.OrderType.LIMIT, 6_000_000, 50, 20),
+                order(12, OrderTypes.Side.SELL, OrderTypes.OrderType.LIMIT, 6_010_000, 70, 0),
+                order(13, OrderTypes.Side.BUY, OrderTypes.OrderType.MARKET, 0, 0, 0));
+        orders.get(2).setQuoteAmount(1_000_000);
+        orders.get(2).setQuoteFilled(400_000);
+
+        OrderBookSnapshotFile.write(dir, "BTCUSDT", 42, 2, 4, orders, 3);
+        OrderBookSnapshotFile.Content content = OrderBookSnapshotFile.readLatest(dir);
+
+        assertEquals("BTCUSDT", content.symbol());
+        assertEquals(42, content.journalSeq());
+        assertEquals(2, content.priceScale());
+        assertEquals(4, content.quantityScale());
+        assertEquals(orders.size(), content.orders().size());
+        for (int i = 0; i < orders.size(); i++) {
+            EngineOrder expected = orders.get(i);
+            EngineOrder actual = content.orders().get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getUserId(), actual.getUserId());
+            assertEquals("BTCUSDT", actual.getSymbol());
+            assertEquals(expected.getSide(), actual.getSide());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getPrice(), actual.getPrice());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            assertEquals(expected.getFilled(), actual.getFilled());
+            assertEquals(expected.getQuoteAmount(), actual.getQuoteAmount());
+            assertEquals(expected.getQuoteFilled(), actual.getQuoteFilled());
+        }
+    }
+
+    @Test
+    void emptyDirectoryHasNoSnapshot() throws IOException {
+        assertNull(OrderBookSnapshotFile.readLatest(dir.resolve("missing")));
+        assertEquals(-1, OrderBookSnapshotFile.oldestJournalSeq(dir));
+    }
+
+    @Test
+    void fallsBackToEarlierSnapshotWhenLatestIsCorrupt() throws IOException {
+        OrderBookSnapshotFile.write(dir, "ETHUSDT", 10, 2, 4,
+                List.of(order(1, OrderTypes.Side.BUY, OrderTypes.OrderType.LIMIT, 300_000, 10, 0)), 3);
+        Path latest = OrderBookSnapshotFile.write(dir, "ETHUSDT", 20, 2, 4,
+                List.of(order(2, OrderTypes.Side.SELL, OrderTypes.OrderType.LIMIT, 300_100, 10, 0)), 3);
+        try (FileChannel channel = FileChannel.open(latest, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), 40);
+        }
+
+        OrderBookSnapshotFile.Content content = OrderBookSnapshotFile.readLatest(dir);
+        assertEquals(10, content.journalSeq());
+        assertEquals(1, content.orders().get(0).getId());
+    }
+
+    @Test
+    void retainsOnlyNewestSnapshots() throws IOException {
+        for (long seq = 100; seq <= 500; seq += 100) {
+            OrderBookSnapshotFile.write(dir, "BTCUSDT", seq, 2, 4, List.of(), 2);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(2, files.count());
+        }
+        assertEquals(400, OrderBookSnapshotFile.oldestJournalSeq(dir));
+        assertEquals(500, OrderBookSnapshotFile.readLatest(dir).journalSeq());
+    }
+
+    @Test
+    void readsLatestSnapshotNotAfterGivenSequence() throws IOException {
+        for (long seq = 100; seq <= 300; seq += 100) {
+            OrderBookSnapshotFile.write(dir, "BTCUSDT", seq, 2, 4, List.of(), 3);
+        }
+        assertEquals(200, OrderBookSnapshotFile.readLatest(dir, 250).journalSeq());
+        assertEquals(300, OrderBookSnapshotFile.readLatest(dir, 300).journalSeq());
+        assertNull(OrderBookSnapshotFile.readLatest(dir, 99));
+    }
+
+    private static EngineOrder order(long id, OrderTypes.Side side, OrderTypes.OrderType type,
+                                     long price, long quantity, long filled) {
+        return EngineOrder.builder()
+                .id(id)
+                .userId(id * 10)
+                .symbol("BTCUSDT")
+                .side(side)
+                .type(type)
+                .price(price)
+                .quantity(quantity)
+                .filled(filled)
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.remus.dwanjcex.disruptor.spill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillQueueTest {
+
+    private static final String NAME = "trade";
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    private final List<Batch> written = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void retriesInOrderUntilWriterRecovers() throws Exception {
+        AtomicInteger failures = new AtomicInteger(3);
+        try (SpillQueue<Batch> queue = open(executor, batch -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("数据库不可用");
+            }
+            written.add(batch);
+        })) {
+            assertFalse(queue.appendIfBacklogged(new Batch(0)));
+            queue.append(new Batch(1));
+            // 队列非空期间新批次排在其后
+            assertTrue(queue.appendIfBacklogged(new Batch(2)));
+            queue.append(new Batch(3));
+
+            awaitDrained(queue);
+            assertEquals(List.of(new Batch(1), new Batch(2), new Batch(3)), written);
+            assertEquals(0, queue.getBacklogBytes());
+            assertEquals(0, Files.size(dir.resolve(NAME + ".spill")));
+        }
+    }
+
+    @Test
+    void resumesFromRecordedOffsetAfterRestart() throws Exception {
+        // 第一条写库成功，第二条失败后进程退出
+        try (SpillQueue<Batch> queue = open(executor, batch -> {
+            if (batch.n() > 1) throw new IllegalStateException("数据库不可用");
+            written.add(batch);
+        })) {
+            for (int n = 1; n <= 3; n++) {
+                queue.append(new Batch(n));
+            }
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (queue.getBacklog() > 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, queue.getBacklog());
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(new Batch(1)), written);
+
+        ScheduledThreadPoolExecutor restarted = new ScheduledThreadPoolExecutor(1);
+        try (SpillQueue<Batch> queue = open(restarted, written::add)) {
+            // 遗留批次不在后台自动重试，由启动流程同步补写
+            assertEquals(2, queue.getBacklog());
+            queue.drain();
+            assertEquals(0, queue.getBacklog());
+        } finally {
+            restarted.shutdownNow();
+        }
+        assertEquals(List.of(new Batch(1), new Batch(2), new Batch(3)), written);
+    }
+
+    @Test
+    void truncatesAtFirstRecordWithBadChecksum() throws Exception {
+        appendWithoutRetry(3);
+        // 破坏第二条记录的内容
+        long second = recordLength(0);
+        try (FileChannel channel = FileChannel.open(dir.resolve(NAME + ".spill"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), second + 8 + 2);
+        }
+
+        try (SpillQueue<Batch> queue = open(stopped(), written::add)) {
+            assertEquals(1, queue.getBacklog());
+            assertEquals(second, queue.getBacklogBytes());
+        }
+        assertEquals(second, Files.size(dir.resolve(NAME + ".spill")));
+        assertDrainsTo(List.of(new Batch(1)));
+    }
+
+    @Test
+    void dropsPartialRecordAtTail() throws Exception {
+        appendWithoutRetry(2);
+        Path file = dir.resolve(NAME + ".spill");
+        long complete = Files.size(file);
+        // 写入记录头时进程退出：只留下长度字段和部分校验和
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(6).putInt(0, 100));
+        }
+
+        try (SpillQueue<Batch> queue = open(stopped(), written::add)) {
+            assertEquals(2, queue.getBacklog());
+        }
+        assertEquals(complete, Files.size(file));
+        assertDrainsTo(List.of(new Batch(1), new Batch(2)));
+    }
+
+    @Test
+    void drainRetriesOnCallingThreadUntilWriterRecovers() throws Exception {
+        appendWithoutRetry(2);
+
+        AtomicInteger failures = new AtomicInteger(2);
+        written.clear();
+        try (SpillQueue<Batch> queue = open(stopped(), batch -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("数据库不可用");
+            }
+            written.add(batch);
+        })) {
+            // 后台重试线程已停止，只能由 drain 在当前线程上退避重试
+            queue.drain();
+            assertEquals(0, queue.getBacklog());
+        }
+        assertEquals(List.of(new Batch(1), new Batch(2)), written);
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * 后台重试不运行的情况下追加 count 个批次，模拟写库一直失败直到进程退出。
+     */
+    private void appendWithoutRetry(int count) throws IOException {
+        try (SpillQueue<Batch> queue = open(stopped(), written::add)) {
+            for (int n = 1; n <= count; n++) {
+                queue.append(new Batch(n));
+            }
+            assertEquals(count, queue.getBacklog());
+        }
+    }
+
+    private void assertDrainsTo(List<Batch> expected) throws Exception {
+        written.clear();
+        try (SpillQueue<Batch> queue = open(stopped(), written::add)) {
+            queue.drain();
+            assertEquals(0, queue.getBacklog());
+        }
+        assertEquals(expected, written);
+    }
+
+    private long recordLength(long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(NAME + ".spill"), StandardOpenOption.READ)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, position);
+            return 8 + length.getInt(0);
+        }
+    }
+
+    private SpillQueue<Batch> open(ScheduledExecutorService retryExecutor, Consumer<Batch> writer) throws IOException {
+        return new SpillQueue<>(dir, NAME, Batch.class, writer, objectMapper, retryExecutor, 10, 100,
+                new SimpleMeterRegistry(), Tags.of("handler", NAME));
+    }
+
+    private static ScheduledExecutorService stopped() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.shutdown();
+        return executor;
+    }
+
+    private static void awaitDrained(SpillQueue<?> queue) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.getBacklog() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, queue.getBacklog());
+    }
+
+    record Batch(int n) {}
+}
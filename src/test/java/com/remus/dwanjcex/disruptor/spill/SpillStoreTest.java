@@ -0,0 +1,81 @@
+package com.remus.dwanjcex.disruptor.spill;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillStoreTest {
+
+    private static final String PIPELINE = "shard-0";
+    private static final String HANDLER = "SettlementPersistenceHandler";
+
+    @TempDir
+    Path dir;
+
+    // 模拟数据库中的余额行：批次按差额累加
+    private final Map<Long, Long> balances = new ConcurrentHashMap<>();
+    private final List<Delta> written = new CopyOnWriteArrayList<>();
+
+    @Test
+    void restartDrainsBacklogBeforeOpenReturns() throws IOException {
+        balances.put(1L, 100L);
+
+        // 上次进程：写库一直失败，两个差额批次留在溢写文件中后进程退出
+        SpillStore previous = store(60_000);
+        SpillQueue<Delta> spilled = previous.open(PIPELINE, HANDLER, Delta.class, delta -> {
+            throw new IllegalStateException("数据库不可用");
+        });
+        spilled.append(new Delta(1L, -30));
+        spilled.append(new Delta(1L, 5));
+        previous.close();
+        assertEquals(100L, balances.get(1L));
+
+        // 本次启动：先发现有遗留批次的流水线，打开队列时同步补写完毕
+        SpillStore restarted = store(10);
+        assertEquals(Set.of(PIPELINE), restarted.pipelinesWithBacklog());
+        SpillQueue<Delta> queue = restarted.open(PIPELINE, HANDLER, Delta.class, this::apply);
+        try {
+            assertEquals(0, queue.getBacklog());
+            assertEquals(List.of(new Delta(1L, -30), new Delta(1L, 5)), written);
+            // 之后加载的账户已包含上次进程遗留的差额
+            assertEquals(75L, balances.get(1L));
+            assertTrue(restarted.pipelinesWithBacklog().isEmpty());
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void noBacklogWithoutSpillDirectory() {
+        SpillStore store = store(10);
+        try {
+            assertTrue(store.pipelinesWithBacklog().isEmpty());
+        } finally {
+            store.close();
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private SpillStore store(long retryMs) {
+        return new SpillStore(dir.resolve("spill").toString(), retryMs, retryMs, 168, new SimpleMeterRegistry(), null);
+    }
+
+    private void apply(Delta delta) {
+        written.add(delta);
+        balances.merge(delta.accountId(), delta.amount(), Long::sum);
+    }
+
+    record Delta(Long accountId, long amount) {}
+}
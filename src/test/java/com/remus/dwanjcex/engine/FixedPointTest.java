@@ -0,0 +1,52 @@
+package com.remus.dwanjcex.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FixedPointTest {
+
+    @Test
+    void convertsBetweenDecimalAndLong() {
+        assertEquals(12_345_000L, FixedPoint.toLong(new BigDecimal("123.45"), 5));
+        assertEquals(0L, FixedPoint.toLong(null, 8));
+        assertEquals(new BigDecimal("123.45000"), FixedPoint.toDecimal(12_345_000L, 5));
+        assertEquals(0, new BigDecimal("-0.001").compareTo(FixedPoint.toDecimal(-1, 3)));
+    }
+
+    @Test
+    void rejectsValuesBeyondScale() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toLong(new BigDecimal("0.123"), 2));
+        assertTrue(FixedPoint.fits(new BigDecimal("0.1200"), 2));
+        assertFalse(FixedPoint.fits(new BigDecimal("0.123"), 2));
+        assertTrue(FixedPoint.fits(null, 0));
+    }
+
+    @Test
+    void powersOfTen() {
+        assertEquals(1L, FixedPoint.pow10(0));
+        assertEquals(100_000_000L, FixedPoint.pow10(8));
+        assertEquals(1_000_000_000_000_000_000L, FixedPoint.pow10(18));
+    }
+
+    @Test
+    void multiplyDivideFloorsResult() {
+        // 1.5 (scale 1) * 3 (scale 0) = 4.5
+        assertEquals(45L, FixedPoint.multiplyDivide(15, 30, 10));
+        assertEquals(3L, FixedPoint.multiplyDivide(7, 1, 2));
+        assertEquals(-4L, FixedPoint.multiplyDivide(-7, 1, 2));
+    }
+
+    @Test
+    void multiplyDivideSurvivesOverflowingProduct() {
+        // 价格 60000.00000000 * 数量 5000.00000000，乘积超出 long
+        long price = 6_000_000_000_000L;
+        long quantity = 500_000_000_000L;
+        assertEquals(30_000_000_000_000_000L, FixedPoint.multiplyDivide(price, quantity, FixedPoint.pow10(8)));
+    }
+}
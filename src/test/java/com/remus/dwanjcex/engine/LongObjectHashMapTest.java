@@ -0,0 +1,93 @@
+package com.remus.dwanjcex.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void putGetRemove() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+        assertNull(map.put(7, "a"));
+        assertEquals("a", map.put(7, "b"));
+        assertEquals("b", map.get(7));
+        assertTrue(map.containsKey(7));
+        assertEquals(1, map.size());
+
+        assertEquals("b", map.remove(7));
+        assertNull(map.remove(7));
+        assertFalse(map.containsKey(7));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void zeroKeyIsStoredSeparately() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+        assertNull(map.get(0));
+        map.put(0, "zero");
+        map.put(1, "one");
+        assertEquals("zero", map.get(0));
+        assertEquals(2, map.size());
+
+        List<String> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertEquals(2, values.size());
+        assertTrue(values.contains("zero"));
+
+        assertEquals("zero", map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void clearEmptiesTable() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+        for (long k = 0; k < 100; k++) {
+            map.put(k, k);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+        assertNull(map.get(50));
+        map.forEachValue(v -> {
+            throw new AssertionError("表已清空: " + v);
+        });
+    }
+
+    @Test
+    void matchesHashMapUnderRandomChurn() {
+        // 键取自小范围，使探测链频繁碰撞，覆盖删除时的反向移位与扩容
+        Random random = new Random(42);
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                long value = random.nextLong();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            if (i % 1_000 == 0) {
+                assertEquals(expected.size(), map.size());
+                for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                    assertEquals(entry.getValue(), map.get(entry.getKey()));
+                }
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        long[] sum = {0};
+        map.forEachValue(v -> sum[0] += v);
+        assertEquals(expected.values().stream().mapToLong(Long::longValue).sum(), sum[0]);
+    }
+}
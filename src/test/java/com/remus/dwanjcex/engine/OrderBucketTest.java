@@ -0,0 +1,92 @@
+package com.remus.dwanjcex.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBucketTest {
+
+    @Test
+    void keepsTimePriorityAndAggregateAmount() {
+        OrderBucket bucket = new OrderBucket(10_000);
+        EngineOrder first = order(1, 5);
+        EngineOrder second = order(2, 7);
+        EngineOrder third = order(3, 11);
+        bucket.add(first);
+        bucket.add(second);
+        bucket.add(third);
+
+        assertEquals(3, bucket.getSize());
+        assertEquals(23, bucket.getTotalAmount());
+        assertEquals(List.of(1L, 2L, 3L), ids(bucket));
+        assertSame(first, bucket.peek());
+
+        assertSame(first, bucket.poll());
+        assertNull(first.getNextInBucket());
+        assertEquals(18, bucket.getTotalAmount());
+        assertEquals(List.of(2L, 3L), ids(bucket));
+    }
+
+    @Test
+    void removesFromHeadMiddleAndTail() {
+        OrderBucket bucket = new OrderBucket(10_000);
+        EngineOrder[] orders = {order(1, 1), order(2, 2), order(3, 3), order(4, 4)};
+        for (EngineOrder order : orders) {
+            bucket.add(order);
+        }
+
+        assertTrue(bucket.remove(orders[1]));
+        assertEquals(List.of(1L, 3L, 4L), ids(bucket));
+        assertTrue(bucket.remove(orders[3]));
+        assertSame(orders[2], bucket.getTail());
+        assertTrue(bucket.remove(orders[0]));
+        assertSame(orders[2], bucket.peek());
+        assertEquals(1, bucket.getSize());
+        assertEquals(3, bucket.getTotalAmount());
+
+        assertTrue(bucket.remove(orders[2]));
+        assertTrue(bucket.isEmpty());
+        assertNull(bucket.getTail());
+        assertEquals(0, bucket.getTotalAmount());
+    }
+
+    @Test
+    void ignoresOrderNotInBucket() {
+        OrderBucket bucket = new OrderBucket(10_000);
+        bucket.add(order(1, 5));
+        assertFalse(bucket.remove(order(2, 5)));
+        assertEquals(1, bucket.getSize());
+        assertEquals(5, bucket.getTotalAmount());
+    }
+
+    @Test
+    void reduceTracksPartialFills() {
+        OrderBucket bucket = new OrderBucket(10_000);
+        EngineOrder order = order(1, 10);
+        bucket.add(order);
+        order.fill(4, 0);
+        bucket.reduce(4);
+        assertEquals(6, bucket.getTotalAmount());
+
+        // 摘除时按剩余数量扣减，聚合数量归零
+        bucket.remove(order);
+        assertEquals(0, bucket.getTotalAmount());
+    }
+
+    private static EngineOrder order(long id, long quantity) {
+        return EngineOrder.builder().id(id).price(10_000).quantity(quantity).build();
+    }
+
+    private static List<Long> ids(OrderBucket bucket) {
+        List<Long> ids = new ArrayList<>();
+        bucket.forEachOrder(order -> ids.add(order.getId()));
+        return ids;
+    }
+}
@@ -0,0 +1,204 @@
+package com.remus.dwanjcex.engine.ladder;
+
+import com.remus.dwanjcex.engine.OrderBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceLadderTest {
+
+    private static final long TICK = 100;
+
+    @Test
+    void treeMapBidsOrderFromHighestPrice() {
+        assertBidOrdering(new TreeMapPriceLadder(true));
+    }
+
+    @Test
+    void treeMapAsksOrderFromLowestPrice() {
+        assertAskOrdering(new TreeMapPriceLadder(false));
+    }
+
+    @Test
+    void tickArrayBidsOrderFromHighestPrice() {
+        assertBidOrdering(new TickArrayPriceLadder(true, TICK, 64));
+    }
+
+    @Test
+    void tickArrayAsksOrderFromLowestPrice() {
+        assertAskOrdering(new TickArrayPriceLadder(false, TICK, 64));
+    }
+
+    @Test
+    void tickArrayReusesBucketForSamePrice() {
+        PriceLadder ladder = new TickArrayPriceLadder(false, TICK, 64);
+        assertSame(ladder.getOrCreate(10_000), ladder.getOrCreate(10_000));
+        assertSame(ladder.get(10_000), ladder.getOrCreate(10_000));
+        assertEquals(1, ladder.size());
+        assertNull(ladder.get(10_100));
+    }
+
+    @Test
+    void tickArrayMergesWindowAndSparseLevels() {
+        // 窗口以首个价格为中心，覆盖 [10000 - 32 tick, 10000 + 32 tick)
+        PriceLadder asks = new TickArrayPriceLadder(false, TICK, 64);
+        asks.getOrCreate(10_000);
+        asks.getOrCreate(20_000);   // 窗口外
+        asks.getOrCreate(10_050);   // 未对齐 tick
+        asks.getOrCreate(5_000);    // 窗口外，且优于窗口内的最优价
+        asks.getOrCreate(10_200);
+
+        assertEquals(5, asks.size());
+        assertEquals(5_000, asks.best().getPrice());
+        assertEquals(List.of(5_000L, 10_000L, 10_050L, 10_200L, 20_000L), prices(asks, Integer.MAX_VALUE));
+
+        asks.remove(5_000);
+        assertEquals(10_000, asks.best().getPrice());
+        asks.remove(10_000);
+        assertEquals(10_050, asks.best().getPrice());
+        asks.remove(10_050);
+        assertEquals(10_200, asks.best().getPrice());
+    }
+
+    @Test
+    void tickArrayRecentersWhenWindowEmpties() {
+        PriceLadder bids = new TickArrayPriceLadder(true, TICK, 64);
+        bids.getOrCreate(10_000);
+        bids.getOrCreate(50_000);   // 窗口外，进入稀疏存储
+        bids.remove(10_000);
+        assertEquals(50_000, bids.best().getPrice());
+
+        // 窗口已空，新价格使窗口重新定位，落入新窗口的稀疏档位迁回数组
+        bids.getOrCreate(49_900);
+        assertEquals(List.of(50_000L, 49_900L), prices(bids, Integer.MAX_VALUE));
+        bids.remove(50_000);
+        assertEquals(49_900, bids.best().getPrice());
+        bids.remove(49_900);
+        assertTrue(bids.isEmpty());
+        assertNull(bids.best());
+    }
+
+    @Test
+    void tickArrayFindsBestAcrossBitmapWords() {
+        PriceLadder asks = new TickArrayPriceLadder(false, TICK, 1024);
+        asks.getOrCreate(100_000);
+        asks.getOrCreate(100_000 + 300 * TICK);
+        asks.getOrCreate(100_000 + 70 * TICK);
+        asks.remove(100_000);
+        assertEquals(100_000 + 70 * TICK, asks.best().getPrice());
+        asks.remove(100_000 + 70 * TICK);
+        assertEquals(100_000 + 300 * TICK, asks.best().getPrice());
+    }
+
+    @Test
+    void tickArrayFollowsTrendingPrices() {
+        // 买盘单边上涨：每次在最优价上方挂新档位，同时撤掉最低的档位，最多保留 20 档
+        TickArrayPriceLadder bids = new TickArrayPriceLadder(true, TICK, 64);
+        Deque<Long> levels = new ArrayDeque<>();
+        long price = 10_000;
+        for (int step = 0; step < 1_000; step++) {
+            price += TICK;
+            OrderBucket bucket = bids.getOrCreate(price);
+            levels.addFirst(price);
+            if (levels.size() > 20) {
+                bids.remove(levels.removeLast());
+            }
+            assertEquals(price, bids.best().getPrice());
+            assertSame(bucket, bids.get(price));
+            // 窗口随最优价滑动，最优价附近的档位都留在数组中
+            assertEquals(0, bids.sparseLevels());
+        }
+        assertEquals(new ArrayList<>(levels), prices(bids, Integer.MAX_VALUE));
+
+        // 反向下跌同样跟随
+        TickArrayPriceLadder asks = new TickArrayPriceLadder(false, TICK, 64);
+        levels.clear();
+        price = 1_000_000;
+        for (int step = 0; step < 1_000; step++) {
+            price -= TICK;
+            asks.getOrCreate(price);
+            levels.addFirst(price);
+            if (levels.size() > 20) {
+                asks.remove(levels.removeLast());
+            }
+            assertEquals(price, asks.best().getPrice());
+            assertEquals(0, asks.sparseLevels());
+        }
+        assertEquals(new ArrayList<>(levels), prices(asks, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void tickArrayMatchesTreeMapUnderRandomWalk() {
+        Random random = new Random(42);
+        for (boolean descending : new boolean[]{true, false}) {
+            PriceLadder expected = new TreeMapPriceLadder(descending);
+            PriceLadder actual = new TickArrayPriceLadder(descending, TICK, 64);
+            long mid = 100_000;
+            for (int step = 0; step < 20_000; step++) {
+                mid += (random.nextInt(5) - 2) * TICK;
+                // 偶尔出现未对齐 tick 的价格
+                long price = mid + (random.nextInt(41) - 20) * TICK + (random.nextInt(50) == 0 ? TICK / 2 : 0);
+                if (random.nextInt(3) == 0) {
+                    expected.remove(price);
+                    actual.remove(price);
+                } else {
+                    expected.getOrCreate(price);
+                    assertEquals(price, actual.getOrCreate(price).getPrice());
+                }
+                assertEquals(expected.size(), actual.size());
+                assertEquals(expected.best() == null ? null : expected.best().getPrice(),
+                        actual.best() == null ? null : actual.best().getPrice());
+            }
+            assertEquals(prices(expected, Integer.MAX_VALUE), prices(actual, Integer.MAX_VALUE));
+        }
+    }
+
+    private static void assertBidOrdering(PriceLadder bids) {
+        assertTrue(bids.isEmpty());
+        assertNull(bids.best());
+        for (long price : new long[]{10_000, 10_300, 9_900, 10_100}) {
+            assertNotNull(bids.getOrCreate(price));
+        }
+        assertFalse(bids.isEmpty());
+        assertEquals(4, bids.size());
+        assertEquals(10_300, bids.best().getPrice());
+        assertEquals(List.of(10_300L, 10_100L, 10_000L, 9_900L), prices(bids, Integer.MAX_VALUE));
+        assertEquals(List.of(10_300L, 10_100L), prices(bids, 2));
+
+        bids.remove(10_300);
+        assertEquals(10_100, bids.best().getPrice());
+        assertNull(bids.get(10_300));
+        bids.remove(10_300);
+        assertEquals(3, bids.size());
+    }
+
+    private static void assertAskOrdering(PriceLadder asks) {
+        for (long price : new long[]{10_000, 10_300, 9_900, 10_100}) {
+            asks.getOrCreate(price);
+        }
+        assertEquals(9_900, asks.best().getPrice());
+        assertEquals(List.of(9_900L, 10_000L, 10_100L, 10_300L), prices(asks, Integer.MAX_VALUE));
+
+        asks.remove(9_900);
+        asks.remove(10_000);
+        assertEquals(10_100, asks.best().getPrice());
+        assertEquals(List.of(10_100L), prices(asks, 1));
+    }
+
+    private static List<Long> prices(PriceLadder ladder, int maxLevels) {
+        List<Long> prices = new ArrayList<>();
+        ladder.forEachLevel(maxLevels, bucket -> prices.add(bucket.getPrice()));
+        return prices;
+    }
+}
@@ -0,0 +1,120 @@
+package com.remus.dwanjcex.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EngineCommand;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.disruptor.service.DisruptorService;
+import com.remus.dwanjcex.engine.OrderBookFactory;
+import com.remus.dwanjcex.kafka.codec.CommandBinaryCodec;
+import com.remus.dwanjcex.kafka.dto.KafkaCommandMessage;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KafkaConsumerServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<EngineCommand> published = new ArrayList<>();
+    private final KafkaConsumerService consumer = new KafkaConsumerService(objectMapper, new DisruptorService(null) {
+        @Override
+        public void publishBatch(List<EngineCommand> commands) {
+            published.addAll(commands);
+        }
+    }, new OrderBookFactory(null, new String[0], 64, 20) {
+        // 价格2位小数，数量8位小数
+        @Override
+        public int priceScaleOf(String symbol) {
+            return 2;
+        }
+
+        @Override
+        public int quantityScaleOf(String symbol) {
+            return 8;
+        }
+    });
+
+    @Test
+    void decodesBinaryAndJsonInRecordOrder() throws Exception {
+        OrderDto place = OrderDto.builder().userId(1L).symbol("BTCUSDT")
+                .type(OrderTypes.OrderType.LIMIT).side(OrderTypes.Side.BUY)
+                .price(new BigDecimal("100.5")).amount(new BigDecimal("2")).build();
+        CancelOrderDto cancel = new CancelOrderDto(9L, 1L, "BTCUSDT", OrderTypes.Side.BUY);
+
+        consumer.listenCommandTopic(List.of(
+                record(0, CommandBinaryCodec.encodePlace(8L, place)),
+                record(1, objectMapper.writeValueAsBytes(KafkaCommandMessage.cancel(cancel)))));
+
+        assertEquals(2, published.size());
+        DisruptorEvent event = new DisruptorEvent();
+        published.get(0).copyTo(event);
+        assertEquals(EventType.PLACE_ORDER, event.getType());
+        assertEquals(8L, event.getOrderId());
+        assertEquals(place, event.getPlaceOrder());
+
+        event.clear();
+        published.get(1).copyTo(event);
+        assertEquals(EventType.CANCEL_ORDER, event.getType());
+        assertEquals(cancel, event.getCancelOrder());
+    }
+
+    @Test
+    void skipsUndecodableRecordsWithoutFailingTheBatch() throws Exception {
+        CancelOrderDto cancel = new CancelOrderDto(9L, 1L, "BTCUSDT", OrderTypes.Side.BUY);
+        byte[] binary = CommandBinaryCodec.encodeCancel(cancel);
+        byte[] truncated = new byte[binary.length - 2];
+        System.arraycopy(binary, 0, truncated, 0, truncated.length);
+
+        consumer.listenCommandTopic(List.of(
+                record(0, null),
+                record(1, "not json".getBytes(StandardCharsets.UTF_8)),
+                record(2, truncated),
+                record(3, objectMapper.writeValueAsBytes(KafkaCommandMessage.cancel(new CancelOrderDto(9L, 1L, null, null)))),
+                record(4, binary)));
+
+        assertEquals(1, published.size());
+        assertEquals("BTCUSDT", published.get(0).getSymbol());
+    }
+
+    @Test
+    void rejectsCommandsBeyondMarketScale() throws Exception {
+        OrderDto fits = order("100.50", "0.12345678");
+        consumer.listenCommandTopic(List.of(
+                // 价格超出2位小数
+                record(0, CommandBinaryCodec.encodePlace(1L, order("100.505", "1"))),
+                record(1, objectMapper.writeValueAsBytes(KafkaCommandMessage.place(2L, order("100.505", "1")))),
+                // 数量超出8位小数 (非紧凑形式)
+                record(2, CommandBinaryCodec.encodePlace(3L, order("1", "0.123456789123456789123"))),
+                record(3, objectMapper.writeValueAsBytes(KafkaCommandMessage.place(4L, order("1", "0.123456789")))),
+                // 末尾的0不计入精度
+                record(4, CommandBinaryCodec.encodePlace(5L, order("100.5000", "0.1234567800"))),
+                record(5, objectMapper.writeValueAsBytes(KafkaCommandMessage.place(6L, fits)))));
+
+        assertEquals(2, published.size());
+        DisruptorEvent event = new DisruptorEvent();
+        published.get(0).copyTo(event);
+        assertEquals(5L, event.getOrderId());
+        event.clear();
+        published.get(1).copyTo(event);
+        assertEquals(6L, event.getOrderId());
+    }
+
+    private static OrderDto order(String price, String amount) {
+        return OrderDto.builder().userId(1L).symbol("BTCUSDT")
+                .type(OrderTypes.OrderType.LIMIT).side(OrderTypes.Side.BUY)
+                .price(new BigDecimal(price)).amount(new BigDecimal(amount)).build();
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset, byte[] value) {
+        return new ConsumerRecord<>("engine-commands", 0, offset, "BTCUSDT", value);
+    }
+}
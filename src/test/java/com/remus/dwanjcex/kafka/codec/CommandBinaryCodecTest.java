@@ -0,0 +1,96 @@
+package com.remus.dwanjcex.kafka.codec;
+
+import com.remus.dwanjcex.common.OrderTypes;
+import com.remus.dwanjcex.disruptor.event.DisruptorEvent;
+import com.remus.dwanjcex.disruptor.event.EventType;
+import com.remus.dwanjcex.wallet.entity.dto.CancelOrderDto;
+import com.remus.dwanjcex.wallet.entity.dto.OrderDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandBinaryCodecTest {
+
+    @Test
+    void roundTripsPlaceOrder() {
+        OrderDto dto = OrderDto.builder()
+                .userId(7L)
+                .symbol("BTCUSDT")
+                .type(OrderTypes.OrderType.LIMIT)
+                .side(OrderTypes.Side.SELL)
+                .price(new BigDecimal("60000.12"))
+                .amount(new BigDecimal("0.00100000"))
+                // 超出 long 的非标度值走变长编码
+                .quoteAmount(new BigDecimal("123456789012345678901234567890.5"))
+                .build();
+        byte[] data = CommandBinaryCodec.encodePlace(101L, dto);
+
+        assertTrue(CommandBinaryCodec.isBinary(data));
+        assertTrue(CommandBinaryCodec.isValid(data));
+        assertEquals("BTCUSDT", CommandBinaryCodec.peekSymbol(data));
+
+        DisruptorEvent event = new DisruptorEvent();
+        BinaryEngineCommand command = BinaryEngineCommand.of(data);
+        assertEquals("BTCUSDT", command.getSymbol());
+        command.copyTo(event);
+        assertEquals(EventType.PLACE_ORDER, event.getType());
+        assertEquals(101L, event.getOrderId());
+        // 标度随数值保留
+        assertEquals(dto, event.getPlaceOrder());
+    }
+
+    @Test
+    void roundTripsCancelOrderAndNullFields() {
+        CancelOrderDto dto = new CancelOrderDto(55L, 7L, "ETHUSDT", null);
+        byte[] data = CommandBinaryCodec.encodeCancel(dto);
+        assertTrue(CommandBinaryCodec.isValid(data));
+
+        DisruptorEvent event = new DisruptorEvent();
+        CommandBinaryCodec.decode(data, event);
+        assertEquals(EventType.CANCEL_ORDER, event.getType());
+        assertEquals(dto, event.getCancelOrder());
+
+        OrderDto market = OrderDto.builder().userId(7L).symbol("ETHUSDT")
+                .type(OrderTypes.OrderType.MARKET).side(OrderTypes.Side.BUY)
+                .quoteAmount(new BigDecimal("250")).build();
+        CommandBinaryCodec.decode(CommandBinaryCodec.encodePlace(null, market), event);
+        assertEquals(0L, event.getOrderId());
+        assertEquals(market, event.getPlaceOrder());
+    }
+
+    @Test
+    void rejectsMalformedMessages() {
+        byte[] data = CommandBinaryCodec.encodeCancel(new CancelOrderDto(55L, 7L, "ETHUSDT", OrderTypes.Side.BUY));
+
+        assertFalse(CommandBinaryCodec.isValid(Arrays.copyOf(data, data.length - 1)), "截断");
+        assertFalse(CommandBinaryCodec.isValid(Arrays.copyOf(data, data.length + 1)), "多余字节");
+
+        byte[] version = data.clone();
+        version[1] = CommandBinaryCodec.VERSION + 1;
+        assertFalse(CommandBinaryCodec.isValid(version), "未知版本");
+
+        byte[] side = data.clone();
+        side[side.length - 1] = 9;
+        assertFalse(CommandBinaryCodec.isValid(side), "枚举越界");
+
+        byte[] type = data.clone();
+        type[2] = (byte) EventType.HEARTBEAT.ordinal();
+        assertFalse(CommandBinaryCodec.isValid(type), "非指令事件");
+
+        assertNull(BinaryEngineCommand.of(Arrays.copyOf(data, 10)));
+    }
+
+    @Test
+    void jsonIsNotMistakenForBinary() {
+        assertFalse(CommandBinaryCodec.isBinary("{\"type\":\"PLACE_ORDER\"}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(CommandBinaryCodec.isBinary(new byte[0]));
+        assertFalse(CommandBinaryCodec.isBinary(null));
+    }
+}
@@ -0,0 +1,171 @@
+package com.remus.dwanjcex.wallet.account;
+
+import com.remus.dwanjcex.exception.BusinessException;
+import com.remus.dwanjcex.wallet.entity.LedgerLog;
+import com.remus.dwanjcex.wallet.entity.WalletBalance;
+import com.remus.dwanjcex.wallet.mapper.WalletBalanceMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountEngineTest {
+
+    private final StubBalances balances = new StubBalances();
+    private final AccountEngine engine = new AccountEngine(balances.mapper(), new StubTransactionManager());
+
+    @Test
+    void recordsBeforeAndAfterBalancesForEachChange() {
+        engine.deposit(1L, "USDT", new BigDecimal("100"), "d-1");
+        BalanceChange freeze = engine.freeze(1L, "USDT", new BigDecimal("30"), "o-1");
+        BalanceChange deduct = engine.reduceFrozen(1L, "USDT", new BigDecimal("10"), "t-1");
+
+        LedgerLog ledger = freeze.ledger();
+        assertEquals("FREEZE", ledger.getBizType());
+        assertEquals(0, new BigDecimal("-30").compareTo(ledger.getAmount()));
+        assertEquals(0, new BigDecimal("100").compareTo(ledger.getBeforeAvailable()));
+        assertEquals(0, new BigDecimal("70").compareTo(ledger.getAfterAvailable()));
+        assertEquals(0, new BigDecimal("30").compareTo(freeze.frozenDelta()));
+
+        assertEquals(0, new BigDecimal("-10").compareTo(deduct.frozenDelta()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(deduct.availableDelta()));
+        assertNull(engine.reduceFrozen(1L, "USDT", BigDecimal.ZERO, "t-2"));
+
+        WalletBalance balance = engine.getBalance(1L, "USDT");
+        assertEquals(0, new BigDecimal("70").compareTo(balance.getAvailable()));
+        assertEquals(0, new BigDecimal("20").compareTo(balance.getFrozen()));
+        assertEquals(freeze.balanceId(), balance.getId());
+    }
+
+    @Test
+    void rejectedChangeLeavesBalanceUntouched() {
+        engine.deposit(1L, "USDT", new BigDecimal("5"), "d-1");
+        assertThrows(BusinessException.class, () -> engine.freeze(1L, "USDT", new BigDecimal("6"), "o-1"));
+        assertEquals(0, new BigDecimal("5").compareTo(engine.getBalance(1L, "USDT").getAvailable()));
+    }
+
+    @Test
+    void revertAppendsCompensationThatContinuesTheLedgerChain() {
+        engine.deposit(1L, "USDT", new BigDecimal("100"), "d-1");
+        BalanceChange freeze = engine.freeze(1L, "USDT", new BigDecimal("40"), "o-1");
+        // 撤销之前同一账户上又发生了一次变更
+        BalanceChange later = engine.freeze(1L, "USDT", new BigDecimal("10"), "o-2");
+
+        BalanceChange compensation = engine.revert(freeze);
+        LedgerLog ledger = compensation.ledger();
+        assertEquals("FREEZE_REVERT", ledger.getBizType());
+        assertEquals("o-1", ledger.getBizId());
+        assertEquals(0, new BigDecimal("40").compareTo(ledger.getAmount()));
+        assertEquals(0, later.ledger().getAfterAvailable().compareTo(ledger.getBeforeAvailable()));
+        assertEquals(0, later.ledger().getAfterFrozen().compareTo(ledger.getBeforeFrozen()));
+        assertEquals(0, freeze.availableDelta().negate().compareTo(compensation.availableDelta()));
+        assertEquals(0, freeze.frozenDelta().negate().compareTo(compensation.frozenDelta()));
+
+        WalletBalance balance = engine.getBalance(1L, "USDT");
+        assertEquals(0, new BigDecimal("90").compareTo(balance.getAvailable()));
+        assertEquals(0, new BigDecimal("10").compareTo(balance.getFrozen()));
+    }
+
+    @Test
+    void loadsEachAccountOnceUnderConcurrency() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < 100; n++) {
+                        engine.deposit(1L, "BTC", BigDecimal.ONE, "d-" + n);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, balances.inserts.get());
+        assertEquals(0, new BigDecimal(threads * 100).compareTo(engine.getBalance(1L, "BTC").getAvailable()));
+    }
+
+    @Test
+    void loadedBalanceIsNullUntilFirstUse() {
+        assertNull(engine.getLoadedBalance(2L, "ETH"));
+        engine.deposit(2L, "ETH", BigDecimal.TEN, "d-1");
+        assertEquals(0, BigDecimal.TEN.compareTo(engine.getLoadedBalance(2L, "ETH").getAvailable()));
+    }
+
+    /**
+     * 以内存表代替 wallets_balances 的余额Mapper。
+     */
+    private static final class StubBalances {
+        private final Map<String, WalletBalance> rows = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+        private final AtomicInteger inserts = new AtomicInteger();
+
+        WalletBalanceMapper mapper() {
+            return (WalletBalanceMapper) Proxy.newProxyInstance(WalletBalanceMapper.class.getClassLoader(),
+                    new Class<?>[]{WalletBalanceMapper.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "findByUserIdAndAsset": {
+                                WalletBalance row = rows.get(args[0] + ":" + args[1]);
+                                return row == null ? null : copy(row, row.getId());
+                            }
+                            case "insert": {
+                                WalletBalance row = (WalletBalance) args[0];
+                                inserts.incrementAndGet();
+                                rows.put(row.getUserId() + ":" + row.getAssetSymbol(), copy(row, ids.incrementAndGet()));
+                                return null;
+                            }
+                            case "findByUserId":
+                                return List.of();
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        private static WalletBalance copy(WalletBalance row, Long id) {
+            return WalletBalance.builder().id(id).userId(row.getUserId()).assetSymbol(row.getAssetSymbol())
+                    .available(row.getAvailable()).frozen(row.getFrozen()).total(row.getTotal()).build();
+        }
+    }
+
+    private static final class StubTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.remus.dwanjcex.wallet.account;
+
+import com.remus.dwanjcex.wallet.entity.SystemFeeAccrual;
+import com.remus.dwanjcex.wallet.entity.SystemFeeIncome;
+import com.remus.dwanjcex.wallet.mapper.SystemFeeAccrualMapper;
+import com.remus.dwanjcex.wallet.mapper.SystemFeeIncomeMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeeAccumulatorTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long T0 = 1_700_000_040_000L; // 整分钟
+
+    private final List<List<SystemFeeAccrual>> accrualStatements = new ArrayList<>();
+    private final List<List<SystemFeeIncome>> detailStatements = new ArrayList<>();
+
+    @Test
+    void sumsPerAssetTypeAndBucket() {
+        FeeAccumulator fees = accumulator(false);
+        fees.accrue("USDT", "TAKER", new BigDecimal("1.5"), 1L, 10L, T0);
+        fees.accrue("USDT", "TAKER", new BigDecimal("2.5"), 2L, 11L, T0 + MINUTE - 1);
+        fees.accrue("USDT", "MAKER", new BigDecimal("0.5"), 3L, 12L, T0 + 10);
+        fees.accrue("BTC", "TAKER", new BigDecimal("0.001"), 4L, 13L, T0 + 20);
+        fees.accrue("USDT", "TAKER", new BigDecimal("3"), 5L, 14L, T0 + MINUTE);
+        fees.accrue("USDT", "TAKER", BigDecimal.ZERO, 6L, 15L, T0);
+
+        assertEquals(4, fees.size());
+        FeeAccumulator.FeeRows rows = fees.drain();
+        assertTrue(fees.isEmpty());
+        assertTrue(rows.details().isEmpty());
+
+        List<SystemFeeAccrual> accruals = rows.accruals();
+        assertEquals(4, accruals.size());
+        assertAccrual(accruals.get(0), "USDT", "TAKER", T0, "4.0");
+        assertAccrual(accruals.get(1), "USDT", "MAKER", T0, "0.5");
+        assertAccrual(accruals.get(2), "BTC", "TAKER", T0, "0.001");
+        assertAccrual(accruals.get(3), "USDT", "TAKER", T0 + MINUTE, "3");
+    }
+
+    @Test
+    void detailRowsCarryOrderAndUser() {
+        FeeAccumulator fees = accumulator(true);
+        fees.accrue("USDT", "TAKER", new BigDecimal("1"), 7L, 70L, T0);
+        fees.accrue("USDT", "MAKER", new BigDecimal("2"), 8L, 80L, T0);
+
+        FeeAccumulator.FeeRows rows = fees.drain();
+        assertEquals(4, rows.size());
+        SystemFeeIncome detail = rows.details().get(1);
+        assertEquals(8L, detail.getOrderId());
+        assertEquals(80L, detail.getUserId());
+        assertEquals("MAKER", detail.getFeeType());
+
+        fees.write(rows);
+        assertEquals(1, accrualStatements.size());
+        assertEquals(2, accrualStatements.get(0).size());
+        assertEquals(1, detailStatements.size());
+        assertEquals(2, detailStatements.get(0).size());
+    }
+
+    @Test
+    void splitsLargeWritesIntoBoundedStatements() {
+        FeeAccumulator fees = accumulator(false);
+        for (int i = 0; i < 1_201; i++) {
+            fees.accrue("USDT", "TAKER", BigDecimal.ONE, (long) i, 1L, T0 + i * MINUTE);
+        }
+        fees.write(fees.drain());
+        assertEquals(3, accrualStatements.size());
+        assertEquals(500, accrualStatements.get(0).size());
+        assertEquals(201, accrualStatements.get(2).size());
+        assertTrue(detailStatements.isEmpty());
+    }
+
+    private static void assertAccrual(SystemFeeAccrual accrual, String asset, String feeType, long bucketMillis, String amount) {
+        assertEquals(asset, accrual.getAssetSymbol());
+        assertEquals(feeType, accrual.getFeeType());
+        assertEquals(LocalDateTime.ofInstant(Instant.ofEpochMilli(bucketMillis), ZoneId.systemDefault()), accrual.getBucketStart());
+        assertEquals(0, new BigDecimal(amount).compareTo(accrual.getAmount()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private FeeAccumulator accumulator(boolean detailRows) {
+        SystemFeeIncomeMapper incomeMapper = (SystemFeeIncomeMapper) Proxy.newProxyInstance(
+                SystemFeeIncomeMapper.class.getClassLoader(), new Class<?>[]{SystemFeeIncomeMapper.class},
+                (proxy, method, args) -> {
+                    detailStatements.add(new ArrayList<>((List<SystemFeeIncome>) args[0]));
+                    return null;
+                });
+        SystemFeeAccrualMapper accrualMapper = (SystemFeeAccrualMapper) Proxy.newProxyInstance(
+                SystemFeeAccrualMapper.class.getClassLoader(), new Class<?>[]{SystemFeeAccrualMapper.class},
+                (proxy, method, args) -> {
+                    accrualStatements.add(new ArrayList<>((List<SystemFeeAccrual>) args[0]));
+                    return null;
+                });
+        return new FeeAccumulator(incomeMapper, accrualMapper, 60, detailRows);
+    }
+}
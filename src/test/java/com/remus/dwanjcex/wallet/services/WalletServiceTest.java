@@ -0,0 +1,165 @@
+package com.remus.dwanjcex.wallet.services;
+
+import com.remus.dwanjcex.wallet.account.AccountEngine;
+import com.remus.dwanjcex.wallet.account.BalanceChange;
+import com.remus.dwanjcex.wallet.entity.LedgerLog;
+import com.remus.dwanjcex.wallet.entity.WalletBalance;
+import com.remus.dwanjcex.wallet.mapper.LedgerLogMapper;
+import com.remus.dwanjcex.wallet.mapper.WalletBalanceMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WalletServiceTest {
+
+    private final Map<String, WalletBalance> rows = new HashMap<>();
+    private final List<Object[]> appliedDeltas = new ArrayList<>();
+    private final List<LedgerLog> insertedLedgers = new ArrayList<>();
+    private final List<List<LedgerLog>> insertedLedgerBatches = new ArrayList<>();
+
+    private final AccountEngine accountEngine = new AccountEngine(balanceMapper(), new StubTransactionManager());
+    private final WalletService walletService = new WalletService(accountEngine, balanceMapper(), ledgerLogMapper());
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rollbackRevertsMemoryAndWritesCompensatingLedger() {
+        rows.put("1:USDT", balance(10L, 1L, "USDT", "100"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(walletService.freeze(1L, "USDT", new BigDecimal("30"), "o-1"));
+        assertEquals(1, insertedLedgers.size());
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // 模拟调用方事务回滚
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        WalletBalance balance = accountEngine.getBalance(1L, "USDT");
+        assertEquals(0, new BigDecimal("100").compareTo(balance.getAvailable()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance.getFrozen()));
+
+        assertEquals(1, insertedLedgerBatches.size());
+        List<LedgerLog> reverted = insertedLedgerBatches.get(0);
+        assertEquals("FREEZE", reverted.get(0).getBizType());
+        assertEquals("FREEZE_REVERT", reverted.get(1).getBizType());
+        assertEquals(0, reverted.get(0).getAfterAvailable().compareTo(reverted.get(1).getBeforeAvailable()));
+        assertEquals(0, reverted.get(0).getBeforeAvailable().compareTo(reverted.get(1).getAfterAvailable()));
+    }
+
+    @Test
+    void commitKeepsChange() {
+        rows.put("1:USDT", balance(10L, 1L, "USDT", "100"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        walletService.freeze(1L, "USDT", new BigDecimal("30"), "o-1");
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(0, new BigDecimal("70").compareTo(accountEngine.getBalance(1L, "USDT").getAvailable()));
+        assertTrue(insertedLedgerBatches.isEmpty());
+        assertEquals(1, appliedDeltas.size());
+    }
+
+    @Test
+    void persistBalancesNetsPerAccountInIdOrder() {
+        rows.put("1:USDT", balance(20L, 1L, "USDT", "100"));
+        rows.put("1:BTC", balance(5L, 1L, "BTC", "1"));
+        rows.put("2:USDT", balance(12L, 2L, "USDT", "50"));
+
+        List<BalanceChange> changes = List.of(
+                accountEngine.freeze(1L, "USDT", new BigDecimal("40"), "o-1"),
+                accountEngine.freeze(2L, "USDT", new BigDecimal("10"), "o-2"),
+                accountEngine.reduceFrozen(1L, "USDT", new BigDecimal("40"), "t-1"),
+                accountEngine.settleCredit(1L, "BTC", new BigDecimal("0.5"), "t-1"),
+                // 冻结后全部解冻，净差额为0，不写库
+                accountEngine.unfreeze(2L, "USDT", new BigDecimal("10"), "o-2"));
+        walletService.persistBalances(changes);
+
+        assertEquals(2, appliedDeltas.size());
+        assertEquals(5L, appliedDeltas.get(0)[0]);
+        assertEquals(0, new BigDecimal("0.5").compareTo((BigDecimal) appliedDeltas.get(0)[1]));
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) appliedDeltas.get(0)[2]));
+        assertEquals(20L, appliedDeltas.get(1)[0]);
+        assertEquals(0, new BigDecimal("-40").compareTo((BigDecimal) appliedDeltas.get(1)[1]));
+        assertEquals(0, BigDecimal.ZERO.compareTo((BigDecimal) appliedDeltas.get(1)[2]));
+    }
+
+    // --- Helper Methods ---
+
+    private static WalletBalance balance(Long id, Long userId, String asset, String available) {
+        return WalletBalance.builder().id(id).userId(userId).assetSymbol(asset)
+                .available(new BigDecimal(available)).frozen(BigDecimal.ZERO).total(new BigDecimal(available)).build();
+    }
+
+    private WalletBalanceMapper balanceMapper() {
+        return (WalletBalanceMapper) Proxy.newProxyInstance(WalletBalanceMapper.class.getClassLoader(),
+                new Class<?>[]{WalletBalanceMapper.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByUserIdAndAsset": {
+                            WalletBalance row = rows.get(args[0] + ":" + args[1]);
+                            return row == null ? null : balance(row.getId(), row.getUserId(), row.getAssetSymbol(),
+                                    row.getAvailable().toPlainString());
+                        }
+                        case "applyDelta":
+                            appliedDeltas.add(args);
+                            return 1;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private LedgerLogMapper ledgerLogMapper() {
+        return (LedgerLogMapper) Proxy.newProxyInstance(LedgerLogMapper.class.getClassLoader(),
+                new Class<?>[]{LedgerLogMapper.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "insert":
+                            insertedLedgers.add((LedgerLog) args[0]);
+                            return null;
+                        case "insertBatch":
+                            insertedLedgerBatches.add((List<LedgerLog>) args[0]);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static final class StubTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}